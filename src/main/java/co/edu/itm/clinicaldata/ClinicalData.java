@@ -1,14 +1,29 @@
 package co.edu.itm.clinicaldata;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import co.edu.itm.clinicaldata.backend.ClusterBackend;
+import co.edu.itm.clinicaldata.backend.LocalClusterBackend;
+import co.edu.itm.clinicaldata.backend.QsubClusterBackend;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.configuration.NotificationConf;
+import co.edu.itm.clinicaldata.configuration.SubmissionConf;
+import co.edu.itm.clinicaldata.enums.BackPressurePolicy;
+import co.edu.itm.clinicaldata.enums.ClusterBackendType;
+import co.edu.itm.clinicaldata.queue.CountingRejectedExecutionHandler;
+import co.edu.itm.clinicaldata.queue.PriorityTaskQueue;
+
 @SpringBootApplication(scanBasePackages = { "co.edu.itm.clinicaldata" })
 @EnableAsync
 @EnableScheduling
@@ -18,14 +33,63 @@ public class ClinicalData {
         SpringApplication.run(ClinicalData.class, args);
     }
 
+    /**
+     * Executor de envío al cluster, las solicitudes en su cola se atienden por prioridad
+     */
     @Bean
-    public Executor asyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(2);
-        executor.setQueueCapacity(10);
+    public ThreadPoolTaskExecutor submissionExecutor(SubmissionConf submissionConf) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+                return queueCapacity > 0 ? new PriorityTaskQueue(queueCapacity) : super.createQueue(queueCapacity);
+            }
+        };
+        executor.setCorePoolSize(submissionConf.getCorePoolSize());
+        executor.setMaxPoolSize(submissionConf.getMaxPoolSize());
+        executor.setQueueCapacity(submissionConf.getQueueCapacity());
+        executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(
+                submissionConf.getPolicy() == BackPressurePolicy.CALLER_RUNS
+                        ? new ThreadPoolExecutor.CallerRunsPolicy()
+                        : new ThreadPoolExecutor.AbortPolicy()));
         executor.setThreadNamePrefix("ClusterITM-");
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public Executor monitorExecutor(MonitorConf monitorConf) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(monitorConf.getPoolSize());
+        executor.setMaxPoolSize(monitorConf.getPoolSize());
+        executor.setQueueCapacity(monitorConf.getQueueCapacity());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("MonitorITM-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor de envío de los eventos de las suscripciones, el hilo que confirma un cambio de estado
+     * no espera a que los clientes reciban el evento
+     */
+    @Bean
+    public ThreadPoolTaskExecutor notificationExecutor(NotificationConf notificationConf) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(notificationConf.getSendPoolSize());
+        executor.setMaxPoolSize(notificationConf.getSendPoolSize());
+        executor.setQueueCapacity(notificationConf.getSendQueueCapacity());
+        executor.setThreadNamePrefix("NotificationITM-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    @Primary
+    public ClusterBackend clusterBackend(ClusterConf clusterConf, QsubClusterBackend qsubClusterBackend,
+            LocalClusterBackend localClusterBackend) {
+        return clusterConf.getBackend() == ClusterBackendType.LOCAL ? localClusterBackend : qsubClusterBackend;
+    }
+
+}
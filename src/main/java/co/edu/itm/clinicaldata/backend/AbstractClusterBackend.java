@@ -0,0 +1,88 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+/**
+ * Comportamiento común de los backends que dejan la salida de los trabajos en los archivos
+ * .out y .err del folder de la solicitud
+ */
+public abstract class AbstractClusterBackend implements ClusterBackend {
+
+    protected static final String TEMPORARY_SUFFIX = ".tmp";
+    // RESULT admite 4000 caracteres, se deja espacio para el prefijo de texto truncado
+    private static final int RESULT_MAX_BYTES = 3990;
+
+    @Autowired
+    FileUtilities fileUtilities;
+
+    @Autowired
+    FolderConf folderConf;
+
+    /**
+     * Envía cada solicitud por separado
+     */
+    @Override
+    public List<Output> submitBatch(List<ProcessingRequest> listProcessingRequest) {
+        List<Output> outputs = new ArrayList<>();
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            outputs.add(submit(processingRequest));
+        }
+        return outputs;
+    }
+
+    /**
+     * No mantiene recursos por trabajo
+     */
+    @Override
+    public void retainJobs(Collection<String> jobIds) {
+    }
+
+    /**
+     * Valida si existe archivo .out o .err dentro del folder de la solicitud. Como resultado se guarda
+     * solo el final del archivo, el contenido completo se descarga en /processData/output/{identifier}
+     */
+    @Override
+    public Output fetchOutput(ProcessingRequest processingRequest) {
+        ProcessState processState = null;
+        String outputPathFile = processingRequest.getBasePath() + folderConf.getLogOutputFile();
+        String errorPathFile = processingRequest.getBasePath() + folderConf.getErrOutputFile();
+        String pathFile = null;
+        if (fileUtilities.existsFile(outputPathFile)) {
+            pathFile = outputPathFile;
+            processState = ProcessState.FINISHED_OK;
+        } else if (fileUtilities.existsFile(errorPathFile)) {
+            pathFile = errorPathFile;
+            processState = ProcessState.FINISHED_WITH_ERRORS;
+        }
+
+        Output output = null;
+        if (pathFile != null) {
+            output = new Output();
+            output.setResult(fileUtilities.readTail(pathFile, RESULT_MAX_BYTES));
+            output.setState(processState.getState());
+        }
+        return output;
+    }
+
+    protected Output finished(ProcessState processState, String result) {
+        Output output = new Output();
+        output.setResult(result);
+        output.setState(processState.getState());
+        return output;
+    }
+
+    protected String shFilePath(ProcessingRequest processingRequest) {
+        return processingRequest.getBasePath() + folderConf.getShFileName();
+    }
+
+}
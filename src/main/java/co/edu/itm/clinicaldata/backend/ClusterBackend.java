@@ -0,0 +1,63 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+/**
+ * Ejecuta las solicitudes ya preparadas (archivo .sh creado en el folder de la solicitud).
+ * Cada implementación deja la salida del trabajo en los archivos .out o .err del folder
+ * de la solicitud, que es donde el monitor la busca.
+ * La implementación usada se elige con la propiedad cluster.backend
+ */
+public interface ClusterBackend {
+
+    /**
+     * Envía a ejecución una solicitud. Si queda en ejecución asigna a la solicitud el
+     * identificador de su trabajo
+     * @param processingRequest
+     * @return salida con estado EN PROGRESO si el trabajo fue aceptado, o con el estado final en caso contrario
+     */
+    Output submit(ProcessingRequest processingRequest);
+
+    /**
+     * Envía a ejecución varias solicitudes, con una sola invocación cuando el backend lo permite
+     * @param listProcessingRequest
+     * @return salida de cada solicitud, en el mismo orden recibido
+     */
+    List<Output> submitBatch(List<ProcessingRequest> listProcessingRequest);
+
+    /**
+     * Consulta con una sola invocación el estado de los trabajos
+     * @param jobIds
+     * @return estado de los trabajos conocidos por el backend, por su identificador;
+     * null si el estado no se puede consultar y se debe validar únicamente por los archivos de salida
+     */
+    Map<String, JobStatus> poll(Collection<String> jobIds);
+
+    /**
+     * Cancela un trabajo en cola o en ejecución
+     * @param jobId
+     * @return true si el backend aceptó la cancelación
+     */
+    boolean cancel(String jobId);
+
+    /**
+     * Recibe los trabajos de todas las solicitudes que siguen en seguimiento, el backend libera
+     * los recursos que mantenga para los demás trabajos
+     * @param jobIds
+     */
+    void retainJobs(Collection<String> jobIds);
+
+    /**
+     * Lee la salida de un trabajo terminado
+     * @param processingRequest
+     * @return salida con estado TERMINADA o TERMINADA CON ERRORES, o null si el trabajo aún no generó su salida
+     */
+    Output fetchOutput(ProcessingRequest processingRequest);
+
+}
@@ -0,0 +1,481 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.queue.PrioritizedTask;
+import co.edu.itm.clinicaldata.queue.PriorityTaskQueue;
+
+/**
+ * Ejecuta las solicitudes en el mismo servidor del API, en un pool acotado de procesos,
+ * sin pasar por el planificador del cluster. Útil para trabajos pequeños que no deben esperar
+ * en la cola del cluster y para pruebas de carga sin cluster.
+ * Igual que con qsub, la salida se escribe en archivos temporales que se renombran
+ * a .out o .err al terminar. Los trabajos en espera se ejecutan por prioridad.
+ * Los trabajos en espera se pierden si la aplicación se detiene; los que están en ejecución continúan
+ * en su propia sesión y, con el archivo .pid del trabajo, se siguen consultando y cancelando luego del reinicio
+ */
+@Component
+public class LocalClusterBackend extends AbstractClusterBackend {
+
+    private static final String SHELL = "sh";
+    private static final String SETSID = "setsid";
+    private static final String KILL = "kill";
+    private static final String NULL_DEVICE = "/dev/null";
+    private static final String RUN_SCRIPT = "echo $$; sh \"$1\" > \"$2\"; status=$?; echo $status > \"$3\"; exit $status";
+    private static final String LOCAL_FOLDER = "local";
+    private static final String PID_FOLDER = "jobs";
+    private static final String PID_SUFFIX = ".pid";
+    private static final String EXIT_STATUS_FILE = "local-job.exit";
+    private static final String PROC_FOLDER = "/proc/";
+    private static final String STAT_FILE = "/stat";
+    // Posición del tiempo de inicio en /proc/<pid>/stat, contando desde el estado del proceso
+    private static final int STAT_START_TIME = 19;
+    private static final String ZOMBIE_STATE = "Z";
+    private static final long KILL_TIMEOUT_SECONDS = 10;
+    private static final String JOB_PREFIX = "local-";
+    private static final String JOB_QUEUED = "Trabajo <%s> encolado para ejecución local";
+    private static final String CAPACITY_EXCEEDED = "La cola de ejecución local está llena (<%d> trabajos en espera), intente más tarde";
+    private static final String JOB_TIMED_OUT = "El trabajo <%s> superó el tiempo máximo de ejecución local de <%d> segundos";
+    private static final String ERROR_EXECUTING_JOB = "Ocurrió un error ejecutando localmente el trabajo <%s>: %s";
+    private static final String ERROR_KILLING_JOB = "No fue posible terminar el grupo de procesos <%s>: %s";
+    private static final String ERROR_MOVING_OUTPUT = "No fue posible dejar la salida del trabajo <%s> en el folder de la solicitud";
+    private static final String ERROR_WRITING_PID_FILE = "No fue posible registrar el grupo de procesos del trabajo <%s>, no se podrá seguir luego de un reinicio";
+    private static final String ERROR_DELETING_PID_FILE = "No fue posible eliminar el archivo .pid del trabajo <%s>: %s";
+    private static final String RECOVERED_JOB_FINISHED = "El trabajo <%s> iniciado antes del reinicio terminó";
+    private static final String QUEUED_STATE = "Q";
+    private static final String RUNNING_STATE = "R";
+
+    private static final Logger LOGGER = Logger.getLogger(LocalClusterBackend.class.getName());
+
+    @Autowired
+    ClusterConf clusterConf;
+
+    private final ConcurrentMap<String, LocalJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Path pidFolder;
+
+    @PostConstruct
+    public void init() {
+        pidFolder = Paths.get(fileUtilities.buildBasePath(LOCAL_FOLDER, PID_FOLDER));
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(clusterConf.getLocalPoolSize(), clusterConf.getLocalPoolSize(),
+                0L, TimeUnit.MILLISECONDS, new PriorityTaskQueue(clusterConf.getLocalQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "LocalBackendITM-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public Output submit(ProcessingRequest processingRequest) {
+        String jobId = JOB_PREFIX + processingRequest.getIdentifier();
+        File folder = new File(processingRequest.getBasePath());
+        LocalJob job = new LocalJob();
+        jobs.put(jobId, job);
+        job.task = new PrioritizedTask(Priority.fromLevel(processingRequest.getPriority()), () -> run(jobId, folder, job));
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(jobId);
+            return finished(ProcessState.FINISHED_WITH_ERRORS, String.format(CAPACITY_EXCEEDED, clusterConf.getLocalQueueCapacity()));
+        }
+        processingRequest.setJobId(jobId);
+        return finished(ProcessState.PROCESSING, String.format(JOB_QUEUED, jobId));
+    }
+
+    private void run(String jobId, File folder, LocalJob job) {
+        Path outTemporary = new File(folder, folderConf.getLogOutputFile() + TEMPORARY_SUFFIX).toPath();
+        Path errTemporary = new File(folder, folderConf.getErrOutputFile() + TEMPORARY_SUFFIX).toPath();
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command(outTemporary))
+                    .directory(folder)
+                    .redirectError(errTemporary.toFile());
+            int exitValue = execute(jobId, folder, job, builder, errTemporary);
+            // Si el pool se detuvo durante la ejecución, la interrupción se restaura luego de mover la salida
+            boolean interrupted = Thread.interrupted();
+            try {
+                moveOutput(exitValue == 0 && !job.cancelled, folder);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_MOVING_OUTPUT, jobId), ex);
+        } finally {
+            jobs.remove(jobId);
+            deletePidFile(jobId);
+        }
+    }
+
+    /**
+     * En linux el trabajo se ejecuta en su propia sesión (setsid), así al terminarlo se termina también
+     * cualquier proceso que haya iniciado (python, Rscript, java). El shell imprime su pid, que es el
+     * identificador del grupo de procesos, ejecuta el .sh con la salida en el temporal y deja su código
+     * de salida en <EXIT_STATUS_FILE>, con el que se termina un trabajo iniciado antes de un reinicio
+     * @param outTemporary
+     * @return
+     */
+    List<String> command(Path outTemporary) {
+        List<String> command = new ArrayList<>();
+        if (fileUtilities.isLinux()) {
+            command.add(SETSID);
+        }
+        command.addAll(Arrays.asList(SHELL, "-c", RUN_SCRIPT, SHELL, folderConf.getShFileName(),
+                outTemporary.getFileName().toString(), EXIT_STATUS_FILE));
+        return command;
+    }
+
+    private int execute(String jobId, File folder, LocalJob job, ProcessBuilder builder, Path errTemporary) throws IOException {
+        Process process;
+        synchronized (job) {
+            if (job.cancelled) {
+                return -1;
+            }
+            try {
+                process = builder.start();
+                job.processGroup = readProcessGroup(process);
+                if (job.processGroup != null) {
+                    writePidFile(jobId, job.processGroup, folder);
+                }
+            } catch (IOException ex) {
+                appendError(errTemporary, String.format(ERROR_EXECUTING_JOB, jobId, ex.getMessage()));
+                return -1;
+            }
+            job.process = process;
+        }
+        try {
+            if (process.waitFor(clusterConf.getLocalTimeoutSeconds(), TimeUnit.SECONDS)) {
+                return process.exitValue();
+            }
+            kill(job);
+            process.waitFor();
+            appendError(errTemporary, String.format(JOB_TIMED_OUT, jobId, clusterConf.getLocalTimeoutSeconds()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            kill(job);
+            job.cancelled = true;
+        }
+        return -1;
+    }
+
+    /**
+     * Primera línea de la salida del shell: su pid, que con setsid también identifica el grupo de procesos
+     * @param process
+     * @return null si el trabajo no se ejecuta en su propia sesión
+     * @throws IOException
+     */
+    private String readProcessGroup(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        String pid = reader.readLine();
+        return fileUtilities.isLinux() && pid != null && pid.trim().matches("\\d+") ? pid.trim() : null;
+    }
+
+    /**
+     * Termina el trabajo y todos los procesos de su grupo
+     * @param job
+     */
+    private void kill(LocalJob job) {
+        if (job.processGroup != null) {
+            signal(job.processGroup, "-KILL");
+        }
+        if (job.process != null) {
+            job.process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Envía una señal a todos los procesos del grupo
+     * @param processGroup
+     * @param signal por ejemplo -KILL, o -0 para solo validar que el grupo existe
+     * @return true si la señal fue entregada
+     */
+    private boolean signal(String processGroup, String signal) {
+        try {
+            Process kill = new ProcessBuilder(KILL, signal, "--", "-" + processGroup)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(NULL_DEVICE))
+                    .start();
+            return kill.waitFor(KILL_TIMEOUT_SECONDS, TimeUnit.SECONDS) && kill.exitValue() == 0;
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_KILLING_JOB, processGroup, ex.getMessage()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Deja la salida en el folder de la solicitud y elimina los temporales. Si el trabajo no terminó bien
+     * no se crea el .out: la salida estándar queda al inicio del .err, seguida de la salida de error,
+     * así el final del archivo sigue siendo el error
+     */
+    private void moveOutput(boolean succeeded, File folder) throws IOException {
+        Path out = new File(folder, folderConf.getLogOutputFile()).toPath();
+        Path err = new File(folder, folderConf.getErrOutputFile()).toPath();
+        Path outTemporary = new File(folder, folderConf.getLogOutputFile() + TEMPORARY_SUFFIX).toPath();
+        Path errTemporary = new File(folder, folderConf.getErrOutputFile() + TEMPORARY_SUFFIX).toPath();
+        Files.deleteIfExists(new File(folder, EXIT_STATUS_FILE).toPath());
+        if (succeeded) {
+            Files.move(outTemporary, out, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(errTemporary, err, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        if (Files.exists(outTemporary)) {
+            if (Files.exists(errTemporary)) {
+                try (OutputStream outputStream = Files.newOutputStream(outTemporary, StandardOpenOption.APPEND)) {
+                    Files.copy(errTemporary, outputStream);
+                }
+            }
+            Files.move(outTemporary, err, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(errTemporary);
+        } else if (Files.exists(errTemporary)) {
+            Files.move(errTemporary, err, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void appendError(Path errTemporary, String message) throws IOException {
+        LOGGER.info(message);
+        Files.write(errTemporary, (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Los trabajos terminados ya no se reportan, su salida está en los archivos del folder de la solicitud.
+     * Los trabajos iniciados antes de un reinicio se reportan mientras su grupo de procesos exista
+     */
+    @Override
+    public Map<String, JobStatus> poll(Collection<String> jobIds) {
+        Map<String, JobStatus> jobStatuses = new HashMap<>();
+        for (String jobId : jobIds) {
+            LocalJob job = jobs.get(jobId);
+            if (job != null) {
+                jobStatuses.put(jobId, new JobStatus(jobId, job.process == null ? QUEUED_STATE : RUNNING_STATE, null));
+            } else if (pollRecovered(jobId)) {
+                jobStatuses.put(jobId, new JobStatus(jobId, RUNNING_STATE, null));
+            }
+        }
+        return jobStatuses;
+    }
+
+    /**
+     * Valida un trabajo iniciado antes de un reinicio. Si ya terminó, o superó el tiempo máximo y se termina,
+     * su salida se deja en el folder de la solicitud según el código de salida que registró el trabajo
+     * @param jobId
+     * @return true si el trabajo sigue en ejecución
+     */
+    private synchronized boolean pollRecovered(String jobId) {
+        RecoveredJob recovered = readPidFile(jobId);
+        if (recovered == null) {
+            return false;
+        }
+        boolean running = isRunning(recovered);
+        boolean timedOut = running
+                && System.currentTimeMillis() - recovered.startedAt > TimeUnit.SECONDS.toMillis(clusterConf.getLocalTimeoutSeconds());
+        if (running && !timedOut) {
+            return true;
+        }
+        String error = null;
+        if (timedOut) {
+            signal(recovered.processGroup, "-KILL");
+            error = String.format(JOB_TIMED_OUT, jobId, clusterConf.getLocalTimeoutSeconds());
+        }
+        finishRecovered(jobId, recovered, error);
+        return false;
+    }
+
+    private void finishRecovered(String jobId, RecoveredJob recovered, String error) {
+        LOGGER.info(String.format(RECOVERED_JOB_FINISHED, jobId));
+        try {
+            Path exitStatus = new File(recovered.folder, EXIT_STATUS_FILE).toPath();
+            boolean succeeded = error == null && Files.exists(exitStatus)
+                    && "0".equals(new String(Files.readAllBytes(exitStatus), StandardCharsets.US_ASCII).trim());
+            if (error != null) {
+                appendError(new File(recovered.folder, folderConf.getErrOutputFile() + TEMPORARY_SUFFIX).toPath(), error);
+            }
+            moveOutput(succeeded, recovered.folder);
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_MOVING_OUTPUT, jobId), ex);
+        } finally {
+            deletePidFile(jobId);
+        }
+    }
+
+    @Override
+    public boolean cancel(String jobId) {
+        LocalJob job = jobs.get(jobId);
+        if (job == null) {
+            return cancelRecovered(jobId);
+        }
+        synchronized (job) {
+            job.cancelled = true;
+            if (job.process != null) {
+                kill(job);
+            }
+        }
+        if (executor.remove(job.task)) {
+            jobs.remove(jobId);
+        }
+        return true;
+    }
+
+    /**
+     * Cancela un trabajo iniciado antes de un reinicio terminando su grupo de procesos
+     * @param jobId
+     * @return false si el trabajo no existe o ya había terminado
+     */
+    private synchronized boolean cancelRecovered(String jobId) {
+        RecoveredJob recovered = readPidFile(jobId);
+        if (recovered == null) {
+            return false;
+        }
+        boolean running = isRunning(recovered);
+        if (running) {
+            signal(recovered.processGroup, "-KILL");
+        }
+        finishRecovered(jobId, recovered, null);
+        return running;
+    }
+
+    /**
+     * El líder del grupo es el shell que ejecuta el .sh y termina cuando este termina. Sigue siendo el mismo
+     * proceso si tiene el tiempo de inicio registrado, así un pid reutilizado no se confunde con el trabajo.
+     * Sin /proc solo se valida que el grupo de procesos exista
+     */
+    private boolean isRunning(RecoveredJob recovered) {
+        if (!Files.isDirectory(Paths.get(PROC_FOLDER)) || recovered.startTime.isEmpty()) {
+            return signal(recovered.processGroup, "-0");
+        }
+        return recovered.startTime.equals(startTime(recovered.processGroup));
+    }
+
+    /**
+     * Tiempo de inicio del proceso según /proc/<pid>/stat, en ticks desde el arranque del sistema
+     * @param pid
+     * @return null si el proceso no existe o ya terminó y espera ser recogido (zombie)
+     */
+    private String startTime(String pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get(PROC_FOLDER + pid + STAT_FILE)), StandardCharsets.US_ASCII);
+            // El nombre del proceso está entre paréntesis y puede contener espacios
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return fields.length > STAT_START_TIME && !ZOMBIE_STATE.equals(fields[0]) ? fields[STAT_START_TIME] : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Registra el grupo de procesos del trabajo, su tiempo de inicio y el folder de la solicitud
+     * @param jobId
+     * @param processGroup
+     * @param folder
+     */
+    void writePidFile(String jobId, String processGroup, File folder) {
+        String startTime = startTime(processGroup);
+        String content = String.join("\n", processGroup, startTime == null ? "" : startTime,
+                String.valueOf(System.currentTimeMillis()), folder.getAbsolutePath());
+        try {
+            Files.write(pidFolder.resolve(jobId + PID_SUFFIX), content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_WRITING_PID_FILE, jobId), ex);
+        }
+    }
+
+    private RecoveredJob readPidFile(String jobId) {
+        Path pidFile = pidFolder.resolve(jobId + PID_SUFFIX);
+        try {
+            List<String> lines = Files.readAllLines(pidFile, StandardCharsets.UTF_8);
+            if (lines.size() < 4) {
+                return null;
+            }
+            return new RecoveredJob(lines.get(0), lines.get(1), Long.parseLong(lines.get(2)), new File(lines.get(3)));
+        } catch (IOException | NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private void deletePidFile(String jobId) {
+        try {
+            Files.deleteIfExists(pidFolder.resolve(jobId + PID_SUFFIX));
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_DELETING_PID_FILE, jobId, ex.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        for (LocalJob job : jobs.values()) {
+            if (job.process != null) {
+                kill(job);
+            }
+        }
+    }
+
+    /**
+     * Trabajo enviado al pool local, el proceso es null mientras espera en la cola
+     */
+    private static class LocalJob {
+
+        private volatile Process process;
+        private volatile String processGroup;
+        private volatile boolean cancelled;
+        private volatile PrioritizedTask task;
+
+    }
+
+    /**
+     * Trabajo iniciado antes de un reinicio, registrado en su archivo .pid
+     */
+    private static class RecoveredJob {
+
+        private final String processGroup;
+        private final String startTime;
+        private final long startedAt;
+        private final File folder;
+
+        RecoveredJob(String processGroup, String startTime, long startedAt, File folder) {
+            this.processGroup = processGroup;
+            this.startTime = startTime;
+            this.startedAt = startedAt;
+            this.folder = folder;
+        }
+    }
+
+}
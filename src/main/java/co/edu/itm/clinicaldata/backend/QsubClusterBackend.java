@@ -0,0 +1,425 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.component.Commands;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.util.Constants;
+import co.edu.itm.clinicaldata.util.SchedulerOutputParser;
+import co.edu.itm.clinicaldata.util.Validations;
+
+/**
+ * Ejecuta las solicitudes en el cluster a través del planificador PBS/Torque/SGE:
+ * qsub para enviar, qstat para consultar y qdel para cancelar
+ */
+@Component
+public class QsubClusterBackend extends AbstractClusterBackend {
+
+    private static final String SYSTEM_NOT_VALID = "Sistema no válido para ejecución de archivos con comandos qsub";
+    private static final String ERROR_CREATING_FILE = "Ocurrió un error creando el archivo .sh en el directorio";
+    private static final String SCHEDULER_QUERY_FAILED = "No fue posible consultar el planificador, se valida por archivos de salida: %s";
+    private static final String CANCEL_FAILED = "El planificador no canceló el trabajo <%s>: %s";
+    private static final String BATCH_SPLIT = "Las solicitudes del lote tienen directivas del planificador distintas, se envían en <%d> arreglos de trabajos";
+    private static final String BATCH_FOLDER_DELETED = "Se eliminó el folder del arreglo de trabajos terminado <%s>";
+    private static final String BATCH_FOLDER = "batch";
+    private static final String BATCH_JOBS_FILE = "jobs";
+    private static final String JOB_SCRIPT_PREFIX = "job-";
+    private static final Pattern SCHEDULER_DIRECTIVE = Pattern.compile("#(PBS|\\$)\\s");
+
+    private static final Logger LOGGER = Logger.getLogger(QsubClusterBackend.class.getName());
+
+    @Autowired
+    Commands commands;
+
+    @Autowired
+    ClusterConf clusterConf;
+
+    @Autowired
+    MonitorConf monitorConf;
+
+    // Arreglos de trabajos enviados, por el folder donde quedan su script y la salida propia del planificador
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * Retoma el seguimiento de los folders de los arreglos enviados antes de un reinicio. Los folders sin
+     * el archivo de trabajos corresponden a arreglos que no se alcanzaron a enviar y se eliminan
+     */
+    @PostConstruct
+    void loadBatches() {
+        for (String batchPath : fileUtilities.listBasePaths(BATCH_FOLDER)) {
+            String jobs = fileUtilities.readFile(batchPath + BATCH_JOBS_FILE);
+            if (Validations.field(jobs)) {
+                fileUtilities.deleteBasePath(batchPath);
+            } else {
+                batches.put(batchPath, new Batch(Arrays.asList(jobs.split("\\n"))));
+            }
+        }
+    }
+
+    /**
+     * Encola a través del comando qsub en el servidor el archivo previamente creado, dentro de un script
+     * que escribe su salida en los archivos temporales mientras se ejecuta.
+     * Si el sistema operativo no es linux termina la ejecución sin acciones
+     */
+    @Override
+    public Output submit(ProcessingRequest processingRequest) {
+        if (!fileUtilities.isLinux()) {
+            return finished(ProcessState.FINISHED_WITHOUT_ACTIONS, SYSTEM_NOT_VALID);
+        }
+        String jobScript = createJobScript(processingRequest);
+        if (jobScript == null) {
+            return finished(ProcessState.FINISHED_WITHOUT_ACTIONS, ERROR_CREATING_FILE);
+        }
+        Output output;
+        Output executeOutput = commands.executeCommand(Constants.QSUB_COMMAND,
+                priorityArgument(Priority.fromLevel(processingRequest.getPriority()))
+                        + schedulerOutputArgument(processingRequest.getBasePath()) + jobScript);
+        if (!Validations.field(executeOutput.getError())) {
+            output = finished(ProcessState.FINISHED_WITH_ERRORS, executeOutput.getError());
+            LOGGER.info("Archivo enviado al cluster presenta errores");
+        } else {
+            output = finished(ProcessState.PROCESSING, executeOutput.getResult());
+            LOGGER.info("Archivo enviado al cluster ok");
+            processingRequest.setJobId(SchedulerOutputParser.jobId(executeOutput.getResult()));
+        }
+        return output;
+    }
+
+    /**
+     * Crea en el folder de la solicitud el script que se envía a qsub. Conserva las directivas del planificador
+     * del .sh (#PBS o #$: recursos, cola) y ejecuta el .sh con la salida en archivos temporales, que se
+     * renombran al terminar; así la salida se puede seguir mientras el trabajo está en ejecución y el monitor
+     * solo encuentra el archivo .out o .err cuando el trabajo finalizó
+     * @param processingRequest
+     * @return ruta del script, o null si no pudo ser creado
+     */
+    private String createJobScript(ProcessingRequest processingRequest) {
+        StringBuilder script = new StringBuilder("#!/bin/sh\n").append(schedulerDirectives(processingRequest));
+        script.append("cd ").append(shellQuote(processingRequest.getBasePath())).append(" || exit 1\n");
+        appendRunAndMoveOutput(script);
+
+        String scriptPath = processingRequest.getBasePath() + JOB_SCRIPT_PREFIX + folderConf.getShFileName();
+        try {
+            fileUtilities.createFile(script.toString().getBytes(StandardCharsets.UTF_8), scriptPath);
+        } catch (ValidateException e) {
+            LOGGER.info(ERROR_CREATING_FILE);
+            scriptPath = null;
+        }
+        return scriptPath;
+    }
+
+    /**
+     * Directivas del planificador (#PBS o #$: recursos, cola) del .sh de la solicitud
+     * @param processingRequest
+     * @return una directiva por línea, vacío si el .sh no tiene directivas
+     */
+    private String schedulerDirectives(ProcessingRequest processingRequest) {
+        StringBuilder directives = new StringBuilder();
+        String shFile = fileUtilities.readFile(shFilePath(processingRequest));
+        if (shFile != null) {
+            for (String line : shFile.split("\\r?\\n")) {
+                if (SCHEDULER_DIRECTIVE.matcher(line).lookingAt()) {
+                    directives.append(line).append("\n");
+                }
+            }
+        }
+        return directives.toString();
+    }
+
+    /**
+     * La salida propia del planificador (por ejemplo el aviso de tiempo máximo excedido) queda en <folder>
+     * con el nombre por defecto del planificador, sin reemplazar los archivos .out y .err
+     * @param folder folder de la solicitud, o del arreglo de trabajos
+     * @return
+     */
+    private String schedulerOutputArgument(String folder) {
+        return "-o " + folder + " -e " + folder + Constants.SPACE;
+    }
+
+    /**
+     * Crea el script que ejecuta, según el índice del arreglo, el archivo .sh de cada solicitud en su folder
+     * y lo encola con una sola invocación de qsub. Cada solicitud queda con el identificador de su elemento
+     * dentro del arreglo de trabajos. El arreglo tiene un solo conjunto de recursos, las solicitudes cuyos .sh
+     * tienen directivas del planificador distintas se envían en un arreglo por cada conjunto de directivas
+     */
+    @Override
+    public List<Output> submitBatch(List<ProcessingRequest> listProcessingRequest) {
+        Output[] outputs = new Output[listProcessingRequest.size()];
+        if (!fileUtilities.isLinux()) {
+            Arrays.fill(outputs, finished(ProcessState.FINISHED_WITHOUT_ACTIONS, SYSTEM_NOT_VALID));
+            return Arrays.asList(outputs);
+        }
+        Map<String, List<Integer>> indexesByDirectives = new LinkedHashMap<>();
+        for (int i = 0; i < listProcessingRequest.size(); i++) {
+            indexesByDirectives.computeIfAbsent(schedulerDirectives(listProcessingRequest.get(i)), directives -> new ArrayList<>()).add(i);
+        }
+        if (indexesByDirectives.size() > 1) {
+            LOGGER.info(String.format(BATCH_SPLIT, indexesByDirectives.size()));
+        }
+        for (Map.Entry<String, List<Integer>> entry : indexesByDirectives.entrySet()) {
+            List<ProcessingRequest> array = new ArrayList<>();
+            for (Integer index : entry.getValue()) {
+                array.add(listProcessingRequest.get(index));
+            }
+            Output output = submitArray(array, entry.getKey());
+            for (Integer index : entry.getValue()) {
+                outputs[index] = output;
+            }
+        }
+        return Arrays.asList(outputs);
+    }
+
+    /**
+     * Envía las solicitudes como un arreglo de trabajos. El script y la salida propia del planificador quedan
+     * en un folder del arreglo, que se elimina cuando ninguna de sus solicitudes sigue en seguimiento
+     * @param listProcessingRequest
+     * @param directives directivas del planificador comunes a las solicitudes
+     * @return salida del envío, común a todas las solicitudes
+     */
+    private Output submitArray(List<ProcessingRequest> listProcessingRequest, String directives) {
+        String batchPath = fileUtilities.buildBasePath(BATCH_FOLDER, UUID.randomUUID().toString());
+        String arrayScript = createArrayScript(listProcessingRequest, directives, batchPath);
+        if (arrayScript == null) {
+            fileUtilities.deleteBasePath(batchPath);
+            return finished(ProcessState.FINISHED_WITHOUT_ACTIONS, ERROR_CREATING_FILE);
+        }
+        Output executeOutput = commands.executeCommand(Constants.QSUB_COMMAND,
+                clusterConf.getArrayFlag() + Constants.SPACE + "1-" + listProcessingRequest.size() + Constants.SPACE
+                        + priorityArgument(highestPriority(listProcessingRequest))
+                        + schedulerOutputArgument(batchPath) + arrayScript);
+        if (!Validations.field(executeOutput.getError())) {
+            LOGGER.info("Arreglo de trabajos enviado al cluster presenta errores");
+            fileUtilities.deleteBasePath(batchPath);
+            return finished(ProcessState.FINISHED_WITH_ERRORS, executeOutput.getError());
+        }
+        LOGGER.info("Arreglo de trabajos enviado al cluster ok");
+        String arrayJobId = SchedulerOutputParser.jobId(executeOutput.getResult());
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < listProcessingRequest.size(); i++) {
+            String jobId = arrayElementJobId(arrayJobId, i + 1);
+            listProcessingRequest.get(i).setJobId(jobId);
+            if (jobId != null) {
+                jobIds.add(jobId);
+            }
+        }
+        trackBatch(batchPath, jobIds);
+        return finished(ProcessState.PROCESSING, executeOutput.getResult());
+    }
+
+    /**
+     * Registra los trabajos del arreglo, también en su folder para retomar el seguimiento luego de un reinicio.
+     * Sin identificadores de trabajo el folder no se sigue y se elimina al reiniciar
+     * @param batchPath
+     * @param jobIds
+     */
+    private void trackBatch(String batchPath, List<String> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        try {
+            fileUtilities.createFile(String.join("\n", jobIds).getBytes(StandardCharsets.UTF_8), batchPath + BATCH_JOBS_FILE);
+        } catch (ValidateException e) {
+            LOGGER.info(ERROR_CREATING_FILE);
+        }
+        batches.put(batchPath, new Batch(jobIds));
+    }
+
+    /**
+     * Elimina el folder de los arreglos de trabajos que no tienen solicitudes en seguimiento. El folder se
+     * conserva durante el periodo de gracia del monitor: el planificador copia sus archivos de salida luego de
+     * terminar cada elemento, y las solicitudes recién enviadas entran a la cola luego de guardar su trabajo
+     */
+    @Override
+    public void retainJobs(Collection<String> jobIds) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            Batch batch = entry.getValue();
+            if (!Collections.disjoint(batch.jobIds, jobIds)) {
+                batch.finishedSince = 0;
+            } else if (batch.finishedSince == 0) {
+                batch.finishedSince = now;
+            } else if (now - batch.finishedSince >= monitorConf.getLostGracePeriod()
+                    && fileUtilities.deleteBasePath(entry.getKey())) {
+                batches.remove(entry.getKey());
+                LOGGER.info(String.format(BATCH_FOLDER_DELETED, entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Argumento de prioridad para qsub (por ejemplo "-p 100 "), vacío si no hay bandera configurada
+     * @param priority
+     * @return
+     */
+    private String priorityArgument(Priority priority) {
+        if (Validations.field(clusterConf.getPriorityFlag())) {
+            return "";
+        }
+        return clusterConf.getPriorityFlag() + Constants.SPACE + priority.getSchedulerPriority() + Constants.SPACE;
+    }
+
+    /**
+     * El arreglo de trabajos tiene una sola prioridad en el planificador, se usa la mayor de sus solicitudes
+     */
+    private Priority highestPriority(List<ProcessingRequest> listProcessingRequest) {
+        Priority highest = Priority.BULK;
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            highest = highest.higher(Priority.fromLevel(processingRequest.getPriority()));
+        }
+        return highest;
+    }
+
+    /**
+     * Identificador de un elemento del arreglo: 1234[].servidor -> 1234[7].servidor (PBS), 1234 -> 1234.7 (SGE)
+     * @param arrayJobId
+     * @param index
+     * @return
+     */
+    private String arrayElementJobId(String arrayJobId, int index) {
+        if (arrayJobId == null) {
+            return null;
+        }
+        if (arrayJobId.contains("[]")) {
+            return arrayJobId.replace("[]", "[" + index + "]");
+        }
+        return arrayJobId + "." + index;
+    }
+
+    /**
+     * Crea el script del arreglo de trabajos. Cada elemento ejecuta el .sh de su solicitud dentro de su folder,
+     * la salida se escribe en archivos temporales que se renombran al terminar para que el monitor
+     * solo encuentre el archivo .out o .err cuando el elemento finalizó
+     * @param listProcessingRequest
+     * @param directives directivas del planificador comunes a las solicitudes
+     * @param batchPath folder del arreglo de trabajos
+     * @return ruta del script, o null si no pudo ser creado
+     */
+    private String createArrayScript(List<ProcessingRequest> listProcessingRequest, String directives, String batchPath) {
+        StringBuilder script = new StringBuilder("#!/bin/sh\n").append(directives);
+        script.append("case \"$").append(clusterConf.getArrayIndexVariable()).append("\" in\n");
+        for (int i = 0; i < listProcessingRequest.size(); i++) {
+            script.append(i + 1).append(") cd ").append(shellQuote(listProcessingRequest.get(i).getBasePath())).append(" || exit 1 ;;\n");
+        }
+        script.append("*) exit 1 ;;\nesac\n");
+        appendRunAndMoveOutput(script);
+
+        String scriptPath = batchPath + folderConf.getShFileName();
+        try {
+            fileUtilities.createFile(script.toString().getBytes(StandardCharsets.UTF_8), scriptPath);
+        } catch (ValidateException e) {
+            LOGGER.info(ERROR_CREATING_FILE);
+            scriptPath = null;
+        }
+        return scriptPath;
+    }
+
+    /**
+     * Ejecuta el .sh del folder actual con la salida en los temporales y al terminar los renombra.
+     * Si el .sh termina con error no se crea el .out: la salida estándar queda al inicio del .err,
+     * seguida de la salida de error, y no quedan temporales en el folder
+     * @param script
+     */
+    private void appendRunAndMoveOutput(StringBuilder script) {
+        String out = folderConf.getLogOutputFile();
+        String err = folderConf.getErrOutputFile();
+        String outTemporary = out + TEMPORARY_SUFFIX;
+        String errTemporary = err + TEMPORARY_SUFFIX;
+        script.append("sh ").append(folderConf.getShFileName()).append(" > ").append(outTemporary)
+                .append(" 2> ").append(errTemporary).append("\n");
+        script.append("if [ $? -eq 0 ]; then mv ").append(outTemporary).append(Constants.SPACE).append(out)
+                .append("; mv ").append(errTemporary).append(Constants.SPACE).append(err)
+                .append("; else cat ").append(errTemporary).append(" >> ").append(outTemporary)
+                .append("; mv ").append(outTemporary).append(Constants.SPACE).append(err)
+                .append("; rm -f ").append(errTemporary).append("; fi\n");
+    }
+
+    private String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Consulta al planificador, con una sola invocación, el estado de todos los trabajos
+     */
+    @Override
+    public Map<String, JobStatus> poll(Collection<String> jobIds) {
+        if (!monitorConf.isSchedulerQuery() || jobIds.isEmpty() || !fileUtilities.isLinux()) {
+            return null;
+        }
+        Output output = commands.executeCommand(monitorConf.getStatusCommand(), String.join(Constants.SPACE, jobIds));
+        if (output.getResult() == null) {
+            return null;
+        }
+        Map<String, JobStatus> jobStatuses = SchedulerOutputParser.jobStatuses(output.getResult());
+        // Sin bloques "Job Id:" la respuesta solo es válida si el planificador indica que no conoce los trabajos;
+        // una salida en otro formato (por ejemplo XML de qstat -x en Torque) no se puede interpretar
+        if (jobStatuses.isEmpty() && (!output.getResult().trim().isEmpty()
+                || Validations.field(output.getError()) || !mentionsAny(output.getError(), jobIds))) {
+            LOGGER.info(String.format(SCHEDULER_QUERY_FAILED,
+                    Validations.field(output.getError()) ? output.getResult() : output.getError()));
+            return null;
+        }
+        return jobStatuses;
+    }
+
+    private boolean mentionsAny(String text, Collection<String> jobIds) {
+        for (String jobId : jobIds) {
+            if (text.contains(jobId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean cancel(String jobId) {
+        if (!fileUtilities.isLinux()) {
+            return false;
+        }
+        Output output = commands.executeCommand(clusterConf.getCancelCommand(), jobId);
+        boolean cancelled = output.getResult() != null && Validations.field(output.getError());
+        if (!cancelled) {
+            LOGGER.info(String.format(CANCEL_FAILED, jobId, output.getError()));
+        }
+        return cancelled;
+    }
+
+    /**
+     * Trabajos de un arreglo y fecha desde la cual ninguno está en seguimiento, 0 si alguno lo está
+     */
+    private static class Batch {
+
+        private final Set<String> jobIds;
+        private volatile long finishedSince;
+
+        Batch(Collection<String> jobIds) {
+            this.jobIds = new HashSet<>(jobIds);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.sql.Timestamp;
+
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+
+/**
+ * Copia inmutable del estado de una solicitud almacenada en la cache, con su fecha de expiración
+ */
+class CachedProcessStatus implements ProcessStatus {
+
+    private final String identifier;
+    private final String state;
+    private final Timestamp creationDate;
+    private final Timestamp lastUpdate;
+    private final long expiresAt;
+
+    CachedProcessStatus(ProcessStatus processStatus, long expiresAt) {
+        this.identifier = processStatus.getIdentifier();
+        this.state = processStatus.getState();
+        this.creationDate = copy(processStatus.getCreationDate());
+        this.lastUpdate = copy(processStatus.getLastUpdate());
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    @Override
+    public String getState() {
+        return state;
+    }
+
+    @Override
+    public Timestamp getCreationDate() {
+        return copy(creationDate);
+    }
+
+    @Override
+    public Timestamp getLastUpdate() {
+        return copy(lastUpdate);
+    }
+
+    boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    private static Timestamp copy(Timestamp timestamp) {
+        return timestamp == null ? null : new Timestamp(timestamp.getTime());
+    }
+
+}
@@ -0,0 +1,223 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.configuration.CompileCacheConf;
+import co.edu.itm.clinicaldata.util.DigestUtilities;
+
+/**
+ * Cache de compilación de archivos .java direccionado por contenido. La llave es el SHA-256
+ * del nombre de la clase, del checksum del código fuente y de los recursos usados en el classpath; el valor
+ * son los .class generados. Un acierto enlaza (o copia) los .class al folder de la solicitud
+ * sin volver a compilar. Las entradas menos usadas se eliminan cuando el tamaño total en disco
+ * supera el máximo configurado.
+ */
+@Component
+public class CompileCache implements PublicMetrics {
+
+    private static final String CLASS_EXTENSION_GLOB = "*.class";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String ERROR_RESTORING = "No fue posible recuperar de la cache de compilación la entrada <%s>";
+    private static final String ERROR_STORING = "No fue posible almacenar en la cache de compilación la entrada <%s>";
+
+    private static final Logger LOGGER = Logger.getLogger(CompileCache.class.getName());
+
+    @Autowired
+    CompileCacheConf compileCacheConf;
+
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long totalSize;
+
+    /**
+     * Carga el índice de la cache a partir de las entradas existentes en disco,
+     * de la menos a la más recientemente usada
+     */
+    @PostConstruct
+    public void load() {
+        File[] folders = cacheFolder().toFile().listFiles(File::isDirectory);
+        if (folders != null) {
+            List<File> sorted = new ArrayList<>();
+            for (File folder : folders) {
+                sorted.add(folder);
+            }
+            sorted.sort(Comparator.comparingLong(File::lastModified));
+            synchronized (entries) {
+                for (File folder : sorted) {
+                    if (folder.getName().contains(TEMPORARY_SUFFIX)) {
+                        deleteQuietly(folder.toPath());
+                    } else {
+                        long size = FileUtils.sizeOfDirectory(folder);
+                        entries.put(folder.getName(), size);
+                        totalSize += size;
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return compileCacheConf.isEnabled();
+    }
+
+    /**
+     * Calcula la llave de la cache para una compilación
+     * @param className
+     * @param sourceChecksum SHA-256 del código fuente
+     * @param classpath
+     * @return
+     */
+    public String key(String className, String sourceChecksum, List<String> classpath) {
+        MessageDigest digest = DigestUtilities.sha256();
+        digest.update(className.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(sourceChecksum.getBytes(StandardCharsets.UTF_8));
+        for (String path : classpath) {
+            File resource = new File(path);
+            digest.update((byte) 0);
+            digest.update(String.format("%s|%d|%d", path, resource.length(), resource.lastModified())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return DigestUtilities.toHex(digest.digest());
+    }
+
+    /**
+     * Recupera los .class de una compilación previa al folder destino
+     * @param key
+     * @param outputFolder
+     * @return true si la entrada existía y fue recuperada
+     */
+    public boolean restore(String key, String outputFolder) {
+        boolean restored = false;
+        Path entry = cacheFolder().resolve(key);
+        synchronized (entries) {
+            restored = entries.get(key) != null && Files.isDirectory(entry);
+        }
+        if (restored) {
+            try {
+                linkClasses(entry, Paths.get(outputFolder));
+                entry.toFile().setLastModified(System.currentTimeMillis());
+            } catch (IOException ex) {
+                LOGGER.error(String.format(ERROR_RESTORING, key), ex);
+                restored = false;
+            }
+        }
+        (restored ? hits : misses).incrementAndGet();
+        return restored;
+    }
+
+    /**
+     * Almacena los .class generados en el folder de una compilación exitosa
+     * @param key
+     * @param outputFolder
+     */
+    public void store(String key, String outputFolder) {
+        Path entry = cacheFolder().resolve(key);
+        Path temporary = cacheFolder().resolve(key + TEMPORARY_SUFFIX + Thread.currentThread().getId());
+        try {
+            Files.createDirectories(temporary);
+            copyClasses(Paths.get(outputFolder), temporary);
+            Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ex) {
+            deleteQuietly(temporary);
+            return;
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_STORING, key), ex);
+            deleteQuietly(temporary);
+            return;
+        }
+        long size = FileUtils.sizeOfDirectory(entry.toFile());
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            totalSize += size - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > compileCacheConf.getMaxSize() && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalSize -= eldest.getValue();
+            evictions.incrementAndGet();
+            deleteQuietly(cacheFolder().resolve(eldest.getKey()));
+        }
+    }
+
+    private void linkClasses(Path source, Path target) throws IOException {
+        try (DirectoryStream<Path> classes = Files.newDirectoryStream(source, CLASS_EXTENSION_GLOB)) {
+            for (Path classFile : classes) {
+                Path link = target.resolve(classFile.getFileName());
+                Files.deleteIfExists(link);
+                try {
+                    Files.createLink(link, classFile);
+                } catch (IOException | UnsupportedOperationException ex) {
+                    Files.copy(classFile, link);
+                }
+            }
+        }
+    }
+
+    private void copyClasses(Path source, Path target) throws IOException {
+        try (DirectoryStream<Path> classes = Files.newDirectoryStream(source, CLASS_EXTENSION_GLOB)) {
+            for (Path classFile : classes) {
+                Files.copy(classFile, target.resolve(classFile.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private Path cacheFolder() {
+        return Paths.get(compileCacheConf.getFolder());
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileUtils.deleteDirectory(path.toFile());
+        } catch (IOException ex) {
+            LOGGER.debug(String.format("No fue posible eliminar <%s>", path), ex);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("counter.compileCache.hits", hits.get()));
+        metrics.add(new Metric<>("counter.compileCache.misses", misses.get()));
+        metrics.add(new Metric<>("counter.compileCache.evictions", evictions.get()));
+        synchronized (entries) {
+            metrics.add(new Metric<>("gauge.compileCache.entries", entries.size()));
+            metrics.add(new Metric<>("gauge.compileCache.size", totalSize));
+        }
+        return metrics;
+    }
+
+}
@@ -0,0 +1,167 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.configuration.OutputFollowConf;
+
+/**
+ * Canales abiertos de los archivos de salida que se están siguiendo, para no abrir el archivo
+ * en cada consulta de la salida incremental. Los backends renombran el temporal al finalizar
+ * el trabajo; el canal sigue leyendo el mismo archivo luego del renombrado.
+ * Es acotada (se cierran los canales menos usados) y cada canal se cierra luego de estar
+ * inactivo el tiempo configurado.
+ */
+@Component
+public class OutputChannelCache implements PublicMetrics {
+
+    private static final String ERROR_CLOSING_CHANNEL = "No fue posible cerrar el canal de la salida <%s>";
+
+    private static final Logger LOGGER = Logger.getLogger(OutputChannelCache.class.getName());
+
+    @Autowired
+    OutputFollowConf outputFollowConf;
+
+    private final LinkedHashMap<String, CachedChannel> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * Retorna el canal abierto para la salida <key>, si no hay uno se abre el archivo <path>
+     * @param key identificador de la solicitud y salida
+     * @param path
+     * @return null si no hay canal abierto y el archivo no existe
+     * @throws IOException
+     */
+    public FileChannel channel(String key, Path path) throws IOException {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedChannel cached = entries.get(key);
+            if (cached != null && cached.channel.isOpen()) {
+                cached.lastAccess = now;
+                reused.incrementAndGet();
+                return cached.channel;
+            }
+        }
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        synchronized (entries) {
+            CachedChannel cached = entries.get(key);
+            if (cached != null && cached.channel.isOpen()) {
+                // Otra consulta abrió el canal al mismo tiempo
+                close(key, channel);
+                cached.lastAccess = now;
+                return cached.channel;
+            }
+            entries.put(key, new CachedChannel(channel, now));
+            opened.incrementAndGet();
+            evict();
+        }
+        return channel;
+    }
+
+    /**
+     * Cierra el canal de la salida <key>, si está abierto
+     * @param key
+     */
+    public void release(String key) {
+        CachedChannel cached;
+        synchronized (entries) {
+            cached = entries.remove(key);
+        }
+        if (cached != null) {
+            close(key, cached.channel);
+        }
+    }
+
+    /**
+     * Cierra los canales que no se han leído en el tiempo de inactividad configurado
+     */
+    @Scheduled(fixedDelayString = "${outputFollow.idleTimeout:60000}")
+    public void closeIdle() {
+        long limit = System.currentTimeMillis() - outputFollowConf.getIdleTimeout();
+        Map<String, CachedChannel> idle = new LinkedHashMap<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, CachedChannel>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, CachedChannel> entry = iterator.next();
+                if (entry.getValue().lastAccess < limit || !entry.getValue().channel.isOpen()) {
+                    idle.put(entry.getKey(), entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        idle.forEach((key, cached) -> close(key, cached.channel));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        List<Map.Entry<String, CachedChannel>> all;
+        synchronized (entries) {
+            all = new ArrayList<>(entries.entrySet());
+            entries.clear();
+        }
+        all.forEach(entry -> close(entry.getKey(), entry.getValue().channel));
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CachedChannel>> iterator = entries.entrySet().iterator();
+        while (entries.size() > Math.max(1, outputFollowConf.getMaxOpenChannels()) && iterator.hasNext()) {
+            Map.Entry<String, CachedChannel> entry = iterator.next();
+            iterator.remove();
+            close(entry.getKey(), entry.getValue().channel);
+        }
+    }
+
+    private void close(String key, FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_CLOSING_CHANNEL, key));
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("counter.outputChannels.opened", opened.get()));
+        metrics.add(new Metric<>("counter.outputChannels.reused", reused.get()));
+        synchronized (entries) {
+            metrics.add(new Metric<>("gauge.outputChannels.open", entries.size()));
+        }
+        return metrics;
+    }
+
+    private static class CachedChannel {
+
+        private final FileChannel channel;
+        private long lastAccess;
+
+        CachedChannel(FileChannel channel, long lastAccess) {
+            this.channel = channel;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+}
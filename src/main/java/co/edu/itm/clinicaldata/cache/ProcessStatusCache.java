@@ -0,0 +1,139 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import co.edu.itm.clinicaldata.configuration.StatusCacheConf;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+
+/**
+ * Cache en memoria del estado de las solicitudes para responder las consultas de estado
+ * sin ir a la base de datos. Es acotada (se eliminan las entradas menos usadas) y cada
+ * entrada expira luego del TTL configurado. Toda escritura de una solicitud debe invalidar
+ * su entrada; una consulta que leyó de la base de datos antes de una invalidación no
+ * vuelve a poblar la cache con el valor anterior.
+ */
+@Component
+public class ProcessStatusCache implements PublicMetrics {
+
+    @Autowired
+    StatusCacheConf statusCacheConf;
+
+    private final LinkedHashMap<String, CachedProcessStatus> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Retorna el estado almacenado para la solicitud, o null si no existe o ya expiró
+     * @param identifier
+     * @return
+     */
+    public ProcessStatus get(String identifier) {
+        if (!statusCacheConf.isEnabled()) {
+            return null;
+        }
+        CachedProcessStatus cached;
+        synchronized (entries) {
+            cached = entries.get(identifier);
+            if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+                entries.remove(identifier);
+                cached = null;
+            }
+        }
+        (cached == null ? misses : hits).incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Marca el inicio de una lectura en la base de datos, el valor retornado se debe
+     * entregar a {@link #put(ProcessStatus, long)} con el resultado de esa lectura
+     * @return
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Almacena el estado leído de la base de datos, siempre que no haya ocurrido
+     * ninguna invalidación desde que se tomó el <stamp>
+     * @param processStatus
+     * @param stamp
+     */
+    public void put(ProcessStatus processStatus, long stamp) {
+        if (!statusCacheConf.isEnabled()) {
+            return;
+        }
+        CachedProcessStatus cached = new CachedProcessStatus(processStatus,
+                System.currentTimeMillis() + statusCacheConf.getTtl());
+        synchronized (entries) {
+            if (stamp == invalidations.get()) {
+                entries.put(processStatus.getIdentifier(), cached);
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Elimina la entrada de la solicitud. Si hay una transacción activa se elimina de nuevo
+     * luego del commit, para que una consulta concurrente no almacene el valor anterior y
+     * antes de notificar el cambio a los listeners registrados después de la invalidación
+     * @param identifier
+     */
+    public void invalidate(String identifier) {
+        remove(identifier);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    remove(identifier);
+                }
+            });
+        }
+    }
+
+    private void remove(String identifier) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(identifier);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CachedProcessStatus>> iterator = entries.entrySet().iterator();
+        while (entries.size() > statusCacheConf.getMaxEntries() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        long hitCount = hits.get();
+        long requests = hitCount + misses.get();
+        metrics.add(new Metric<>("counter.statusCache.hits", hitCount));
+        metrics.add(new Metric<>("counter.statusCache.misses", misses.get()));
+        metrics.add(new Metric<>("counter.statusCache.evictions", evictions.get()));
+        metrics.add(new Metric<>("gauge.statusCache.hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests));
+        synchronized (entries) {
+            metrics.add(new Metric<>("gauge.statusCache.entries", entries.size()));
+        }
+        return metrics;
+    }
+
+}
@@ -0,0 +1,314 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import co.edu.itm.clinicaldata.configuration.ReportCacheConf;
+import co.edu.itm.clinicaldata.dto.ProcessStateChange;
+
+/**
+ * Cache en disco de los reportes PDF ya generados. Cada alcance (una solicitud o todas las de un
+ * investigador) guarda un solo reporte junto con su versión, calculada a partir de la última
+ * actualización de las solicitudes incluidas; un reporte de otra versión no se entrega.
+ * Además, cada vez que se almacena una solicitud se eliminan los reportes de la solicitud y de
+ * su investigador. Los reportes menos usados se eliminan cuando el tamaño total en disco supera
+ * el máximo configurado.
+ */
+@Component
+public class ReportCache implements PublicMetrics {
+
+    private static final String REQUEST_SCOPE = "request-";
+    private static final String INVESTIGATOR_SCOPE = "investigator-";
+    private static final String VERSION_SEPARATOR = "_";
+    private static final String PDF_EXTENSION = ".pdf";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    static final int MAX_TRACKED_INVALIDATIONS = 10000;
+    private static final String ERROR_READING = "No fue posible leer de la cache de reportes la entrada <%s>";
+    private static final String ERROR_STORING = "No fue posible almacenar en la cache de reportes la entrada <%s>";
+
+    private static final Logger LOGGER = Logger.getLogger(ReportCache.class.getName());
+
+    @Autowired
+    ReportCacheConf reportCacheConf;
+
+    private final LinkedHashMap<String, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LinkedHashMap<String, Long> lastInvalidations = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() <= MAX_TRACKED_INVALIDATIONS) {
+                return false;
+            }
+            // Los alcances que dejan de registrarse se consideran invalidados en la última de sus invalidaciones
+            forgottenInvalidation = Math.max(forgottenInvalidation, eldest.getValue());
+            return true;
+        }
+    };
+    private long forgottenInvalidation;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long totalSize;
+
+    /**
+     * Carga el índice de la cache a partir de los reportes existentes en disco,
+     * del menos al más recientemente usado
+     */
+    @PostConstruct
+    public void load() {
+        File folder = cacheFolder().toFile();
+        folder.mkdirs();
+        File[] files = folder.listFiles(File::isFile);
+        if (files != null) {
+            List<File> sorted = new ArrayList<>();
+            for (File file : files) {
+                sorted.add(file);
+            }
+            sorted.sort(Comparator.comparingLong(File::lastModified));
+            synchronized (entries) {
+                for (File file : sorted) {
+                    String name = file.getName();
+                    int separator = name.lastIndexOf(VERSION_SEPARATOR);
+                    if (!name.endsWith(PDF_EXTENSION) || separator < 0) {
+                        deleteQuietly(file.toPath());
+                        continue;
+                    }
+                    String scope = name.substring(0, separator);
+                    String version = name.substring(separator + 1, name.length() - PDF_EXTENSION.length());
+                    CachedReport previous = entries.put(scope, new CachedReport(version, file.length()));
+                    totalSize += file.length();
+                    if (previous != null) {
+                        totalSize -= previous.size;
+                        deleteQuietly(reportFile(scope, previous.version));
+                    }
+                }
+            }
+        }
+    }
+
+    public static String requestScope(String identifier) {
+        return REQUEST_SCOPE + identifier;
+    }
+
+    public static String investigatorScope(Long investigatorId) {
+        return INVESTIGATOR_SCOPE + investigatorId;
+    }
+
+    /**
+     * Versión de un reporte
+     * @param lastUpdate última actualización (milisegundos) de las solicitudes del reporte
+     * @param count cantidad de solicitudes del reporte
+     * @return
+     */
+    public static String version(long lastUpdate, long count) {
+        return lastUpdate + "-" + count;
+    }
+
+    /**
+     * Abre el reporte almacenado para el alcance, si es de la versión indicada
+     * @param scope
+     * @param version
+     * @return contenido del reporte, o null si no existe o es de otra versión
+     */
+    public InputStream get(String scope, String version) {
+        if (!reportCacheConf.isEnabled()) {
+            return null;
+        }
+        InputStream content = null;
+        synchronized (entries) {
+            CachedReport cached = entries.get(scope);
+            if (cached != null && cached.version.equals(version)) {
+                // Se abre dentro del bloqueo, así la eliminación de la entrada no afecta la lectura en curso
+                try {
+                    content = new FileInputStream(reportFile(scope, version).toFile());
+                } catch (IOException ex) {
+                    LOGGER.error(String.format(ERROR_READING, scope), ex);
+                    remove(scope);
+                }
+            } else if (cached != null) {
+                remove(scope);
+            }
+        }
+        (content == null ? misses : hits).incrementAndGet();
+        return content;
+    }
+
+    /**
+     * Marca el inicio de la lectura de las solicitudes de un reporte, el valor retornado se debe
+     * entregar a {@link #put(String, String, Path, long)} con el reporte generado. Solo las
+     * invalidaciones posteriores del mismo alcance impiden almacenar el reporte
+     * @return
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Archivo temporal donde se escribe un reporte mientras se genera
+     * @param scope
+     * @return null si la cache está deshabilitada
+     */
+    public Path temporaryFile(String scope) {
+        if (!reportCacheConf.isEnabled()) {
+            return null;
+        }
+        return cacheFolder().resolve(scope + TEMPORARY_SUFFIX + Thread.currentThread().getId());
+    }
+
+    /**
+     * Almacena el reporte generado en el archivo temporal, siempre que no se haya invalidado el
+     * alcance desde que se tomó el <stamp>; en ese caso el reporte pudo generarse con datos anteriores.
+     * Si no se almacena el temporal se elimina
+     * @param scope
+     * @param version
+     * @param temporary
+     * @param stamp
+     */
+    public void put(String scope, String version, Path temporary, long stamp) {
+        try {
+            long size = Files.size(temporary);
+            synchronized (entries) {
+                if (lastInvalidation(scope) > stamp || size > reportCacheConf.getMaxSize()) {
+                    deleteQuietly(temporary);
+                    return;
+                }
+                Files.move(temporary, reportFile(scope, version), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                CachedReport previous = entries.put(scope, new CachedReport(version, size));
+                totalSize += size;
+                if (previous != null) {
+                    totalSize -= previous.size;
+                    if (!previous.version.equals(version)) {
+                        deleteQuietly(reportFile(scope, previous.version));
+                    }
+                }
+                evict();
+            }
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_STORING, scope), ex);
+            deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Elimina el archivo temporal de un reporte que no se generó completo
+     * @param temporary
+     */
+    public void discard(Path temporary) {
+        deleteQuietly(temporary);
+    }
+
+    /**
+     * Elimina el reporte almacenado para el alcance
+     * @param scope
+     */
+    public void invalidate(String scope) {
+        synchronized (entries) {
+            lastInvalidations.remove(scope);
+            lastInvalidations.put(scope, invalidations.incrementAndGet());
+            remove(scope);
+        }
+    }
+
+    private long lastInvalidation(String scope) {
+        Long lastInvalidation = lastInvalidations.get(scope);
+        return lastInvalidation == null ? forgottenInvalidation : lastInvalidation;
+    }
+
+    /**
+     * Elimina los reportes de la solicitud almacenada y de su investigador, luego del commit
+     * @param change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProcessStateChange(ProcessStateChange change) {
+        invalidate(requestScope(change.getIdentifier()));
+        if (change.getInvestigatorId() != null) {
+            invalidate(investigatorScope(change.getInvestigatorId()));
+        }
+    }
+
+    private void remove(String scope) {
+        CachedReport cached = entries.remove(scope);
+        if (cached != null) {
+            totalSize -= cached.size;
+            deleteQuietly(reportFile(scope, cached.version));
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CachedReport>> iterator = entries.entrySet().iterator();
+        while (totalSize > reportCacheConf.getMaxSize() && iterator.hasNext()) {
+            Map.Entry<String, CachedReport> eldest = iterator.next();
+            iterator.remove();
+            totalSize -= eldest.getValue().size;
+            evictions.incrementAndGet();
+            deleteQuietly(reportFile(eldest.getKey(), eldest.getValue().version));
+        }
+    }
+
+    private Path reportFile(String scope, String version) {
+        return cacheFolder().resolve(scope + VERSION_SEPARATOR + version + PDF_EXTENSION);
+    }
+
+    private Path cacheFolder() {
+        return Paths.get(reportCacheConf.getFolder());
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOGGER.debug(String.format("No fue posible eliminar <%s>", path), ex);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("counter.reportCache.hits", hits.get()));
+        metrics.add(new Metric<>("counter.reportCache.misses", misses.get()));
+        metrics.add(new Metric<>("counter.reportCache.evictions", evictions.get()));
+        synchronized (entries) {
+            metrics.add(new Metric<>("gauge.reportCache.entries", entries.size()));
+            metrics.add(new Metric<>("gauge.reportCache.size", totalSize));
+        }
+        return metrics;
+    }
+
+    private static class CachedReport {
+
+        private final String version;
+        private final long size;
+
+        CachedReport(String version, long size) {
+            this.version = version;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Template de un lenguaje ya codificado y dividido en los segmentos que rodean la llave
+ * a reemplazar, de modo que generar el script solo requiere reservar el arreglo final
+ * y copiar los segmentos intercalados con el comando.
+ */
+public class ScriptTemplate {
+
+    private final byte[][] segments;
+    private final int segmentsLength;
+    private final long lastModified;
+
+    public ScriptTemplate(String content, String keyToReplace, long lastModified) {
+        List<byte[]> parts = new ArrayList<>();
+        int start = 0;
+        if (keyToReplace != null && !keyToReplace.isEmpty()) {
+            int index;
+            while ((index = content.indexOf(keyToReplace, start)) != -1) {
+                parts.add(content.substring(start, index).getBytes(StandardCharsets.UTF_8));
+                start = index + keyToReplace.length();
+            }
+        }
+        parts.add(content.substring(start).getBytes(StandardCharsets.UTF_8));
+        this.segments = parts.toArray(new byte[parts.size()][]);
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.segmentsLength = length;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Genera el contenido del script reemplazando cada aparición de la llave por el comando
+     * @param command
+     * @return
+     */
+    public byte[] render(String command) {
+        byte[] commandBytes = command.getBytes(StandardCharsets.UTF_8);
+        byte[] script = new byte[segmentsLength + commandBytes.length * (segments.length - 1)];
+        int position = 0;
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                System.arraycopy(commandBytes, 0, script, position, commandBytes.length);
+                position += commandBytes.length;
+            }
+            System.arraycopy(segments[i], 0, script, position, segments[i].length);
+            position += segments[i].length;
+        }
+        return script;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+}
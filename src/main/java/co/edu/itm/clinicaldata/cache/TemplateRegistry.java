@@ -0,0 +1,100 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.component.DirectoryWatcher;
+import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+
+/**
+ * Templates de los scripts qsub por lenguaje. Cada template se lee una sola vez y se conserva
+ * dividido alrededor de la llave a reemplazar; el folder de templates se observa con
+ * {@link DirectoryWatcher} para descartar la versión en memoria cuando un administrador lo edita.
+ * Si el folder no puede ser observado se valida la fecha de modificación del archivo en cada uso.
+ */
+@Component
+public class TemplateRegistry {
+
+    private static final String TEMPLATE_LOADED = "Template del lenguaje <%s> cargado desde <%s>";
+    private static final String TEMPLATE_CHANGED = "El template del lenguaje <%s> fue modificado, se cargará nuevamente";
+
+    private static final Logger LOGGER = Logger.getLogger(TemplateRegistry.class.getName());
+
+    @Autowired
+    FileUtilities fileUtilities;
+
+    @Autowired
+    FolderConf folderConf;
+
+    @Autowired
+    DirectoryWatcher directoryWatcher;
+
+    private final ConcurrentMap<String, ScriptTemplate> templates = new ConcurrentHashMap<>();
+    private final Set<String> watchedLanguages = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Retorna el template del lenguaje
+     * @param language
+     * @return null si el template no existe en el servidor
+     */
+    public ScriptTemplate get(String language) {
+        String templateFolder = fileUtilities.templateLanguageFolder(language);
+        File templateFile = new File(templateFolder + folderConf.getTemplateName());
+        boolean watched = watch(language, templateFolder);
+        ScriptTemplate template = templates.get(language);
+        if (template != null && (watched || template.getLastModified() == templateFile.lastModified())) {
+            return template;
+        }
+        template = load(language, templateFile);
+        if (template == null) {
+            templates.remove(language);
+        } else {
+            templates.put(language, template);
+        }
+        return template;
+    }
+
+    /**
+     * Registra el folder de templates del lenguaje en el observador, una sola vez
+     * @param language
+     * @param templateFolder
+     * @return true si los cambios del folder se notifican
+     */
+    private boolean watch(String language, String templateFolder) {
+        if (watchedLanguages.contains(language)) {
+            return true;
+        }
+        if (!new File(templateFolder).isDirectory()) {
+            return false;
+        }
+        synchronized (watchedLanguages) {
+            if (!watchedLanguages.contains(language) && directoryWatcher.register(templateFolder, file -> {
+                if (file.getFileName().toString().equals(folderConf.getTemplateName())
+                        && templates.remove(language) != null) {
+                    LOGGER.info(String.format(TEMPLATE_CHANGED, language));
+                }
+            })) {
+                watchedLanguages.add(language);
+            }
+            return watchedLanguages.contains(language);
+        }
+    }
+
+    private ScriptTemplate load(String language, File templateFile) {
+        if (!templateFile.isFile()) {
+            return null;
+        }
+        long lastModified = templateFile.lastModified();
+        String content = fileUtilities.readFile(templateFile.getPath());
+        LOGGER.info(String.format(TEMPLATE_LOADED, language, templateFile.getPath()));
+        return new ScriptTemplate(content, folderConf.getKeyToReplace(), lastModified);
+    }
+
+}
@@ -1,11 +1,26 @@
 package co.edu.itm.clinicaldata.component;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import co.edu.itm.clinicaldata.dto.Output;
@@ -14,9 +29,26 @@ import co.edu.itm.clinicaldata.dto.Output;
 public class Commands {
 
     private static final String ERROR_EXECUTING_COMMAND = "Ocurrió un error intentando ejecutar el comando <%s>";
-    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final String COMMAND_TIMED_OUT = "El comando <%s> superó el tiempo máximo de ejecución de <%d> segundos";
+    private static final String COMMAND_CANCELLED = "El comando <%s> fue cancelado";
+    private static final String OUTPUT_TRUNCATED = "%n[Salida truncada, se omitieron <%d> bytes]";
+    private static final int BUFFER_SIZE = 8192;
+
     private static final Logger LOGGER = Logger.getLogger(Commands.class.getName());
 
+    @Value("${commands.timeoutSeconds:600}")
+    long timeoutSeconds;
+
+    @Value("${commands.maxOutputBytes:1048576}")
+    int maxOutputBytes;
+
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(daemonThreadFactory("CommandsITM-"));
+    private final ScheduledThreadPoolExecutor timeoutExecutor = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("CommandsTimeoutITM-"));
+
+    public Commands() {
+        timeoutExecutor.setRemoveOnCancelPolicy(true);
+    }
+
     public Output executeCommand(String baseCommand, String pathFile){
         String command = baseCommand + pathFile;
         LOGGER.info(String.format("Command <%s>", command));
@@ -26,26 +58,122 @@ public class Commands {
     private Output executeCommand(String command) {
         Output output = new Output();
         try {
-            Process p = Runtime.getRuntime().exec(command);
-            p.waitFor();
-            output.setResult(readOutput(p.getInputStream()));
-            output.setError(readOutput(p.getErrorStream()));
-        } catch (Exception ex) {
+            output = executeCommandAsync(command, timeoutSeconds, TimeUnit.SECONDS).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             LOGGER.error(String.format(ERROR_EXECUTING_COMMAND, command), ex);
+        } catch (ExecutionException ex) {
+            LOGGER.error(String.format(ERROR_EXECUTING_COMMAND, command), ex.getCause());
+            if (ex.getCause() instanceof TimeoutException) {
+                output.setError(ex.getCause().getMessage());
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Ejecuta un comando sin bloquear el hilo que lo invoca. La salida estándar y la de error
+     * se leen al mismo tiempo para que el proceso nunca se detenga por tener lleno el buffer
+     * de alguna de ellas. Cancelar el futuro o superar el tiempo máximo termina el proceso.
+     * @param baseCommand
+     * @param pathFile
+     * @return
+     */
+    public CompletableFuture<Output> executeCommandAsync(String baseCommand, String pathFile) {
+        String command = baseCommand + pathFile;
+        LOGGER.info(String.format("Command <%s>", command));
+        return executeCommandAsync(command, timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    public CompletableFuture<Output> executeCommandAsync(String command, long timeout, TimeUnit unit) {
+        Process process;
+        try {
+            process = Runtime.getRuntime().exec(command);
+        } catch (IOException ex) {
+            CompletableFuture<Output> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
         }
+        closeInput(process);
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> drain(process.getInputStream()), streamExecutor);
+        CompletableFuture<String> error = CompletableFuture.supplyAsync(() -> drain(process.getErrorStream()), streamExecutor);
+        CompletableFuture<Output> output = result.thenCombine(error, (resultText, errorText) -> buildOutput(process, resultText, errorText));
+
+        ScheduledFuture<?> timer = timeoutExecutor.schedule(() -> output.completeExceptionally(new TimeoutException(
+                String.format(COMMAND_TIMED_OUT, command, unit.toSeconds(timeout)))), timeout, unit);
+        output.whenComplete((completed, ex) -> {
+            timer.cancel(false);
+            if (ex != null) {
+                if (ex instanceof CancellationException) {
+                    LOGGER.info(String.format(COMMAND_CANCELLED, command));
+                }
+                process.destroyForcibly();
+            }
+        });
+        return output;
+    }
+
+    private void closeInput(Process process) {
+        try {
+            process.getOutputStream().close();
+        } catch (IOException ex) {
+            LOGGER.debug("No fue posible cerrar la entrada estándar del proceso", ex);
+        }
+    }
+
+    private Output buildOutput(Process process, String resultText, String errorText) {
+        try {
+            process.waitFor();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(ex);
+        }
+        Output output = new Output();
+        output.setResult(resultText);
+        output.setError(errorText);
         return output;
     }
 
-    private String readOutput(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(
-                inputStream));
-        String line = "";
-        while ((line = reader.readLine()) != null) {
-            output.append(line);
-            output.append(LINE_SEPARATOR);
+    /**
+     * Lee completamente un flujo del proceso conservando como máximo <maxOutputBytes>,
+     * el resto se descarta para no retener en memoria salidas de tamaño arbitrario
+     * @param inputStream
+     * @return
+     */
+    private String drain(InputStream inputStream) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long discarded = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream stream = inputStream) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                int kept = Math.max(0, Math.min(read, maxOutputBytes - output.size()));
+                output.write(buffer, 0, kept);
+                discarded += read - kept;
+            }
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+        String text = new String(output.toByteArray(), Charset.defaultCharset());
+        if (discarded > 0) {
+            text += String.format(OUTPUT_TRUNCATED, discarded);
         }
-        return output.toString();
+        return text;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+        timeoutExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
-}
\ No newline at end of file
+}
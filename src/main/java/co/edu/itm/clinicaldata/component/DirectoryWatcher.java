@@ -0,0 +1,129 @@
+package co.edu.itm.clinicaldata.component;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Notifica la creación o modificación de archivos dentro de los directorios registrados
+ * usando los eventos del sistema de archivos (inotify en Linux).
+ * Si el sistema de archivos no soporta eventos el registro falla y quien lo use
+ * debe continuar validando por sondeo.
+ */
+@Component
+public class DirectoryWatcher {
+
+    private static final String ERROR_STARTING_WATCHER = "No fue posible iniciar el observador de directorios, se continuará validando por sondeo";
+    private static final String ERROR_STOPPING_WATCHER = "No fue posible cerrar el observador de directorios";
+    private static final String ERROR_REGISTERING_DIRECTORY = "No fue posible observar el directorio <%s>, se continuará validando por sondeo";
+    private static final String ERROR_NOTIFYING_LISTENER = "Ocurrió un error notificando el cambio del archivo <%s>";
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryWatcher.class.getName());
+
+    private final ConcurrentMap<Path, WatchKey> keys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WatchKey, Consumer<Path>> listeners = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    @PostConstruct
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::processEvents, "DirectoryWatcherITM");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException | UnsupportedOperationException ex) {
+            LOGGER.error(ERROR_STARTING_WATCHER, ex);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                LOGGER.error(ERROR_STOPPING_WATCHER, ex);
+            }
+        }
+    }
+
+    /**
+     * Registra un directorio, el listener recibe la ruta completa de cada archivo
+     * creado o modificado dentro de él
+     * @param directory
+     * @param listener
+     * @return false si el directorio no puede ser observado
+     */
+    public boolean register(String directory, Consumer<Path> listener) {
+        boolean registered = false;
+        if (watchService != null) {
+            Path path = Paths.get(directory);
+            try {
+                WatchKey key = path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                listeners.put(key, listener);
+                keys.put(path, key);
+                registered = true;
+            } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException ex) {
+                LOGGER.error(String.format(ERROR_REGISTERING_DIRECTORY, directory), ex);
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Deja de observar un directorio previamente registrado
+     * @param directory
+     */
+    public void unregister(String directory) {
+        WatchKey key = keys.remove(Paths.get(directory));
+        if (key != null) {
+            key.cancel();
+            listeners.remove(key);
+        }
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Consumer<Path> listener = listeners.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (listener != null && event.kind() != OVERFLOW) {
+                        notifyListener(listener, ((Path) key.watchable()).resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            LOGGER.info("Observador de directorios detenido");
+        }
+    }
+
+    private void notifyListener(Consumer<Path> listener, Path file) {
+        try {
+            listener.accept(file);
+        } catch (RuntimeException ex) {
+            LOGGER.error(String.format(ERROR_NOTIFYING_LISTENER, file), ex);
+        }
+    }
+}
@@ -2,13 +2,24 @@ package co.edu.itm.clinicaldata.component;
 
 import static co.edu.itm.clinicaldata.util.Constants.FILE_SEPARATOR;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +28,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import co.edu.itm.clinicaldata.configuration.FolderConf;
 import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.util.DigestUtilities;
 
 @Component
 public class FileUtilities {
@@ -24,8 +36,13 @@ public class FileUtilities {
     private static final String ERROR_OBTAINING_BYTES_FROM_FILE = "Ocurrió un error obteniendo el archivo a procesar";
     private static final String ERROR_READING_FILE = "El archivo de la ruta <%s> no pudo ser leído. ";
     private static final String ERROR_CREATING_FILE = "Ocurrió un error creando el archivo con la función a procesar";
+    private static final String ERROR_DELETING_FOLDER = "No fue posible eliminar el folder <%s>";
+    private static final String FILE_TOO_LARGE_TO_MAP = "El archivo de la ruta <%s> es demasiado grande para leerlo completo";
+    private static final long TRANSFER_CHUNK_SIZE = 1024L * 1024;
+    // Archivos más pequeños se leen a un buffer, mapearlos cuesta más que copiarlos
+    private static final long MAP_THRESHOLD = 1024L * 1024;
+    private static final String TRUNCATED_PREFIX = "[...]";
     private static final String USER_HOME = System.getProperty("user.home");
-    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
     private static final Logger LOGGER = Logger.getLogger(FileUtilities.class.getName());
 
@@ -41,6 +58,15 @@ public class FileUtilities {
         }
     }
 
+    public byte[] readBytes(String path) throws ValidateException {
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_READING_FILE, path), ex);
+            throw new ValidateException(String.format(ERROR_READING_FILE, path));
+        }
+    }
+
     public String buildBasePath(String languageFolder, String identifier){
         String basePath = baseLanguageFolder(languageFolder) + identifier + FILE_SEPARATOR;
         createBasePath(basePath);
@@ -63,18 +89,135 @@ public class FileUtilities {
         new File(basePath).mkdirs();
     }
 
+    /**
+     * Folders creados con {@link #buildBasePath(String, String)} dentro de <languageFolder>
+     * @param languageFolder
+     * @return ruta de cada folder terminada en separador, vacía si no hay ninguno
+     */
+    public List<String> listBasePaths(String languageFolder){
+        List<String> basePaths = new ArrayList<>();
+        File[] folders = new File(baseLanguageFolder(languageFolder)).listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders) {
+                basePaths.add(folder.getPath() + FILE_SEPARATOR);
+            }
+        }
+        return basePaths;
+    }
+
+    /**
+     * Elimina el folder con todo su contenido
+     * @param basePath
+     * @return false si el folder no pudo ser eliminado
+     */
+    public boolean deleteBasePath(String basePath){
+        try {
+            FileUtils.deleteDirectory(new File(basePath));
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_DELETING_FOLDER, basePath), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Lee el archivo como texto UTF-8, tal como está almacenado
+     * @param fileName
+     * @return contenido del archivo, vacío si no pudo ser leído
+     */
     public String readFile(String fileName){
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String sCurrentLine;
-            while ((sCurrentLine = br.readLine()) != null) {
-                sb.append(sCurrentLine);
-                sb.append(LINE_SEPARATOR);
+        try {
+            return decode(readBuffer(fileName));
+        } catch (ValidateException | CharacterCodingException ex) {
+            return "";
+        }
+    }
+
+    /**
+     * Contenido completo del archivo en un buffer de solo lectura, sin decodificarlo: los archivos
+     * grandes se mapean en memoria y los pequeños se leen a un buffer del tamaño del archivo
+     * @param path
+     * @return
+     * @throws ValidateException
+     */
+    public ByteBuffer readBuffer(String path) throws ValidateException {
+        try (FileChannel channel = openChannel(path)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                if (size > Integer.MAX_VALUE) {
+                    throw new ValidateException(String.format(FILE_TOO_LARGE_TO_MAP, path));
+                }
+                // El contenido no se copia al heap, el sistema operativo carga las páginas a medida que se leen
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
             }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_READING_FILE, path), ex);
+            throw new ValidateException(String.format(ERROR_READING_FILE, path));
+        }
+    }
+
+    /**
+     * Abre el archivo para lectura, quien lo abre debe cerrarlo. Permite leer por posición
+     * sin cargar el archivo en memoria
+     * @param path
+     * @return
+     * @throws ValidateException
+     */
+    public FileChannel openChannel(String path) throws ValidateException {
+        try {
+            return FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_READING_FILE, path), ex);
+            throw new ValidateException(String.format(ERROR_READING_FILE, path));
+        }
+    }
+
+    /**
+     * Lee solo los últimos bytes de un archivo, sin recorrerlo completo. Si el archivo es más grande
+     * el texto comienza con <[...]>, los caracteres cortados al inicio se reemplazan
+     * @param fileName
+     * @param maxBytes máximo de bytes a leer
+     * @return
+     */
+    public String readTail(String fileName, int maxBytes){
+        try (FileChannel channel = openChannel(fileName)) {
+            long size = channel.size();
+            boolean truncated = size > maxBytes;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, maxBytes));
+            long position = size - buffer.capacity();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            String tail = decode(buffer);
+            return truncated ? TRUNCATED_PREFIX + tail : tail;
+        } catch (ValidateException ex) {
+            return "";
         } catch (IOException ex) {
             LOGGER.error(String.format(ERROR_READING_FILE, fileName), ex);
+            return "";
         }
-        return sb.toString();
+    }
+
+    /**
+     * Decodifica el contenido como UTF-8, las secuencias inválidas se reemplazan
+     */
+    private String decode(ByteBuffer buffer) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(buffer).toString();
     }
 
     public String createFileName(String fileName, String extension){
@@ -94,14 +237,29 @@ public class FileUtilities {
         return isLinux;
     }
 
-    public byte[] getBytesFromFile(MultipartFile file) throws ValidateException {
-        byte[] bytes;
-        try {
-            bytes = file.getBytes();
-        } catch (IOException e) {
+    /**
+     * Escribe el archivo recibido directamente en disco a través de canales NIO, calculando
+     * su checksum SHA-256 mientras se copia, sin cargar el contenido completo en memoria
+     * @param file
+     * @param path
+     * @return checksum SHA-256 del contenido almacenado
+     * @throws ValidateException
+     */
+    public String storeFile(MultipartFile file, String path) throws ValidateException {
+        MessageDigest digest = DigestUtilities.sha256();
+        try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(file.getInputStream(), digest));
+                FileChannel target = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += transferred;
+            }
+        } catch (IOException ex) {
+            LOGGER.error(ERROR_CREATING_FILE, ex);
             throw new ValidateException(ERROR_OBTAINING_BYTES_FROM_FILE);
         }
-        return bytes;
+        return DigestUtilities.toHex(digest.digest());
     }
 
 }
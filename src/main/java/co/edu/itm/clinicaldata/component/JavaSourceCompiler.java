@@ -0,0 +1,201 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.dto.CompilationDiagnostic;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+
+/**
+ * Compila archivos .java dentro de la misma JVM usando javax.tools, evitando
+ * iniciar un proceso javac por cada solicitud. El código fuente se entrega en memoria
+ * y los .class se escriben en el folder de la solicitud. Los administradores de archivos se
+ * reutilizan entre compilaciones del mismo classpath para no volver a abrir los .jar en cada una;
+ * cada compilación usa un administrador propio, y solo se conservan sin uso los
+ * <MAX_IDLE_FILE_MANAGERS> usados más recientemente, los demás se cierran.
+ */
+@Component
+public class JavaSourceCompiler {
+
+    private static final String ERROR_COMPILING = "Ocurrió un error compilando la clase <%s>";
+    private static final String COMPILATION_FAILED = "La compilación de la clase <%s> falló sin diagnósticos";
+    private static final List<String> OPTIONS = Arrays.asList("-proc:none", "-encoding", StandardCharsets.UTF_8.name());
+    private static final int MAX_IDLE_FILE_MANAGERS = 8;
+
+    private static final Logger LOGGER = Logger.getLogger(JavaSourceCompiler.class.getName());
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final LinkedHashMap<List<String>, Deque<StandardJavaFileManager>> idleFileManagers = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+    private boolean closed;
+
+    /**
+     * Determina si la JVM actual incluye el compilador de Java (JDK y no JRE)
+     * @return
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * Compila una clase y retorna los errores encontrados, vacío si la compilación fue exitosa
+     * @param className
+     * @param source
+     * @param outputFolder
+     * @param classpath
+     * @return
+     * @throws ValidateException
+     */
+    public List<CompilationDiagnostic> compile(String className, byte[] source, String outputFolder, List<String> classpath) throws ValidateException {
+        StandardJavaFileManager fileManager = borrowFileManager(classpath);
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        boolean success;
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(new File(outputFolder)));
+            success = compiler.getTask(null, fileManager, collector, OPTIONS, null,
+                    Collections.singletonList(new SourceFile(className, source))).call();
+        } catch (IOException | RuntimeException ex) {
+            closeQuietly(fileManager);
+            LOGGER.error(String.format(ERROR_COMPILING, className), ex);
+            throw new ValidateException(String.format(ERROR_COMPILING, className), ex);
+        }
+        releaseFileManager(classpath, fileManager);
+        List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                diagnostics.add(new CompilationDiagnostic(diagnostic.getLineNumber(),
+                        diagnostic.getColumnNumber(), diagnostic.getMessage(Locale.getDefault())));
+            }
+        }
+        if (!success && diagnostics.isEmpty()) {
+            diagnostics.add(new CompilationDiagnostic(Diagnostic.NOPOS, Diagnostic.NOPOS, String.format(COMPILATION_FAILED, className)));
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Toma un administrador sin uso del classpath, o crea uno si todos están en uso
+     * @param classpath
+     * @return
+     * @throws ValidateException
+     */
+    private StandardJavaFileManager borrowFileManager(List<String> classpath) throws ValidateException {
+        synchronized (idleFileManagers) {
+            Deque<StandardJavaFileManager> idle = idleFileManagers.get(classpath);
+            if (idle != null) {
+                StandardJavaFileManager fileManager = idle.pop();
+                idleCount--;
+                if (idle.isEmpty()) {
+                    idleFileManagers.remove(classpath);
+                }
+                return fileManager;
+            }
+        }
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        List<File> files = new ArrayList<>();
+        for (String path : classpath) {
+            files.add(new File(path));
+        }
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, files);
+        } catch (IOException ex) {
+            closeQuietly(fileManager);
+            throw new ValidateException(String.format(ERROR_COMPILING, classpath), ex);
+        }
+        return fileManager;
+    }
+
+    /**
+     * Devuelve el administrador para reutilizarlo, cerrando los que excedan el máximo sin uso
+     * empezando por los del classpath usado hace más tiempo
+     * @param classpath
+     * @param fileManager
+     */
+    private void releaseFileManager(List<String> classpath, StandardJavaFileManager fileManager) {
+        List<StandardJavaFileManager> evicted = new ArrayList<>();
+        synchronized (idleFileManagers) {
+            if (closed) {
+                evicted.add(fileManager);
+            } else {
+                idleFileManagers.computeIfAbsent(new ArrayList<>(classpath), key -> new ArrayDeque<>()).push(fileManager);
+                idleCount++;
+                while (idleCount > MAX_IDLE_FILE_MANAGERS) {
+                    Map.Entry<List<String>, Deque<StandardJavaFileManager>> eldest = idleFileManagers.entrySet().iterator().next();
+                    evicted.add(eldest.getValue().removeLast());
+                    idleCount--;
+                    if (eldest.getValue().isEmpty()) {
+                        idleFileManagers.remove(eldest.getKey());
+                    }
+                }
+            }
+        }
+        for (StandardJavaFileManager evictedFileManager : evicted) {
+            closeQuietly(evictedFileManager);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (idleFileManagers) {
+            closed = true;
+            for (Deque<StandardJavaFileManager> idle : idleFileManagers.values()) {
+                for (StandardJavaFileManager fileManager : idle) {
+                    closeQuietly(fileManager);
+                }
+            }
+            idleFileManagers.clear();
+            idleCount = 0;
+        }
+    }
+
+    private void closeQuietly(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException ex) {
+            LOGGER.debug("No fue posible cerrar el administrador de archivos del compilador", ex);
+        }
+    }
+
+    /**
+     * Código fuente de la solicitud mantenido en memoria
+     */
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        private final byte[] source;
+
+        SourceFile(String className, byte[] source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return new String(source, StandardCharsets.UTF_8);
+        }
+    }
+
+}
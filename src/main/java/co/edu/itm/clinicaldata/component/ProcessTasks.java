@@ -1,34 +1,155 @@
 package co.edu.itm.clinicaldata.component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
 import co.edu.itm.clinicaldata.queue.ProcessQueue;
+import co.edu.itm.clinicaldata.queue.QueuedProcess;
 import co.edu.itm.clinicaldata.service.ClusterService;
+import co.edu.itm.clinicaldata.service.ProcessDataService;
+import co.edu.itm.clinicaldata.service.ProcessingRequestService;
 
 @Component
 public class ProcessTasks {
 
     private static final String PROCESS_FINISHED = "Ha terminado el procesamiento de la solicitud con identificador <%s>";
     private static final String PROCESS_STARTED = "Comienza el procesamiento para la solicitud con identificador <%s>";
+    private static final String PROCESS_QUEUE_RECOVERED = "Se recuperaron <%d> solicitudes en progreso a la cola de espera";
+    private static final String ERROR_QUERYING_SCHEDULER = "Ocurrió un error consultando el estado de los trabajos en el planificador";
+    private static final String ERROR_RELEASING_JOBS = "Ocurrió un error liberando los recursos de los trabajos terminados";
+    private static final String ERROR_VALIDATING_PROCESS = "Ocurrió un error validando el estado de la solicitud con identificador <%s>";
 
     private static final Logger LOGGER = Logger.getLogger(ProcessTasks.class.getName());
 
     @Autowired
     ClusterService clusterService;
 
-    @Scheduled(fixedDelay = 10000)
+    @Autowired
+    ProcessingRequestService processingRequestService;
+
+    @Autowired
+    ProcessDataService processDataService;
+
+    @Autowired
+    ProcessQueue processQueue;
+
+    @Autowired
+    MonitorConf monitorConf;
+
+    @Autowired
+    @Qualifier("monitorExecutor")
+    Executor monitorExecutor;
+
+    /**
+     * Valida en paralelo todas las solicitudes de la cola cuya próxima validación
+     * ya se cumplió, sin que una solicitud de larga duración bloquee a las demás.
+     * El estado de todos sus trabajos se consulta al planificador con una sola invocación.
+     * Al terminar, el backend libera los recursos de los trabajos que ya no están en la cola
+     */
+    @Scheduled(fixedDelayString = "${monitor.tickDelay:1000}")
     public void validateProcessQueue() {
-        if(!ProcessQueue.getInstance().isEmpty()){
-            String identifier = ProcessQueue.getInstance().get();
-            LOGGER.info(String.format(PROCESS_STARTED, identifier));
-            boolean hasEndProcess = clusterService.validateProcessState(identifier);
-            if(hasEndProcess){
-                ProcessQueue.getInstance().remove();
-                LOGGER.info(String.format(PROCESS_FINISHED, identifier));
+        List<QueuedProcess> due = processQueue.due(System.currentTimeMillis());
+        if (!due.isEmpty()) {
+            Map<String, JobStatus> jobStatuses = queryJobStatuses(due);
+            List<CompletableFuture<Void>> validations = new ArrayList<>();
+            for (QueuedProcess queuedProcess : due) {
+                validations.add(CompletableFuture.runAsync(() -> validateProcess(queuedProcess, jobStatuses), monitorExecutor));
+            }
+            CompletableFuture.allOf(validations.toArray(new CompletableFuture<?>[0])).join();
+        }
+        releaseFinishedJobs();
+    }
+
+    private void releaseFinishedJobs() {
+        try {
+            clusterService.releaseFinishedJobs();
+        } catch (Exception ex) {
+            LOGGER.error(ERROR_RELEASING_JOBS, ex);
+        }
+    }
+
+    private Map<String, JobStatus> queryJobStatuses(List<QueuedProcess> due) {
+        Set<String> jobIds = new LinkedHashSet<>();
+        for (QueuedProcess queuedProcess : due) {
+            if (queuedProcess.getJobId() != null) {
+                jobIds.add(queuedProcess.getJobId());
+            }
+        }
+        try {
+            return clusterService.queryJobStatuses(jobIds);
+        } catch (Exception ex) {
+            LOGGER.error(ERROR_QUERYING_SCHEDULER, ex);
+            return null;
+        }
+    }
+
+    private void validateProcess(QueuedProcess queuedProcess, Map<String, JobStatus> jobStatuses) {
+        String identifier = queuedProcess.getIdentifier();
+        LOGGER.info(String.format(PROCESS_STARTED, identifier));
+        boolean hasEndProcess = false;
+        try {
+            hasEndProcess = clusterService.validateProcessState(queuedProcess, jobStatuses);
+        } catch (Exception ex) {
+            LOGGER.error(String.format(ERROR_VALIDATING_PROCESS, identifier), ex);
+        }
+        if (hasEndProcess) {
+            processQueue.remove(identifier);
+            LOGGER.info(String.format(PROCESS_FINISHED, identifier));
+        } else {
+            processQueue.reschedule(identifier, System.currentTimeMillis() + nextCheckDelay(queuedProcess));
+        }
+    }
+
+    /**
+     * Calcula el tiempo de espera para la próxima validación, creciendo con
+     * el número de validaciones realizadas hasta el máximo configurado
+     * @param queuedProcess
+     * @return
+     */
+    private long nextCheckDelay(QueuedProcess queuedProcess) {
+        long delay = monitorConf.getCheckInterval() * (queuedProcess.getChecks() + 1);
+        return Math.min(delay, monitorConf.getMaxCheckInterval());
+    }
+
+    /**
+     * Envía al cluster las solicitudes que quedaron en espera por falta de capacidad
+     */
+    @Scheduled(fixedDelayString = "${submission.resumeDelay:5000}")
+    public void resumeWaitingProcesses() {
+        processDataService.resumeWaitingProcesses();
+    }
+
+    /**
+     * Reconstruye la cola de espera a partir de las solicitudes que quedaron
+     * en progreso antes de un reinicio de la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverProcessQueue() {
+        List<ProcessingRequest> listProcessingRequest = processingRequestService.findByState(ProcessState.PROCESSING);
+        int recovered = 0;
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            if (processQueue.add(processingRequest.getIdentifier(), processingRequest.getJobId())) {
+                clusterService.watchResponseFiles(processingRequest);
+                recovered++;
             }
         }
+        LOGGER.info(String.format(PROCESS_QUEUE_RECOVERED, recovered));
     }
-}
\ No newline at end of file
+}
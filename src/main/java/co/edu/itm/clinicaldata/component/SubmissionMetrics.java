@@ -0,0 +1,43 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import co.edu.itm.clinicaldata.queue.CountingRejectedExecutionHandler;
+
+/**
+ * Publica en /metrics el estado del executor de envío de solicitudes al cluster
+ */
+@Component
+public class SubmissionMetrics implements PublicMetrics {
+
+    @Autowired
+    @Qualifier("submissionExecutor")
+    ThreadPoolTaskExecutor submissionExecutor;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        ThreadPoolExecutor executor = submissionExecutor.getThreadPoolExecutor();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("gauge.submission.active", executor.getActiveCount()));
+        metrics.add(new Metric<>("gauge.submission.queued", executor.getQueue().size()));
+        metrics.add(new Metric<>("gauge.submission.poolSize", executor.getPoolSize()));
+        metrics.add(new Metric<>("counter.submission.completed", executor.getCompletedTaskCount()));
+        RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+        if (handler instanceof CountingRejectedExecutionHandler) {
+            metrics.add(new Metric<>("counter.submission.rejected", ((CountingRejectedExecutionHandler) handler).getRejectedCount()));
+        }
+        return metrics;
+    }
+
+}
@@ -0,0 +1,56 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionConf {
+
+    private boolean enabled = true;
+    private int maxRunningRequests = 10;
+    private int requestsPerMinute = 30;
+    private int burst = 10;
+    private int shareWeight = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxRunningRequests() {
+        return maxRunningRequests;
+    }
+
+    public void setMaxRunningRequests(int maxRunningRequests) {
+        this.maxRunningRequests = maxRunningRequests;
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public int getShareWeight() {
+        return shareWeight;
+    }
+
+    public void setShareWeight(int shareWeight) {
+        this.shareWeight = shareWeight;
+    }
+
+}
@@ -0,0 +1,94 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import co.edu.itm.clinicaldata.enums.ClusterBackendType;
+
+@Configuration
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterConf {
+
+    private ClusterBackendType backend = ClusterBackendType.QSUB;
+    private String arrayFlag = "-J";
+    private String arrayIndexVariable = "PBS_ARRAY_INDEX";
+    private int maxBatchSize = 500;
+    private String cancelCommand = "qdel ";
+    private String priorityFlag = "-p";
+    private int localPoolSize = 2;
+    private int localQueueCapacity = 50;
+    private long localTimeoutSeconds = 3600;
+
+    public ClusterBackendType getBackend() {
+        return backend;
+    }
+
+    public void setBackend(ClusterBackendType backend) {
+        this.backend = backend;
+    }
+
+    public String getArrayFlag() {
+        return arrayFlag;
+    }
+
+    public void setArrayFlag(String arrayFlag) {
+        this.arrayFlag = arrayFlag;
+    }
+
+    public String getArrayIndexVariable() {
+        return arrayIndexVariable;
+    }
+
+    public void setArrayIndexVariable(String arrayIndexVariable) {
+        this.arrayIndexVariable = arrayIndexVariable;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public String getCancelCommand() {
+        return cancelCommand;
+    }
+
+    public void setCancelCommand(String cancelCommand) {
+        this.cancelCommand = cancelCommand;
+    }
+
+    public int getLocalPoolSize() {
+        return localPoolSize;
+    }
+
+    public void setLocalPoolSize(int localPoolSize) {
+        this.localPoolSize = localPoolSize;
+    }
+
+    public int getLocalQueueCapacity() {
+        return localQueueCapacity;
+    }
+
+    public void setLocalQueueCapacity(int localQueueCapacity) {
+        this.localQueueCapacity = localQueueCapacity;
+    }
+
+    public long getLocalTimeoutSeconds() {
+        return localTimeoutSeconds;
+    }
+
+    public void setLocalTimeoutSeconds(long localTimeoutSeconds) {
+        this.localTimeoutSeconds = localTimeoutSeconds;
+    }
+
+    public String getPriorityFlag() {
+        return priorityFlag;
+    }
+
+    public void setPriorityFlag(String priorityFlag) {
+        this.priorityFlag = priorityFlag;
+    }
+
+}
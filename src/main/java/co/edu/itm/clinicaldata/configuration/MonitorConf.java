@@ -0,0 +1,74 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "monitor")
+public class MonitorConf {
+
+    private long checkInterval = 10000;
+    private long maxCheckInterval = 60000;
+    private int poolSize = 4;
+    private int queueCapacity = 100;
+    private boolean schedulerQuery = true;
+    private String statusCommand = "qstat -f ";
+    private long lostGracePeriod = 120000;
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public long getMaxCheckInterval() {
+        return maxCheckInterval;
+    }
+
+    public void setMaxCheckInterval(long maxCheckInterval) {
+        this.maxCheckInterval = maxCheckInterval;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isSchedulerQuery() {
+        return schedulerQuery;
+    }
+
+    public void setSchedulerQuery(boolean schedulerQuery) {
+        this.schedulerQuery = schedulerQuery;
+    }
+
+    public String getStatusCommand() {
+        return statusCommand;
+    }
+
+    public void setStatusCommand(String statusCommand) {
+        this.statusCommand = statusCommand;
+    }
+
+    public long getLostGracePeriod() {
+        return lostGracePeriod;
+    }
+
+    public void setLostGracePeriod(long lostGracePeriod) {
+        this.lostGracePeriod = lostGracePeriod;
+    }
+
+}
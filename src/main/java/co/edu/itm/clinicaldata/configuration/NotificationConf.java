@@ -0,0 +1,65 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "notification")
+public class NotificationConf {
+
+    private long defaultWait = 30000;
+    private long maxWait = 300000;
+    private long streamTimeout = 1800000;
+    private int sendPoolSize = 2;
+    private int sendQueueCapacity = 1000;
+    private int maxPendingEvents = 100;
+
+    public long getDefaultWait() {
+        return defaultWait;
+    }
+
+    public void setDefaultWait(long defaultWait) {
+        this.defaultWait = defaultWait;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public long getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(long streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+    public int getSendPoolSize() {
+        return sendPoolSize;
+    }
+
+    public void setSendPoolSize(int sendPoolSize) {
+        this.sendPoolSize = sendPoolSize;
+    }
+
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    public void setSendQueueCapacity(int sendQueueCapacity) {
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    public int getMaxPendingEvents() {
+        return maxPendingEvents;
+    }
+
+    public void setMaxPendingEvents(int maxPendingEvents) {
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+}
@@ -0,0 +1,56 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "outputFollow")
+public class OutputFollowConf {
+
+    private long pollInterval = 1000;
+    private int maxChunkSize = 65536;
+    private int maxOpenChannels = 256;
+    private long idleTimeout = 60000;
+    private long streamTimeout = 1800000;
+
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public int getMaxOpenChannels() {
+        return maxOpenChannels;
+    }
+
+    public void setMaxOpenChannels(int maxOpenChannels) {
+        this.maxOpenChannels = maxOpenChannels;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(long streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+}
@@ -0,0 +1,58 @@
+package co.edu.itm.clinicaldata.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import co.edu.itm.clinicaldata.enums.BackPressurePolicy;
+
+@Configuration
+@ConfigurationProperties(prefix = "submission")
+public class SubmissionConf {
+
+    private int corePoolSize = 2;
+    private int maxPoolSize = 2;
+    private int queueCapacity = 10;
+    private BackPressurePolicy policy = BackPressurePolicy.SPILL;
+    private int resumeBatchSize = 10;
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public void setCorePoolSize(int corePoolSize) {
+        this.corePoolSize = corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public BackPressurePolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(BackPressurePolicy policy) {
+        this.policy = policy;
+    }
+
+    public int getResumeBatchSize() {
+        return resumeBatchSize;
+    }
+
+    public void setResumeBatchSize(int resumeBatchSize) {
+        this.resumeBatchSize = resumeBatchSize;
+    }
+
+}
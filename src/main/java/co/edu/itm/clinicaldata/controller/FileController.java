@@ -22,10 +22,11 @@ public class FileController {
     @RequestMapping(value = "/upload", method = RequestMethod.POST)
     public ResponseEntity<String> upload(
             @RequestParam("file") MultipartFile file,
-            @RequestParam("investigatorId") Long investigatorId)
+            @RequestParam("investigatorId") Long investigatorId,
+            @RequestParam(value = "priority", required = false) String priority)
             throws ValidateException {
         return new ResponseEntity<>(fileService.upload(file,
-                investigatorId), HttpStatus.OK);
+                investigatorId, priority), HttpStatus.OK);
     }
 
 }
\ No newline at end of file
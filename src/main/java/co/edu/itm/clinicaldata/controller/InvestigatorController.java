@@ -33,6 +33,13 @@ public class InvestigatorController {
                 HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/limits", method = RequestMethod.POST)
+    public ResponseEntity<String> updateLimits(@RequestBody Params params)
+            throws ValidateException {
+        return new ResponseEntity<>(
+                investigatorService.updateLimits(params), HttpStatus.OK);
+    }
+
     @RequestMapping(value = "/create", method = RequestMethod.PUT)
     public ResponseEntity<String> create(@RequestBody Params params)
             throws ValidateException {
@@ -1,17 +1,30 @@
 package co.edu.itm.clinicaldata.controller;
 
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import co.edu.itm.clinicaldata.dto.OutputChunk;
 import co.edu.itm.clinicaldata.dto.Params;
 import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.service.OutputService;
 import co.edu.itm.clinicaldata.service.ProcessDataService;
+import co.edu.itm.clinicaldata.service.ProcessNotificationService;
 
 @RestController
 @RequestMapping("/api/processData")
@@ -20,6 +33,12 @@ public class ProcessDataController {
     @Autowired
     ProcessDataService processDataService;
 
+    @Autowired
+    ProcessNotificationService processNotificationService;
+
+    @Autowired
+    OutputService outputService;
+
     @RequestMapping(value = "/state/{identifier}", method = RequestMethod.GET)
     public ResponseEntity<String> processState(
             @PathVariable("identifier") String identifier)
@@ -28,6 +47,22 @@ public class ProcessDataController {
                 processDataService.processState(identifier), HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/state/{identifier}", method = RequestMethod.GET, params = "waitFor")
+    public DeferredResult<ResponseEntity<String>> waitForState(
+            @PathVariable("identifier") String identifier,
+            @RequestParam("waitFor") String waitFor,
+            @RequestParam(value = "timeout", required = false) Long timeout)
+            throws ValidateException {
+        return processNotificationService.waitForState(identifier, waitFor, timeout);
+    }
+
+    @RequestMapping(value = "/events/{investigatorId}", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stateEvents(
+            @PathVariable("investigatorId") Long investigatorId)
+            throws ValidateException {
+        return processNotificationService.subscribe(investigatorId);
+    }
+
     @RequestMapping(value = "/result/{identifier}", method = RequestMethod.GET)
     public ResponseEntity<String> processResult(
             @PathVariable("identifier") String identifier)
@@ -36,6 +71,43 @@ public class ProcessDataController {
                 processDataService.processResult(identifier), HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/output/{identifier}", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void processOutput(
+            @PathVariable("identifier") String identifier,
+            @RequestParam(value = "stream", required = false) String stream,
+            HttpServletRequest request, HttpServletResponse response)
+            throws ValidateException, IOException {
+        outputService.writeOutput(identifier, stream, request, response);
+    }
+
+    @RequestMapping(value = "/output/{identifier}/tail", method = RequestMethod.GET)
+    public ResponseEntity<OutputChunk> tailOutput(
+            @PathVariable("identifier") String identifier,
+            @RequestParam(value = "stream", required = false) String stream,
+            @RequestParam(value = "offset", required = false) Long offset)
+            throws ValidateException {
+        return new ResponseEntity<>(
+                outputService.readChunk(identifier, stream, offset), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/output/{identifier}/follow", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followOutput(
+            @PathVariable("identifier") String identifier,
+            @RequestParam(value = "stream", required = false) String stream,
+            @RequestParam(value = "offset", required = false) Long offset,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId)
+            throws ValidateException {
+        return outputService.follow(identifier, stream, offset, lastEventId);
+    }
+
+    @RequestMapping(value = "/queue/{identifier}", method = RequestMethod.GET)
+    public ResponseEntity<String> queuePosition(
+            @PathVariable("identifier") String identifier)
+            throws ValidateException {
+        return new ResponseEntity<>(
+                processDataService.queuePosition(identifier), HttpStatus.OK);
+    }
+
     @RequestMapping(value = "/start", method = RequestMethod.POST)
     public ResponseEntity<String> startProcess(@RequestBody Params params)
             throws ValidateException {
@@ -43,4 +115,19 @@ public class ProcessDataController {
                 processDataService.startProcess(params), HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/startBatch", method = RequestMethod.POST)
+    public ResponseEntity<String> startBatch(@RequestBody Params params)
+            throws ValidateException {
+        return new ResponseEntity<>(
+                processDataService.startBatch(params), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/{identifier}", method = RequestMethod.DELETE)
+    public ResponseEntity<String> cancelProcess(
+            @PathVariable("identifier") String identifier)
+            throws ValidateException {
+        return new ResponseEntity<>(
+                processDataService.cancelProcess(identifier), HttpStatus.OK);
+    }
+
 }
\ No newline at end of file
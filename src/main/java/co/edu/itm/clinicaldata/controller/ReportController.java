@@ -2,17 +2,18 @@ package co.edu.itm.clinicaldata.controller;
 
 import static co.edu.itm.clinicaldata.util.Constants.PDF_FILE_EXTENSION;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import co.edu.itm.clinicaldata.component.FileUtilities;
 import co.edu.itm.clinicaldata.exception.ValidateException;
@@ -32,31 +33,34 @@ public class ReportController {
     FileUtilities fileUtilities;
 
     @RequestMapping(value = "/request/{identifier}", method = RequestMethod.GET, produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<InputStreamResource> byRequest(
-            @PathVariable("identifier") String identifier)
-            throws ValidateException {
-        return buildResponse(REPORT_NAME_BY_REQUEST, reportService.byRequest(identifier));
+    public void byRequest(
+            @PathVariable("identifier") String identifier,
+            HttpServletResponse response)
+            throws ValidateException, IOException {
+        writeResponse(REPORT_NAME_BY_REQUEST, reportService.byRequest(identifier), response);
     }
 
     @RequestMapping(value = "/investigator/{investigatorId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<InputStreamResource> byInvestigator(
-            @PathVariable("investigatorId") Long investigatorId)
-            throws ValidateException {
-        return buildResponse(REPORT_NAME_BY_INVESTIGATOR, reportService.byInvestigator(investigatorId));
+    public void byInvestigator(
+            @PathVariable("investigatorId") Long investigatorId,
+            HttpServletResponse response)
+            throws ValidateException, IOException {
+        writeResponse(REPORT_NAME_BY_INVESTIGATOR, reportService.byInvestigator(investigatorId), response);
     }
 
-    private ResponseEntity<InputStreamResource> buildResponse(String name,
-            ByteArrayInputStream bis) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(
+    /**
+     * Escribe el reporte directamente en la respuesta, en el mismo hilo de la petición: los reportes
+     * grandes pueden tardar más que el tiempo de espera de las respuestas asíncronas
+     */
+    private void writeResponse(String name, StreamingResponseBody report,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(
                 HttpHeaders.CONTENT_DISPOSITION,
                 "inline; filename="
                         + fileUtilities.createFileName(name,
                                 PDF_FILE_EXTENSION));
-
-        return ResponseEntity.ok().headers(headers)
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(new InputStreamResource(bis));
+        report.writeTo(response.getOutputStream());
     }
 
-}
\ No newline at end of file
+}
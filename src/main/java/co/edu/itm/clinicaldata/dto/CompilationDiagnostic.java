@@ -0,0 +1,51 @@
+package co.edu.itm.clinicaldata.dto;
+
+import java.io.Serializable;
+
+public class CompilationDiagnostic implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long line;
+    private long column;
+    private String message;
+
+    public CompilationDiagnostic() {
+    }
+
+    public CompilationDiagnostic(long line, long column, String message) {
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    public void setColumn(long column) {
+        this.column = column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Línea %d, columna %d: %s", line, column, message);
+    }
+
+}
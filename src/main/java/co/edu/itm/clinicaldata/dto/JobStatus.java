@@ -0,0 +1,40 @@
+package co.edu.itm.clinicaldata.dto;
+
+/**
+ * Estado de un trabajo reportado por el planificador del cluster
+ */
+public class JobStatus {
+
+    private static final String FINISHED_STATES = "FCX";
+
+    private final String jobId;
+    private final String state;
+    private final Integer exitStatus;
+
+    public JobStatus(String jobId, String state, Integer exitStatus) {
+        this.jobId = jobId;
+        this.state = state;
+        this.exitStatus = exitStatus;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Integer getExitStatus() {
+        return exitStatus;
+    }
+
+    /**
+     * F (PBS Pro), C (Torque) y X (subtrabajo de un arreglo) indican que el trabajo ya terminó
+     * @return
+     */
+    public boolean isFinished() {
+        return state != null && state.length() == 1 && FINISHED_STATES.contains(state);
+    }
+
+}
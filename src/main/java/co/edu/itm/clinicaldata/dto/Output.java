@@ -1,10 +1,13 @@
 package co.edu.itm.clinicaldata.dto;
 
+import java.util.List;
+
 public class Output {
 
     private String error;
     private String result;
     private String state;
+    private List<CompilationDiagnostic> diagnostics;
 
     public String getError() {
         return error;
@@ -30,4 +33,12 @@ public class Output {
         this.state = state;
     }
 
+    public List<CompilationDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(List<CompilationDiagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
 }
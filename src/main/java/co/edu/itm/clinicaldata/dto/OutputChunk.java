@@ -0,0 +1,59 @@
+package co.edu.itm.clinicaldata.dto;
+
+/**
+ * Porción de la salida de una solicitud leída desde <offset>. El cliente debe enviar
+ * <nextOffset> en la siguiente consulta para recibir solo lo que se agregó después
+ */
+public class OutputChunk {
+
+    private final String identifier;
+    private final String stream;
+    private final String state;
+    private final long offset;
+    private final long nextOffset;
+    private final String data;
+    private final boolean finished;
+
+    public OutputChunk(String identifier, String stream, String state, long offset, long nextOffset, String data, boolean finished) {
+        this.identifier = identifier;
+        this.stream = stream;
+        this.state = state;
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.data = data;
+        this.finished = finished;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * La solicitud terminó y ya se leyó toda su salida, no se agregarán más datos
+     * @return
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+}
@@ -8,11 +8,16 @@ public class Params implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private String identifier;
+    private List<String> identifiers;
     private List<Resource> resources;
+    private String priority;
 
     private Long investigatorId;
     private String investigatorName;
     private String investigatorEmail;
+    private Integer maxRunningRequests;
+    private Integer requestsPerMinute;
+    private Integer shareWeight;
 
     public String getIdentifier() {
         return identifier;
@@ -22,6 +27,14 @@ public class Params implements Serializable {
         this.identifier = identifier;
     }
 
+    public List<String> getIdentifiers() {
+        return identifiers;
+    }
+
+    public void setIdentifiers(List<String> identifiers) {
+        this.identifiers = identifiers;
+    }
+
     public Long getInvestigatorId() {
         return investigatorId;
     }
@@ -53,4 +66,36 @@ public class Params implements Serializable {
     public void setResources(List<Resource> resources) {
         this.resources = resources;
     }
+
+    public Integer getMaxRunningRequests() {
+        return maxRunningRequests;
+    }
+
+    public void setMaxRunningRequests(Integer maxRunningRequests) {
+        this.maxRunningRequests = maxRunningRequests;
+    }
+
+    public Integer getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public void setRequestsPerMinute(Integer requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    public Integer getShareWeight() {
+        return shareWeight;
+    }
+
+    public void setShareWeight(Integer shareWeight) {
+        this.shareWeight = shareWeight;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,52 @@
+package co.edu.itm.clinicaldata.dto;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * Evento publicado cada vez que se almacena una solicitud, con su estado resultante.
+ * También es el contenido enviado a los clientes suscritos a los cambios de estado.
+ */
+public class ProcessStateChange implements ProcessStatus, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String identifier;
+    private final String state;
+    private final Timestamp creationDate;
+    private final Timestamp lastUpdate;
+    private final Long investigatorId;
+
+    public ProcessStateChange(String identifier, String state, Timestamp creationDate, Timestamp lastUpdate, Long investigatorId) {
+        this.identifier = identifier;
+        this.state = state;
+        this.creationDate = creationDate;
+        this.lastUpdate = lastUpdate;
+        this.investigatorId = investigatorId;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    @Override
+    public String getState() {
+        return state;
+    }
+
+    @Override
+    public Timestamp getCreationDate() {
+        return creationDate;
+    }
+
+    @Override
+    public Timestamp getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public Long getInvestigatorId() {
+        return investigatorId;
+    }
+
+}
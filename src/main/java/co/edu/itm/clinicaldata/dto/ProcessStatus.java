@@ -0,0 +1,18 @@
+package co.edu.itm.clinicaldata.dto;
+
+import java.sql.Timestamp;
+
+/**
+ * Proyección con los campos de una solicitud necesarios para consultar su estado
+ */
+public interface ProcessStatus {
+
+    String getIdentifier();
+
+    String getState();
+
+    Timestamp getCreationDate();
+
+    Timestamp getLastUpdate();
+
+}
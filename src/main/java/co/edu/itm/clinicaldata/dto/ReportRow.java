@@ -0,0 +1,67 @@
+package co.edu.itm.clinicaldata.dto;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+/**
+ * Campos de una solicitud que se incluyen en los reportes. Se construye directamente en la
+ * consulta, así las filas de un reporte no son entidades administradas por la sesión
+ */
+public class ReportRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String identifier;
+    private final Timestamp creationDate;
+    private final String fileName;
+    private final String state;
+    private final String result;
+
+    /**
+     * Hibernate resuelve el constructor de la consulta con el tipo {@link Date} de las columnas TIMESTAMP
+     */
+    public ReportRow(Long id, String identifier, Date creationDate, String fileName, String state, String result) {
+        this.id = id;
+        this.identifier = identifier;
+        this.creationDate = creationDate == null || creationDate instanceof Timestamp
+                ? (Timestamp) creationDate : new Timestamp(creationDate.getTime());
+        this.fileName = fileName;
+        this.state = state;
+        this.result = result;
+    }
+
+    public static ReportRow of(ProcessingRequest processingRequest) {
+        return new ReportRow(processingRequest.getId(), processingRequest.getIdentifier(),
+                processingRequest.getCreationDate(), processingRequest.getFileName(),
+                processingRequest.getState(), processingRequest.getResult());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public Timestamp getCreationDate() {
+        return creationDate;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+}
@@ -0,0 +1,9 @@
+package co.edu.itm.clinicaldata.enums;
+
+public enum BackPressurePolicy {
+
+    CALLER_RUNS,
+    REJECT,
+    SPILL
+
+}
@@ -0,0 +1,8 @@
+package co.edu.itm.clinicaldata.enums;
+
+public enum ClusterBackendType {
+
+    QSUB,
+    LOCAL
+
+}
@@ -0,0 +1,69 @@
+package co.edu.itm.clinicaldata.enums;
+
+public enum Priority {
+
+    INTERACTIVE(0, 100),
+    NORMAL(1, 0),
+    BULK(2, -100);
+
+    private int level;
+    private int schedulerPriority;
+
+    Priority(int level, int schedulerPriority) {
+        this.level = level;
+        this.schedulerPriority = schedulerPriority;
+    }
+
+    /**
+     * Nivel almacenado en la solicitud, un nivel menor se atiende primero
+     * @return
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Prioridad enviada al planificador del cluster (qsub -p, de -1024 a 1023)
+     * @return
+     */
+    public int getSchedulerPriority() {
+        return schedulerPriority;
+    }
+
+    /**
+     * La mayor entre esta prioridad y otra
+     * @param other
+     * @return
+     */
+    public Priority higher(Priority other) {
+        return other.getLevel() < level ? other : this;
+    }
+
+    /**
+     * Busca la prioridad por su nombre, sin distinguir mayúsculas
+     * @param name
+     * @return null si el nombre no corresponde a ninguna prioridad
+     */
+    public static Priority fromName(String name) {
+        for (Priority priority : values()) {
+            if (priority.name().equalsIgnoreCase(name)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca la prioridad por su nivel
+     * @param level
+     * @return NORMAL si el nivel no corresponde a ninguna prioridad
+     */
+    public static Priority fromLevel(Integer level) {
+        for (Priority priority : values()) {
+            if (level != null && priority.getLevel() == level) {
+                return priority;
+            }
+        }
+        return NORMAL;
+    }
+}
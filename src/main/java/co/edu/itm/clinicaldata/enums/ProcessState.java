@@ -3,10 +3,12 @@ package co.edu.itm.clinicaldata.enums;
 public enum ProcessState {
 
     CREATED("CREADA"),
+    WAITING("EN ESPERA"),
     PROCESSING("EN PROGRESO"),
     FINISHED_OK("FINALIZADA"),
     FINISHED_WITHOUT_ACTIONS("FINALIZADA SIN ACCIONES"),
-    FINISHED_WITH_ERRORS("FINALIZADA CON ERRORES");
+    FINISHED_WITH_ERRORS("FINALIZADA CON ERRORES"),
+    CANCELLED("CANCELADA");
 
     private String state;
 
@@ -17,4 +19,26 @@ public enum ProcessState {
     public String getState() {
         return state;
     }
+
+    /**
+     * Determina si el estado es final, una solicitud en este estado ya no cambia
+     * @return
+     */
+    public boolean isFinished() {
+        return this == FINISHED_OK || this == FINISHED_WITHOUT_ACTIONS || this == FINISHED_WITH_ERRORS || this == CANCELLED;
+    }
+
+    /**
+     * Busca el estado por su descripción
+     * @param state
+     * @return null si la descripción no corresponde a ningún estado
+     */
+    public static ProcessState fromState(String state) {
+        for (ProcessState processState : values()) {
+            if (processState.getState().equals(state)) {
+                return processState;
+            }
+        }
+        return null;
+    }
 }
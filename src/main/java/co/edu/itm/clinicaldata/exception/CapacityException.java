@@ -0,0 +1,22 @@
+package co.edu.itm.clinicaldata.exception;
+
+public class CapacityException extends ValidateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CapacityException() {
+        super();
+    }
+
+    public CapacityException(String message) {
+        super(message);
+    }
+
+    public CapacityException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CapacityException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.multipart.MultipartException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import co.edu.itm.clinicaldata.exception.CapacityException;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 
 @ControllerAdvice
@@ -29,6 +30,14 @@ public class Mapper extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(apiError, apiError.getStatus());
     }
 
+    @ExceptionHandler(CapacityException.class)
+    protected ResponseEntity<Object> handleCapacityException(
+            CapacityException ex) {
+        ApiError apiError = new ApiError(HttpStatus.TOO_MANY_REQUESTS, ex);
+        LOGGER.error(ex.getMessage(), ex);
+        return new ResponseEntity<>(apiError, apiError.getStatus());
+    }
+
     @ExceptionHandler(MultipartException.class)
     public ResponseEntity<Object> handleMultipartException(MultipartException ex) {
         String maxFileSize = environment
@@ -35,6 +35,15 @@ public class Investigator implements Serializable {
     @Column(name = "STATE", nullable = false)
     private String state;
 
+    @Column(name = "MAX_RUNNING_REQUESTS", nullable = true)
+    private Integer maxRunningRequests;
+
+    @Column(name = "REQUESTS_PER_MINUTE", nullable = true)
+    private Integer requestsPerMinute;
+
+    @Column(name = "SHARE_WEIGHT", nullable = true)
+    private Integer shareWeight;
+
     public Long getId() {
         return id;
     }
@@ -67,4 +76,28 @@ public class Investigator implements Serializable {
         this.email = email;
     }
 
+    public Integer getMaxRunningRequests() {
+        return maxRunningRequests;
+    }
+
+    public void setMaxRunningRequests(Integer maxRunningRequests) {
+        this.maxRunningRequests = maxRunningRequests;
+    }
+
+    public Integer getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public void setRequestsPerMinute(Integer requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    public Integer getShareWeight() {
+        return shareWeight;
+    }
+
+    public void setShareWeight(Integer shareWeight) {
+        this.shareWeight = shareWeight;
+    }
+
 }
@@ -8,6 +8,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -16,7 +17,8 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 
 @Entity
-@Table(name = "PROCESS_RESOURCE")
+@Table(name = "PROCESS_RESOURCE", indexes = {
+        @Index(name = "IDX_PROCESS_RESOURCE_PROCESSING_REQUEST", columnList = "PROCESSING_REQUEST_ID") })
 public class ProcessResource implements Serializable {
 
     private static final long serialVersionUID = 1L;
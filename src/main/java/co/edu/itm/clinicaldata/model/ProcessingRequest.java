@@ -9,8 +9,8 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.validation.constraints.Size;
@@ -18,7 +18,11 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 
 @Entity
-@Table(name = "PROCESSING_REQUEST")
+@Table(name = "PROCESSING_REQUEST", indexes = {
+        @Index(name = "UK_PROCESSING_REQUEST_IDENTIFIER", columnList = "IDENTIFIER", unique = true),
+        @Index(name = "IDX_PROCESSING_REQUEST_INVESTIGATOR", columnList = "INVESTIGATOR_ID"),
+        @Index(name = "IDX_PROCESSING_REQUEST_STATE", columnList = "STATE, PRIORITY, LAST_UPDATE, ID"),
+        @Index(name = "IDX_PROCESSING_REQUEST_STATE_INVESTIGATOR", columnList = "STATE, INVESTIGATOR_ID, PRIORITY, LAST_UPDATE, ID") })
 public class ProcessingRequest implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -42,9 +46,9 @@ public class ProcessingRequest implements Serializable {
     @Column(name = "LANGUAGE", nullable = false)
     private String language;
 
-    @Lob
-    @Column(name = "BYTES", nullable = false)
-    private byte[] bytes;
+    @Size(max = 64)
+    @Column(name = "CHECKSUM", nullable = true)
+    private String checksum;
 
     @Column(name = "BASE_PATH", nullable = false)
     private String basePath;
@@ -60,6 +64,13 @@ public class ProcessingRequest implements Serializable {
     @Column(name = "RESULT", nullable = true)
     private String result;
 
+    @Size(max = 100)
+    @Column(name = "JOB_ID", nullable = true)
+    private String jobId;
+
+    @Column(name = "PRIORITY", nullable = false)
+    private Integer priority;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "INVESTIGATOR_ID")
     Investigator investigator;
@@ -112,12 +123,12 @@ public class ProcessingRequest implements Serializable {
         this.id = id;
     }
 
-    public byte[] getBytes() {
-        return bytes;
+    public String getChecksum() {
+        return checksum;
     }
 
-    public void setBytes(byte[] bytes) {
-        this.bytes = bytes;
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
     }
 
     public Timestamp getCreationDate() {
@@ -152,4 +163,20 @@ public class ProcessingRequest implements Serializable {
         this.result = result;
     }
 
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
 }
@@ -0,0 +1,30 @@
+package co.edu.itm.clinicaldata.queue;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuenta las tareas que no pudieron ser encoladas en un executor
+ * antes de delegar en la política de rechazo configurada
+ */
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    private final RejectedExecutionHandler delegate;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        rejectedCount.incrementAndGet();
+        delegate.rejectedExecution(runnable, executor);
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+}
@@ -0,0 +1,40 @@
+package co.edu.itm.clinicaldata.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.edu.itm.clinicaldata.enums.Priority;
+
+/**
+ * Tarea de un executor con la prioridad de su solicitud. Se ordena por prioridad y,
+ * a igual prioridad, por orden de llegada
+ */
+public class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Priority priority;
+    private final long sequence;
+    private final Runnable delegate;
+
+    public PrioritizedTask(Priority priority, Runnable delegate) {
+        this.priority = priority;
+        this.sequence = SEQUENCE.incrementAndGet();
+        this.delegate = delegate;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public void run() {
+        delegate.run();
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask other) {
+        int byPriority = Integer.compare(priority.getLevel(), other.priority.getLevel());
+        return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+    }
+
+}
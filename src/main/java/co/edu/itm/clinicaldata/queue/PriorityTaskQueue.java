@@ -0,0 +1,52 @@
+package co.edu.itm.clinicaldata.queue;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+import co.edu.itm.clinicaldata.enums.Priority;
+
+/**
+ * Cola de trabajo de un executor que entrega primero las tareas de mayor prioridad.
+ * A diferencia de PriorityBlockingQueue tiene capacidad máxima, así el executor sigue
+ * rechazando tareas cuando está lleno y se aplica la política de contrapresión.
+ * Las tareas que no son PrioritizedTask se tratan como de prioridad NORMAL
+ */
+public class PriorityTaskQueue extends PriorityBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    public PriorityTaskQueue(int capacity) {
+        super(Math.max(1, Math.min(capacity, 64)), PriorityTaskQueue::compare);
+        this.capacity = capacity;
+    }
+
+    private static int compare(Runnable first, Runnable second) {
+        if (first instanceof PrioritizedTask && second instanceof PrioritizedTask) {
+            return ((PrioritizedTask) first).compareTo((PrioritizedTask) second);
+        }
+        return Integer.compare(level(first), level(second));
+    }
+
+    private static int level(Runnable runnable) {
+        return runnable instanceof PrioritizedTask
+                ? ((PrioritizedTask) runnable).getPriority().getLevel() : Priority.NORMAL.getLevel();
+    }
+
+    /**
+     * ThreadPoolExecutor encola con offer, si retorna false la tarea se rechaza
+     */
+    @Override
+    public synchronized boolean offer(Runnable runnable) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+}
@@ -1,63 +1,123 @@
 package co.edu.itm.clinicaldata.queue;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class ProcessQueue {
+import org.springframework.stereotype.Component;
 
-    private static ProcessQueue instance;
-    private Queue<String> queve;
+/**
+ * Cola de solicitudes enviadas al cluster pendientes de finalizar.
+ * Es segura para hilos: se escribe desde los hilos asíncronos de envío y se lee
+ * desde el hilo del planificador. Las solicitudes en estado <EN PROGRESO> de la
+ * base de datos actúan como respaldo persistente de la cola y se recuperan al iniciar.
+ * Cada solicitud tiene su propia fecha de próxima validación.
+ */
+@Component
+public class ProcessQueue {
 
-    private ProcessQueue() {
-        this.queve = new LinkedList<>();
-    }
+    private final ConcurrentMap<String, QueuedProcess> processes = new ConcurrentHashMap<>();
 
     /**
-     * Agrega a la cola de espera
-     * 
+     * Agrega a la cola de espera, si la solicitud no se encuentra ya encolada
+     *
      * @param identifier
+     * @param jobId identificador del trabajo en el planificador, puede ser null
+     * @return true si la solicitud fue agregada
      */
-    public void add(String identifier) {
-        getInstance().queve.add(identifier);
+    public boolean add(String identifier, String jobId) {
+        QueuedProcess queuedProcess = new QueuedProcess(identifier, jobId, System.currentTimeMillis());
+        return processes.putIfAbsent(identifier, queuedProcess) == null;
     }
 
     /**
-     * Retorna y no remueve de la cola de espera
-     * 
+     * Retorna las solicitudes cuya próxima validación ya se cumplió, su validación comienza
+     * en este momento
+     *
+     * @param now
      * @return
      */
-    public String get() {
-        return getInstance().queve.peek();
+    public List<QueuedProcess> due(long now) {
+        List<QueuedProcess> due = new ArrayList<>();
+        for (QueuedProcess queuedProcess : processes.values()) {
+            if (queuedProcess.isDue(now)) {
+                queuedProcess.startValidation();
+                due.add(queuedProcess);
+            }
+        }
+        return due;
     }
 
     /**
-     * Retorna y remueve de la cola de espera
-     * 
+     * Retorna los trabajos del planificador de todas las solicitudes de la cola
+     *
      * @return
      */
-    public String remove() {
-        return getInstance().queve.poll();
+    public Set<String> jobIds() {
+        Set<String> jobIds = new HashSet<>();
+        for (QueuedProcess queuedProcess : processes.values()) {
+            if (queuedProcess.getJobId() != null) {
+                jobIds.add(queuedProcess.getJobId());
+            }
+        }
+        return jobIds;
     }
 
     /**
-     * Retorna instancia actual de la cola o crea una nueva de ser necesaria
-     * 
-     * @return
+     * Programa la próxima validación de una solicitud
+     *
+     * @param identifier
+     * @param nextCheck
+     */
+    public void reschedule(String identifier, long nextCheck) {
+        QueuedProcess queuedProcess = processes.get(identifier);
+        if (queuedProcess != null) {
+            queuedProcess.schedule(nextCheck);
+        }
+    }
+
+    /**
+     * Marca una solicitud para ser validada en la siguiente ejecución del monitor
+     *
+     * @param identifier
      */
-    public static ProcessQueue getInstance() {
-        if (instance == null) {
-            instance = new ProcessQueue();
+    public void markDue(String identifier) {
+        QueuedProcess queuedProcess = processes.get(identifier);
+        if (queuedProcess != null) {
+            queuedProcess.expedite();
         }
-        return instance;
+    }
+
+    /**
+     * Remueve de la cola de espera
+     *
+     * @param identifier
+     * @return true si la solicitud se encontraba en la cola
+     */
+    public boolean remove(String identifier) {
+        return processes.remove(identifier) != null;
+    }
+
+    /**
+     * Determina si una solicitud se encuentra en la cola de espera
+     *
+     * @param identifier
+     * @return
+     */
+    public boolean contains(String identifier) {
+        return processes.containsKey(identifier);
     }
 
     /**
      * Retorna el tamaño de la cola de espera
-     * 
+     *
      * @return
      */
     public int size() {
-        return getInstance().queve.size();
+        return processes.size();
     }
 
     /**
@@ -65,6 +125,6 @@ public class ProcessQueue {
      * @return
      */
     public boolean isEmpty() {
-        return getInstance().queve.isEmpty();
+        return processes.isEmpty();
     }
 }
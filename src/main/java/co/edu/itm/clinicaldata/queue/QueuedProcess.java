@@ -0,0 +1,92 @@
+package co.edu.itm.clinicaldata.queue;
+
+/**
+ * Solicitud en seguimiento dentro de la cola de espera, con la fecha
+ * en la que debe validarse nuevamente su estado y el identificador
+ * del trabajo asignado por el planificador del cluster
+ */
+public class QueuedProcess {
+
+    private final String identifier;
+    private final String jobId;
+    private volatile long nextCheck;
+    private volatile int checks;
+    private volatile long finishedSince;
+    private volatile String outputSignature;
+    // Avisos de finalización recibidos, y los que ya se habían recibido al comenzar la última validación
+    private int expedites;
+    private int expeditesAtValidation;
+
+    QueuedProcess(String identifier, String jobId, long nextCheck) {
+        this.identifier = identifier;
+        this.jobId = jobId;
+        this.nextCheck = nextCheck;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public long getNextCheck() {
+        return nextCheck;
+    }
+
+    public int getChecks() {
+        return checks;
+    }
+
+    /**
+     * Registra el comienzo de una validación
+     */
+    synchronized void startValidation() {
+        this.expeditesAtValidation = expedites;
+    }
+
+    /**
+     * Programa la próxima validación. Si se recibió un aviso de finalización mientras se validaba,
+     * la validación pudo no verlo y la solicitud se mantiene para la siguiente ejecución del monitor
+     * @param nextCheck
+     */
+    synchronized void schedule(long nextCheck) {
+        if (expedites == expeditesAtValidation) {
+            this.nextCheck = nextCheck;
+        }
+        this.checks++;
+    }
+
+    synchronized void expedite() {
+        this.expedites++;
+        this.nextCheck = 0;
+    }
+
+    boolean isDue(long now) {
+        return nextCheck <= now;
+    }
+
+    /**
+     * Registra que el planificador reporta el trabajo como terminado o ya no lo conoce
+     * @param now
+     * @return fecha de la primera vez que se reportó así
+     */
+    public long finishedSince(long now) {
+        if (finishedSince == 0) {
+            finishedSince = now;
+        }
+        return finishedSince;
+    }
+
+    /**
+     * Registra la huella (tamaño y fecha de modificación) de los archivos de salida observada en esta validación
+     * @param signature
+     * @return true si es igual a la observada en la validación anterior
+     */
+    public boolean outputSettled(String signature) {
+        boolean settled = signature.equals(outputSignature);
+        outputSignature = signature;
+        return settled;
+    }
+}
@@ -0,0 +1,69 @@
+package co.edu.itm.clinicaldata.queue;
+
+/**
+ * Limita la tasa de envíos: se recarga de forma continua a razón de <requestsPerMinute>
+ * fichas por minuto hasta un máximo de <capacity>, cada envío consume una ficha
+ */
+public class TokenBucket {
+
+    private static final double MILLIS_PER_MINUTE = 60000d;
+
+    private final int capacity;
+    private final int requestsPerMinute;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(int capacity, int requestsPerMinute, long now) {
+        this.capacity = Math.max(1, capacity);
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokens = this.capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Consume una ficha si hay disponible
+     * @param now
+     * @return true si la ficha fue consumida
+     */
+    public synchronized boolean tryAcquire(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Devuelve una ficha consumida por un envío que finalmente no se realizó
+     */
+    public synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Fichas completas disponibles en este momento
+     * @param now
+     * @return
+     */
+    public synchronized int available(long now) {
+        refill(now);
+        return (int) tokens;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * requestsPerMinute / MILLIS_PER_MINUTE);
+            refilledAt = now;
+        }
+    }
+
+}
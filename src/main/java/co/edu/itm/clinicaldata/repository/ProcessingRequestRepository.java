@@ -1,10 +1,17 @@
 package co.edu.itm.clinicaldata.repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.dto.ReportRow;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
 
 @Repository
@@ -12,6 +19,45 @@ public interface ProcessingRequestRepository extends JpaRepository<ProcessingReq
 
     ProcessingRequest findByIdentifier(String identifier);
 
+    List<ProcessingRequest> findByIdentifierIn(Collection<String> identifiers);
+
+    ProcessStatus findStatusByIdentifier(String identifier);
+
     List<ProcessingRequest> findByInvestigatorId(Long investigatorId);
 
+    @Query("select new co.edu.itm.clinicaldata.dto.ReportRow(p.id, p.identifier, p.creationDate, p.fileName, p.state, p.result)"
+            + " from ProcessingRequest p where p.investigator.id = ?1 and p.id > ?2 order by p.id asc")
+    List<ReportRow> findReportRowsByInvestigatorId(Long investigatorId, Long afterId, Pageable pageable);
+
+    List<ProcessingRequest> findByState(String state);
+
+    List<ProcessingRequest> findByStateOrderByPriorityAscLastUpdateAscIdAsc(String state, Pageable pageable);
+
+    List<ProcessingRequest> findByStateAndInvestigatorIdOrderByPriorityAscLastUpdateAscIdAsc(String state, Long investigatorId, Pageable pageable);
+
+    long countByState(String state);
+
+    long countByStateAndInvestigatorId(String state, Long investigatorId);
+
+    long countByStateAndInvestigatorIdAndPriorityLessThanEqual(String state, Long investigatorId, Integer priority);
+
+    @Query("select p.investigator.id, count(p) from ProcessingRequest p where p.state = ?1 group by p.investigator.id")
+    List<Object[]> countByStateGroupByInvestigator(String state);
+
+    @Query("select p.investigator.id, p.priority, count(p) from ProcessingRequest p where p.state = ?1 group by p.investigator.id, p.priority")
+    List<Object[]> countByStateGroupByInvestigatorAndPriority(String state);
+
+    @Query("select max(p.lastUpdate), count(p) from ProcessingRequest p where p.investigator.id = ?1")
+    List<Object[]> findLastUpdateAndCountByInvestigatorId(Long investigatorId);
+
+    @Query("select count(p) from ProcessingRequest p where p.state = ?1 and p.investigator.id = ?2 and (p.priority < ?3"
+            + " or (p.priority = ?3 and (p.lastUpdate < ?4 or (p.lastUpdate = ?4 and p.id < ?5))))")
+    long countAhead(String state, Long investigatorId, Integer priority, Timestamp lastUpdate, Long id);
+
+    @Modifying
+    @Query("update ProcessingRequest p set p.state = ?4, p.result = ?5, p.jobId = ?6, p.lastUpdate = ?7"
+            + " where p.identifier = ?1 and p.state = ?2 and coalesce(p.jobId, '') = ?3")
+    int updateIfCurrent(String identifier, String expectedState, String expectedJobId,
+            String state, String result, String jobId, Timestamp lastUpdate);
+
 }
@@ -0,0 +1,249 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import co.edu.itm.clinicaldata.configuration.AdmissionConf;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.Investigator;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.queue.TokenBucket;
+
+/**
+ * Control de admisión de las solicitudes que se envían al cluster, para que un investigador
+ * no acapare el executor de envío ni el cluster:
+ * - máximo de solicitudes en progreso por investigador
+ * - tasa de envíos por investigador (token bucket)
+ * - las solicitudes que no se admiten quedan EN ESPERA y se envían luego por prioridad y, a igual
+ *   prioridad, en orden de cola justa ponderada (weighted fair queuing) entre investigadores y en
+ *   orden de llegada para cada uno.
+ * Los límites se toman del investigador y, si no los tiene, de la configuración (admission.*).
+ * Los conteos de solicitudes se consultan a la base de datos, el estado de las fichas y de la
+ * cola justa se lleva en memoria
+ */
+@Service
+public class AdmissionService {
+
+    private static final String PROCESS_NOT_WAITING = "La solicitud <%s> no se encuentra en espera, su estado actual es <%s>";
+    private static final String QUEUE_POSITION = "La solicitud <%s> se encuentra en espera en la posición <%d> de las <%d> solicitudes en espera del investigador, "
+            + "que tiene <%d> de <%d> solicitudes permitidas en progreso. Solicitudes en espera en total <%d>";
+
+    @Autowired
+    ProcessingRequestService processingRequestService;
+
+    @Autowired
+    InvestigatorService investigatorService;
+
+    @Autowired
+    AdmissionConf admissionConf;
+
+    private final ConcurrentMap<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, Double> finishTags = new HashMap<>();
+    private double virtualTime;
+
+    /**
+     * Admite, en orden, las solicitudes que caben en los límites de su investigador: quedan EN PROGRESO
+     * y deben enviarse al cluster. Las demás quedan EN ESPERA. Una solicitud tampoco se admite si el
+     * investigador tiene solicitudes en espera de su misma prioridad o de una mayor, para no adelantarlas
+     * @param listProcessingRequest
+     * @return solicitudes admitidas
+     */
+    public synchronized List<ProcessingRequest> admit(List<ProcessingRequest> listProcessingRequest) {
+        Map<Long, Investigator> investigators = new HashMap<>();
+        Map<Long, Long> allowedByInvestigator = new HashMap<>();
+        List<ProcessingRequest> admitted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            boolean admit = true;
+            Long investigatorId = processingRequestService.investigatorId(processingRequest.getInvestigator());
+            if (admissionConf.isEnabled() && investigatorId != null) {
+                Investigator investigator = investigators.computeIfAbsent(investigatorId, investigatorService::findById);
+                long allowed = allowedByInvestigator.computeIfAbsent(investigatorId, key -> allowed(investigator));
+                admit = allowed > 0 && !hasWaitingAhead(investigatorId, processingRequest) && consume(investigator, now);
+                allowedByInvestigator.put(investigatorId, admit ? allowed - 1 : allowed);
+            }
+            if (admit) {
+                admitted.add(processingRequestService.updateState(processingRequest, ProcessState.PROCESSING));
+            } else {
+                processingRequestService.updateState(processingRequest, ProcessState.WAITING);
+            }
+        }
+        return admitted;
+    }
+
+    private long allowed(Investigator investigator) {
+        if (investigator == null) {
+            return 0;
+        }
+        long running = processingRequestService.countByStateAndInvestigator(ProcessState.PROCESSING, investigator.getId());
+        return Math.max(0, maxRunningRequests(investigator) - running);
+    }
+
+    private boolean hasWaitingAhead(Long investigatorId, ProcessingRequest processingRequest) {
+        return processingRequestService.countByStateAndInvestigatorUpToPriority(ProcessState.WAITING, investigatorId,
+                Priority.fromLevel(processingRequest.getPriority())) > 0;
+    }
+
+    /**
+     * Selecciona las próximas solicitudes en espera que deben enviarse: entre los investigadores que
+     * tienen capacidad y fichas disponibles, elige en cada turno al que tenga la solicitud de mayor
+     * prioridad y, a igual prioridad, al de menor tiempo virtual de finalización, que avanza de forma
+     * inversa a su peso. El tiempo virtual toma el de la última solicitud seleccionada.
+     * Las solicitudes se retornan aún EN ESPERA, así ningún envío nuevo del investigador se les
+     * adelanta mientras se procesan
+     * @param size máximo de solicitudes a seleccionar
+     * @return
+     */
+    public synchronized List<ProcessingRequest> nextWaiting(int size) {
+        if (!admissionConf.isEnabled()) {
+            return processingRequestService.findNextByState(ProcessState.WAITING, size);
+        }
+        Map<Long, TreeMap<Integer, Long>> waiting = processingRequestService.countByStateGroupByInvestigatorAndPriority(ProcessState.WAITING);
+        if (waiting.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Long> running = processingRequestService.countByStateGroupByInvestigator(ProcessState.PROCESSING);
+        Map<Long, Investigator> investigators = new HashMap<>();
+        for (Long investigatorId : waiting.keySet()) {
+            investigators.put(investigatorId, investigatorService.findById(investigatorId));
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Long, Double> headTags = new HashMap<>();
+        Map<Long, Integer> selected = new LinkedHashMap<>();
+        List<Long> order = new ArrayList<>();
+        while (order.size() < size) {
+            Long next = null;
+            int nextLevel = 0;
+            double nextFinishTag = 0;
+            for (Map.Entry<Long, TreeMap<Integer, Long>> entry : waiting.entrySet()) {
+                Long investigatorId = entry.getKey();
+                Investigator investigator = investigators.get(investigatorId);
+                int taken = selected.getOrDefault(investigatorId, 0);
+                if (investigator == null || entry.getValue().isEmpty()
+                        || running.getOrDefault(investigatorId, 0L) + taken >= maxRunningRequests(investigator)
+                        || bucket(investigator, now).available(now) < 1) {
+                    continue;
+                }
+                int level = entry.getValue().firstKey();
+                double finishTag = headTags.computeIfAbsent(investigatorId, key -> finishTag(investigator));
+                if (next == null || level < nextLevel || (level == nextLevel && (finishTag < nextFinishTag
+                        || (finishTag == nextFinishTag && investigatorId < next)))) {
+                    next = investigatorId;
+                    nextLevel = level;
+                    nextFinishTag = finishTag;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Investigator investigator = investigators.get(next);
+            bucket(investigator, now).tryAcquire(now);
+            finishTags.put(next, nextFinishTag);
+            virtualTime = Math.max(virtualTime, nextFinishTag);
+            headTags.put(next, nextFinishTag + 1d / shareWeight(investigator));
+            waiting.get(next).computeIfPresent(nextLevel, (key, count) -> count > 1 ? count - 1 : null);
+            selected.merge(next, 1, Integer::sum);
+            order.add(next);
+        }
+
+        Map<Long, Iterator<ProcessingRequest>> nextByInvestigator = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : selected.entrySet()) {
+            nextByInvestigator.put(entry.getKey(), processingRequestService
+                    .findNextByStateAndInvestigator(ProcessState.WAITING, entry.getKey(), entry.getValue()).iterator());
+        }
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        for (Long investigatorId : order) {
+            Iterator<ProcessingRequest> iterator = nextByInvestigator.get(investigatorId);
+            if (iterator.hasNext()) {
+                listProcessingRequest.add(iterator.next());
+            }
+        }
+        return listProcessingRequest;
+    }
+
+    /**
+     * Devuelve la ficha de una solicitud admitida que finalmente no se envió
+     * @param processingRequest
+     */
+    public void refund(ProcessingRequest processingRequest) {
+        TokenBucket bucket = buckets.get(processingRequestService.investigatorId(processingRequest.getInvestigator()));
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    /**
+     * Describe la posición de una solicitud en espera dentro de la cola de su investigador
+     * @param processIdentifier
+     * @return
+     * @throws ValidateException
+     */
+    public String queuePosition(String processIdentifier) throws ValidateException {
+        ProcessingRequest processingRequest = processingRequestService.validateAndFindByIdentifier(processIdentifier);
+        if (!ProcessState.WAITING.getState().equals(processingRequest.getState())) {
+            return String.format(PROCESS_NOT_WAITING, processingRequest.getIdentifier(), processingRequest.getState());
+        }
+        Long investigatorId = processingRequestService.investigatorId(processingRequest.getInvestigator());
+        Investigator investigator = investigatorService.findById(investigatorId);
+        return String.format(QUEUE_POSITION, processingRequest.getIdentifier(),
+                processingRequestService.countAhead(processingRequest) + 1,
+                processingRequestService.countByStateAndInvestigator(ProcessState.WAITING, investigatorId),
+                processingRequestService.countByStateAndInvestigator(ProcessState.PROCESSING, investigatorId),
+                maxRunningRequests(investigator),
+                processingRequestService.countByState(ProcessState.WAITING));
+    }
+
+    /**
+     * Consume una ficha del investigador y avanza su tiempo virtual de finalización, así los envíos
+     * admitidos directamente también cuentan en su turno de la cola justa
+     */
+    private boolean consume(Investigator investigator, long now) {
+        if (!bucket(investigator, now).tryAcquire(now)) {
+            return false;
+        }
+        finishTags.put(investigator.getId(), finishTag(investigator));
+        return true;
+    }
+
+    /**
+     * Tiempo virtual de finalización del siguiente envío del investigador (self-clocked fair queuing):
+     * parte del mayor entre el tiempo virtual actual y su última finalización, y avanza 1 / peso
+     */
+    private double finishTag(Investigator investigator) {
+        return Math.max(virtualTime, finishTags.getOrDefault(investigator.getId(), 0d)) + 1d / shareWeight(investigator);
+    }
+
+    /**
+     * Fichas del investigador, se reemplazan si su tasa configurada cambió
+     */
+    private TokenBucket bucket(Investigator investigator, long now) {
+        int requestsPerMinute = investigator.getRequestsPerMinute() != null
+                ? investigator.getRequestsPerMinute() : admissionConf.getRequestsPerMinute();
+        return buckets.compute(investigator.getId(), (key, current) -> current == null
+                || current.getRequestsPerMinute() != requestsPerMinute || current.getCapacity() != Math.max(1, admissionConf.getBurst())
+                ? new TokenBucket(admissionConf.getBurst(), requestsPerMinute, now) : current);
+    }
+
+    private int maxRunningRequests(Investigator investigator) {
+        return investigator.getMaxRunningRequests() != null
+                ? investigator.getMaxRunningRequests() : admissionConf.getMaxRunningRequests();
+    }
+
+    private int shareWeight(Investigator investigator) {
+        return Math.max(1, investigator.getShareWeight() != null ? investigator.getShareWeight() : admissionConf.getShareWeight());
+    }
+
+}
@@ -1,23 +1,41 @@
 package co.edu.itm.clinicaldata.service;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import co.edu.itm.clinicaldata.backend.ClusterBackend;
+import co.edu.itm.clinicaldata.cache.CompileCache;
+import co.edu.itm.clinicaldata.cache.ScriptTemplate;
+import co.edu.itm.clinicaldata.cache.TemplateRegistry;
 import co.edu.itm.clinicaldata.component.Commands;
+import co.edu.itm.clinicaldata.component.DirectoryWatcher;
 import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.component.JavaSourceCompiler;
 import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.dto.CompilationDiagnostic;
+import co.edu.itm.clinicaldata.dto.JobStatus;
 import co.edu.itm.clinicaldata.dto.Output;
 import co.edu.itm.clinicaldata.enums.Language;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.ProcessResource;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.queue.PrioritizedTask;
 import co.edu.itm.clinicaldata.queue.ProcessQueue;
+import co.edu.itm.clinicaldata.queue.QueuedProcess;
 import co.edu.itm.clinicaldata.util.Constants;
 import co.edu.itm.clinicaldata.util.Validations;
 
@@ -25,9 +43,14 @@ import co.edu.itm.clinicaldata.util.Validations;
 public class ClusterService {
 
     private static final String LANGUAGE_NOT_SUPPORTED = "El lenguaje enviado a ejecutar no se encuentra configurado";
-    private static final String SYSTEM_NOT_VALID = "Sistema no válido para ejecución de archivos con comandos qsub";
     private static final String TEMPLATE_FILE_NOT_EXISTS = "El template <%s> no existe actualmente en el servidor, favor solicitar configuración al administrador";
+    private static final String CANCEL_FAILED = "No fue posible cancelar en el cluster el trabajo de la solicitud <%s> (trabajo <%s>)";
+    private static final String PROCESS_CANCELLED = "Cancelada por el usuario, trabajo <%s>";
+    private static final String PROCESS_CANCELLED_BEFORE_SUBMIT = "La solicitud <%s> fue cancelada durante su envío al cluster";
+    private static final String PROCESS_FINISHED_BEFORE_CANCEL = "La solicitud <%s> terminó mientras se cancelaba. Estado actual <%s>";
     private static final String ERROR_CREATING_FILE = "Ocurrió un error creando el archivo .sh en el directorio";
+    private static final String JOB_LOST = "El planificador del cluster ya no conoce el trabajo <%s> y no se generaron archivos de salida";
+    private static final String JOB_KILLED = "El trabajo <%s> terminó en el planificador (estado <%s>, código de salida <%s>) sin generar archivos de salida";
 
     private static final Logger LOGGER = Logger.getLogger(ClusterService.class.getName());
 
@@ -43,14 +66,137 @@ public class ClusterService {
     @Autowired
     FolderConf folderConf;
 
+    @Autowired
+    ProcessQueue processQueue;
+
+    @Autowired
+    DirectoryWatcher directoryWatcher;
+
+    @Autowired
+    JavaSourceCompiler javaSourceCompiler;
+
+    @Autowired
+    CompileCache compileCache;
+
+    @Autowired
+    TemplateRegistry templateRegistry;
+
+    @Autowired
+    ClusterBackend clusterBackend;
+
+    @Autowired
+    MonitorConf monitorConf;
+
+    @Autowired
+    @Qualifier("submissionExecutor")
+    TaskExecutor submissionExecutor;
+
     /**
-     * Crea los archivos necesarios para enviar a través del comando qsub una solicitud
-     * de procesamiento al servidor
+     * Encola en el executor de envío, según la prioridad de la solicitud, la creación de los archivos
+     * necesarios y el envío a través del backend configurado
      * @param processingRequest
+     * @param listProcessResource
+     * @throws TaskRejectedException si el executor de envío no tiene capacidad
      */
-    @Async
     public void sendProcessToCluster(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource) {
+        submissionExecutor.execute(new PrioritizedTask(Priority.fromLevel(processingRequest.getPriority()),
+                () -> submitProcess(processingRequest, listProcessResource)));
+    }
+
+    /**
+     * Crea los archivos necesarios para enviar a través del backend configurado una solicitud
+     * de procesamiento al servidor
+     * @param processingRequest
+     * @param listProcessResource
+     */
+    void submitProcess(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource) {
         LOGGER.info(String.format("Iniciando proceso de envío a cluster, el identificador de la solicitud es <%s>", processingRequest.getIdentifier()));
+        Output output = prepareProcess(processingRequest, listProcessResource);
+        if (isPrepared(output)) {
+            if (isCancelled(processingRequest)) {
+                LOGGER.info(String.format(PROCESS_CANCELLED_BEFORE_SUBMIT, processingRequest.getIdentifier()));
+                return;
+            }
+            output = clusterBackend.submit(processingRequest);
+        }
+        LOGGER.info(String.format("Finalizado el proceso de envío a cluster, el estado de la solicitud es <%s>", output.getState()));
+
+        updateSubmittedRequest(processingRequest, output);
+    }
+
+    /**
+     * Encola en el executor de envío el envío conjunto de las solicitudes, con la mayor prioridad entre ellas
+     * @param listProcessingRequest
+     * @param resourcesByIdentifier recursos requeridos por cada solicitud, por su identificador
+     * @throws TaskRejectedException si el executor de envío no tiene capacidad
+     */
+    public void sendBatchToCluster(List<ProcessingRequest> listProcessingRequest, Map<String, List<ProcessResource>> resourcesByIdentifier) {
+        submissionExecutor.execute(new PrioritizedTask(highestPriority(listProcessingRequest),
+                () -> submitBatch(listProcessingRequest, resourcesByIdentifier)));
+    }
+
+    private Priority highestPriority(List<ProcessingRequest> listProcessingRequest) {
+        Priority highest = Priority.BULK;
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            highest = highest.higher(Priority.fromLevel(processingRequest.getPriority()));
+        }
+        return highest;
+    }
+
+    /**
+     * Prepara todas las solicitudes y las envía juntas al backend configurado, con qsub como un único
+     * arreglo de trabajos. Las solicitudes que no se pudieron preparar terminan individualmente sin ser enviadas
+     * @param listProcessingRequest
+     * @param resourcesByIdentifier recursos requeridos por cada solicitud, por su identificador
+     */
+    void submitBatch(List<ProcessingRequest> listProcessingRequest, Map<String, List<ProcessResource>> resourcesByIdentifier) {
+        LOGGER.info(String.format("Iniciando envío a cluster de <%d> solicitudes en un arreglo de trabajos", listProcessingRequest.size()));
+        List<ProcessingRequest> prepared = new ArrayList<>();
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            Output output = prepareProcess(processingRequest, resourcesByIdentifier.get(processingRequest.getIdentifier()));
+            if (isPrepared(output)) {
+                prepared.add(processingRequest);
+            } else {
+                updateProcessingRequest(processingRequest, output);
+            }
+        }
+        if (!prepared.isEmpty()) {
+            List<Output> outputs = clusterBackend.submitBatch(prepared);
+            for (int i = 0; i < prepared.size(); i++) {
+                updateSubmittedRequest(prepared.get(i), outputs.get(i));
+            }
+        }
+    }
+
+    /**
+     * Guarda el resultado del envío y, si la solicitud quedó en ejecución, la pone en seguimiento.
+     * El seguimiento comienza luego de guardar para que el monitor no valide la solicitud antes
+     * de conocer su trabajo
+     * @param processingRequest
+     * @param output
+     */
+    private void updateSubmittedRequest(ProcessingRequest processingRequest, Output output) {
+        if (!updateProcessingRequest(processingRequest, output, null)) {
+            // Se canceló mientras se enviaba, el trabajo recién creado se cancela sin sobrescribir el estado
+            LOGGER.info(String.format(PROCESS_CANCELLED_BEFORE_SUBMIT, processingRequest.getIdentifier()));
+            if (output.getState().equals(ProcessState.PROCESSING.getState())) {
+                clusterBackend.cancel(processingRequest.getJobId());
+            }
+            return;
+        }
+        if (output.getState().equals(ProcessState.PROCESSING.getState())) {
+            processQueue.add(processingRequest.getIdentifier(), processingRequest.getJobId());
+            watchResponseFiles(processingRequest);
+        }
+    }
+
+    /**
+     * Compila si es necesario y crea el archivo .sh de la solicitud según su lenguaje
+     * @param processingRequest
+     * @param listProcessResource
+     * @return salida sin estado si la solicitud quedó lista para ser enviada al cluster
+     */
+    private Output prepareProcess(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource) {
         Output output = new Output();
         if (processingRequest.getLanguage().equals(Language.JAVA.getName())) {
             output = javaProcess(processingRequest, listProcessResource);
@@ -64,9 +210,11 @@ public class ClusterService {
             output.setResult(LANGUAGE_NOT_SUPPORTED);
             output.setState(ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
         }
-        LOGGER.info(String.format("Finalizado el proceso de envío a cluster, el estado de la solicitud es <%s>", output.getState()));
+        return output;
+    }
 
-        updateProcessingRequest(processingRequest, output);
+    private boolean isPrepared(Output output) {
+        return Validations.field(output.getState());
     }
 
     /**
@@ -78,9 +226,7 @@ public class ClusterService {
         Output output = new Output();
 
         boolean fileCreated = createBourneShellScript(processingRequest, command);
-        if(fileCreated){
-            output = executeQsub(processingRequest);
-        }else{
+        if(!fileCreated){
             output.setResult(ERROR_CREATING_FILE);
             output.setState(ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
         }
@@ -88,38 +234,95 @@ public class ClusterService {
         return output;
     }
 
+    private boolean isCancelled(ProcessingRequest processingRequest) {
+        ProcessingRequest current = processingRequestService.findByIdentifier(processingRequest.getIdentifier());
+        return current != null && ProcessState.CANCELLED.getState().equals(current.getState());
+    }
+
     /**
-     * Ejecuta el archivo previamente creado y lo encola a través del comando qsub en el servidor
-     * Si el sistema operativo no es linux termina la ejecución sin acciones
+     * Cancela el trabajo de la solicitud en el backend, la retira del monitor y la deja cancelada.
+     * Si la solicitud aún no tiene trabajo, el envío en curso la encuentra cancelada y no la envía;
+     * si recibió su trabajo mientras se cancelaba, se cancela nuevamente con ese trabajo
      * @param processingRequest
-     * @param output
+     * @throws ValidateException si el backend no aceptó la cancelación o la solicitud ya terminó
      */
-    private Output executeQsub(ProcessingRequest processingRequest) {
+    public void cancelProcess(ProcessingRequest processingRequest) throws ValidateException {
+        String jobId = processingRequest.getJobId();
+        if (jobId != null && !clusterBackend.cancel(jobId)) {
+            throw new ValidateException(String.format(CANCEL_FAILED, processingRequest.getIdentifier(), jobId));
+        }
+        processQueue.remove(processingRequest.getIdentifier());
+        directoryWatcher.unregister(processingRequest.getBasePath());
         Output output = new Output();
-        if(fileUtilities.isLinux()){
-            String result = "";
-            ProcessState processState = null;
-            Output executeOutput = commands.executeCommand(Constants.QSUB_COMMAND, processingRequest.getBasePath() + folderConf.getShFileName());
-            if (!Validations.field(executeOutput.getError())) {
-                result = executeOutput.getError();
-                processState = ProcessState.FINISHED_WITH_ERRORS;
-                LOGGER.info("Archivo enviado al cluster presenta errores");
-            } else {
-                result = executeOutput.getResult();
-                processState = ProcessState.PROCESSING;
-                LOGGER.info("Archivo enviado al cluster ok");
-                ProcessQueue.getInstance().add(processingRequest.getIdentifier());
+        output.setResult(String.format(PROCESS_CANCELLED, jobId));
+        output.setState(ProcessState.CANCELLED.getState());
+        if (!updateProcessingRequest(processingRequest, output, jobId)) {
+            ProcessingRequest current = processingRequestService.findByIdentifier(processingRequest.getIdentifier());
+            if (!current.getState().equals(ProcessState.PROCESSING.getState())) {
+                throw new ValidateException(String.format(PROCESS_FINISHED_BEFORE_CANCEL, current.getIdentifier(), current.getState()));
             }
-            output.setResult(result);
-            output.setState(processState.getState());
-        }else{
-            output.setResult(SYSTEM_NOT_VALID);
-            output.setState(ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
+            cancelProcess(current);
         }
-        return output;
     }
 
+    /**
+     * Compila el archivo .java de la solicitud, dentro de la JVM cuando el compilador está disponible
+     * o ejecutando el comando javac en caso contrario. Si el mismo código fuente con los mismos
+     * recursos ya fue compilado, recupera los .class de la cache de compilación
+     * @param processingRequest
+     * @param listProcessResource
+     * @return
+     */
     private Output compileJavaFile(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource){
+        Output output = new Output();
+        String cacheKey = null;
+        boolean restored = false;
+        if (compileCache.isEnabled() && !Validations.field(processingRequest.getChecksum())) {
+            cacheKey = compileCache.key(processingRequest.getFileName(), processingRequest.getChecksum(),
+                    buildResourcesClasspath(processingRequest, listProcessResource));
+            restored = compileCache.restore(cacheKey, processingRequest.getBasePath());
+        }
+        if (restored) {
+            LOGGER.info(String.format("Clase recuperada de la cache de compilación <%s>", cacheKey));
+        } else {
+            output = javaSourceCompiler.isAvailable()
+                    ? compileJavaFileInProcess(processingRequest, listProcessResource)
+                    : compileJavaFileWithCommand(processingRequest, listProcessResource);
+            if (cacheKey != null && Validations.field(output.getError())) {
+                compileCache.store(cacheKey, processingRequest.getBasePath());
+            }
+        }
+        return output;
+    }
+
+    private Output compileJavaFileInProcess(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource){
+        Output output = new Output();
+        try {
+            byte[] source = fileUtilities.readBytes(buildFilePath(processingRequest.getBasePath(), processingRequest.getFileName()));
+            List<CompilationDiagnostic> diagnostics = javaSourceCompiler.compile(
+                    FilenameUtils.getBaseName(processingRequest.getFileName()),
+                    source, processingRequest.getBasePath(),
+                    buildResourcesClasspath(processingRequest, listProcessResource));
+            output.setDiagnostics(diagnostics);
+            if (!diagnostics.isEmpty()) {
+                output.setError(formatDiagnostics(diagnostics));
+            }
+        } catch (ValidateException e) {
+            output.setError(e.getMessage());
+        }
+        return output;
+    }
+
+    private String formatDiagnostics(List<CompilationDiagnostic> diagnostics) {
+        StringBuilder error = new StringBuilder();
+        for (CompilationDiagnostic diagnostic : diagnostics) {
+            error.append(diagnostic.toString());
+            error.append(System.lineSeparator());
+        }
+        return error.toString();
+    }
+
+    private Output compileJavaFileWithCommand(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource){
         String compileCommand = null;
         String compileBaseCommand = null;
         if (!Validations.field(listProcessResource)) {
@@ -184,18 +387,20 @@ public class ClusterService {
     }
 
     /**
-     * Consulta el contenido de un archivo previamente configurado en el servidor,
-     * con el contenido crea un archivo .sh en el folder del procesamiento
+     * Genera a partir del template del lenguaje configurado en el servidor
+     * un archivo .sh en el folder del procesamiento
      * @param processingRequest
      * @param command
      */
     private boolean createBourneShellScript(ProcessingRequest processingRequest, String command) {
         boolean fileCreated = false;
-        String templateLanguageFolder = fileUtilities.templateLanguageFolder(processingRequest.getLanguage());
-        String readedContent = fileUtilities.readFile(templateLanguageFolder + folderConf.getTemplateName());
-        readedContent = readedContent.replace(folderConf.getKeyToReplace(), command);
+        ScriptTemplate template = templateRegistry.get(processingRequest.getLanguage());
+        if (template == null) {
+            LOGGER.info(String.format(TEMPLATE_FILE_NOT_EXISTS, folderConf.getTemplateName()));
+            return fileCreated;
+        }
         try {
-            fileUtilities.createFile(readedContent.getBytes(), processingRequest.getBasePath() + folderConf.getShFileName());
+            fileUtilities.createFile(template.render(command), processingRequest.getBasePath() + folderConf.getShFileName());
             fileCreated = true;
         } catch (ValidateException e) {
             LOGGER.info(ERROR_CREATING_FILE);
@@ -218,15 +423,45 @@ public class ClusterService {
         return resourcesPath.toString();
     }
 
+    /**
+     * Construye la lista de rutas de los resources requeridos en el procesamiento
+     * @param processingRequest
+     * @param listProcessResource
+     * @return
+     */
+    private List<String> buildResourcesClasspath(ProcessingRequest processingRequest, List<ProcessResource> listProcessResource) {
+        List<String> classpath = new ArrayList<>();
+        if (!Validations.field(listProcessResource)) {
+            String resourceLanguageFolder = fileUtilities.resourceLanguageFolder(processingRequest.getLanguage());
+            for (ProcessResource processResource : listProcessResource) {
+                classpath.add(resourceLanguageFolder + processResource.getName());
+            }
+        }
+        return classpath;
+    }
+
     /**
      * Actualiza una solicitud, modificando su estado actual
      * @param processingRequest
      * @param output
+     * @return false si la solicitud cambió y no se actualizó
+     */
+    private boolean updateProcessingRequest(ProcessingRequest processingRequest, Output output) {
+        return updateProcessingRequest(processingRequest, output, processingRequest.getJobId());
+    }
+
+    /**
+     * Guarda la salida solo si la solicitud sigue en progreso con el trabajo esperado, así el
+     * envío o el monitor no sobrescriben una cancelación concurrente
+     * @param processingRequest
+     * @param output
+     * @param expectedJobId trabajo que tenía la solicitud antes de esta actualización
+     * @return false si la solicitud cambió y no se actualizó
      */
-    private void updateProcessingRequest(ProcessingRequest processingRequest, Output output) {
+    private boolean updateProcessingRequest(ProcessingRequest processingRequest, Output output, String expectedJobId) {
         processingRequest.setResult(output.getResult());
         processingRequest.setState(output.getState());
-        processingRequestService.update(processingRequest);
+        return processingRequestService.updateIfCurrent(processingRequest, ProcessState.PROCESSING, expectedJobId);
     }
 
     private String buildFilePath(String basePath, String fileName) {
@@ -243,49 +478,137 @@ public class ClusterService {
      * @return
      */
     public boolean validateProcessState(String identifier) {
+        return validateProcessState(identifier, null);
+    }
+
+    /**
+     * @param identifier
+     * @param unsettled solicitud de la cola cuyo trabajo no tiene estado del planificador, su salida solo
+     * se toma cuando los archivos no cambiaron desde la validación anterior; null para tomarla apenas exista
+     * @return
+     */
+    private boolean validateProcessState(String identifier, QueuedProcess unsettled) {
         boolean hasEndProcess = false;
         ProcessingRequest processingRequest = processingRequestService.findByIdentifier(identifier);
-        LOGGER.info(String.format("Solicitud %s con estado %s comienza a ser validada", identifier, processingRequest.getState()));
-        if (!processingRequest.getState().equals(ProcessState.PROCESSING.getState())) {
+        if (processingRequest == null) {
+            LOGGER.info(String.format("Solicitud %s no existe, se deja de validar", identifier));
+            hasEndProcess = true;
+        } else if (!processingRequest.getState().equals(ProcessState.PROCESSING.getState())) {
             hasEndProcess = true;
         } else {
-            hasEndProcess = validateResponseExistence(processingRequest);
+            LOGGER.info(String.format("Solicitud %s con estado %s comienza a ser validada", identifier, processingRequest.getState()));
+            hasEndProcess = (unsettled == null || unsettled.outputSettled(outputSignature(processingRequest)))
+                    && validateResponseExistence(processingRequest);
+        }
+        if (hasEndProcess && processingRequest != null) {
+            directoryWatcher.unregister(processingRequest.getBasePath());
         }
         return hasEndProcess;
     }
 
     /**
-     * Valida si existe archivo .out o .err dentro del folder de creación del qsub
-     * @param processingRequest
-     * @return
+     * Consulta al backend, con una sola invocación, el estado de todos los trabajos
+     * @param jobIds
+     * @return estado de los trabajos que el planificador conoce, por su identificador;
+     * null si la consulta no está disponible y se debe validar únicamente por los archivos de salida
      */
-    private boolean validateResponseExistence(ProcessingRequest processingRequest) {
-        ProcessState processState = null;
-        String result = "";
-        boolean hasEndProcess = false;
-        String outputPathFile = processingRequest.getBasePath() + folderConf.getLogOutputFile();
-        boolean exists = fileUtilities.existsFile(outputPathFile);
-        if (exists) {
-            hasEndProcess = true;
-            result = fileUtilities.readFile(outputPathFile);
-            processState = ProcessState.FINISHED_OK;
-        } else {
-            String errorPathFile = processingRequest.getBasePath() + folderConf.getErrOutputFile();
-            exists = fileUtilities.existsFile(errorPathFile);
-            if (exists) {
+    public Map<String, JobStatus> queryJobStatuses(Collection<String> jobIds) {
+        return jobIds.isEmpty() ? null : clusterBackend.poll(jobIds);
+    }
+
+    /**
+     * Informa al backend los trabajos de las solicitudes de la cola, para que libere los recursos
+     * que mantiene de los trabajos que ya terminaron o fueron cancelados
+     */
+    public void releaseFinishedJobs() {
+        clusterBackend.retainJobs(processQueue.jobIds());
+    }
+
+    /**
+     * Valida una solicitud de la cola usando el estado reportado por el planificador: mientras el trabajo
+     * esté en cola o en ejecución no se consultan los archivos de salida. Si el planificador lo reporta
+     * terminado o ya no lo conoce y los archivos de salida no aparecen luego del periodo de gracia,
+     * la solicitud termina con errores
+     * @param queuedProcess
+     * @param jobStatuses resultado de {@link #queryJobStatuses(Collection)}, puede ser null
+     * @return true si la solicitud terminó
+     */
+    public boolean validateProcessState(QueuedProcess queuedProcess, Map<String, JobStatus> jobStatuses) {
+        String jobId = queuedProcess.getJobId();
+        boolean schedulerKnown = jobStatuses != null && jobId != null;
+        JobStatus jobStatus = schedulerKnown ? jobStatuses.get(jobId) : null;
+        if (jobStatus != null && !jobStatus.isFinished()) {
+            return false;
+        }
+        // Sin estado del planificador no se sabe si el trabajo terminó de escribir su salida (por ejemplo
+        // si el planificador la copia al folder), se espera a que los archivos no cambien entre dos validaciones
+        boolean hasEndProcess = validateProcessState(queuedProcess.getIdentifier(), schedulerKnown ? null : queuedProcess);
+        if (!hasEndProcess && schedulerKnown) {
+            long now = System.currentTimeMillis();
+            if (now - queuedProcess.finishedSince(now) >= monitorConf.getLostGracePeriod()) {
+                finishLostJob(queuedProcess.getIdentifier(), jobId, jobStatus);
                 hasEndProcess = true;
-                result = fileUtilities.readFile(errorPathFile);
-                processState = ProcessState.FINISHED_WITH_ERRORS;
             }
         }
+        return hasEndProcess;
+    }
+
+    private void finishLostJob(String identifier, String jobId, JobStatus jobStatus) {
+        ProcessingRequest processingRequest = processingRequestService.findByIdentifier(identifier);
+        if (processingRequest == null || !processingRequest.getState().equals(ProcessState.PROCESSING.getState())) {
+            return;
+        }
+        Output output = new Output();
+        output.setResult(jobStatus == null
+                ? String.format(JOB_LOST, jobId)
+                : String.format(JOB_KILLED, jobId, jobStatus.getState(), jobStatus.getExitStatus()));
+        output.setState(ProcessState.FINISHED_WITH_ERRORS.getState());
+        LOGGER.info(output.getResult());
+        updateProcessingRequest(processingRequest, output);
+        directoryWatcher.unregister(processingRequest.getBasePath());
+    }
 
-        if (exists) {
-            Output output = new Output();
-            output.setResult(result);
-            output.setState(processState.getState());
+    /**
+     * Tamaño y fecha de modificación de los archivos .out y .err de la solicitud
+     * @param processingRequest
+     * @return
+     */
+    private String outputSignature(ProcessingRequest processingRequest) {
+        StringBuilder signature = new StringBuilder();
+        for (String fileName : Arrays.asList(folderConf.getLogOutputFile(), folderConf.getErrOutputFile())) {
+            File file = new File(processingRequest.getBasePath(), fileName);
+            signature.append(file.length()).append(':').append(file.lastModified()).append(';');
+        }
+        return signature.toString();
+    }
+
+    /**
+     * Observa el folder de la solicitud para validarla apenas aparezca el archivo .out o .err,
+     * sin esperar a la siguiente validación por sondeo. Los backends escriben la salida en temporales
+     * y la renombran al terminar, así la aparición de estos archivos indica que el trabajo finalizó
+     * @param processingRequest
+     */
+    public void watchResponseFiles(ProcessingRequest processingRequest) {
+        String identifier = processingRequest.getIdentifier();
+        directoryWatcher.register(processingRequest.getBasePath(), file -> {
+            String fileName = file.getFileName().toString();
+            if (fileName.equals(folderConf.getLogOutputFile()) || fileName.equals(folderConf.getErrOutputFile())) {
+                processQueue.markDue(identifier);
+            }
+        });
+    }
+
+    /**
+     * Valida si el backend ya dejó la salida del trabajo y actualiza la solicitud con ella
+     * @param processingRequest
+     * @return
+     */
+    private boolean validateResponseExistence(ProcessingRequest processingRequest) {
+        Output output = clusterBackend.fetchOutput(processingRequest);
+        if (output != null) {
             updateProcessingRequest(processingRequest, output);
         }
-        return hasEndProcess;
+        return output != null;
     }
 
     /**
@@ -295,9 +618,7 @@ public class ClusterService {
      * @throws ValidateException
      */
     public void validateLanguageTemplate(ProcessingRequest processingRequest) throws ValidateException{
-        String templateLanguageFolder = fileUtilities.templateLanguageFolder(processingRequest.getLanguage());
-        boolean exists = fileUtilities.existsFile(templateLanguageFolder + folderConf.getTemplateName());
-        if (!exists) {
+        if (templateRegistry.get(processingRequest.getLanguage()) == null) {
             throw new ValidateException(String.format(TEMPLATE_FILE_NOT_EXISTS,
                     folderConf.getTemplateName()));
         }
@@ -11,6 +11,7 @@ import org.springframework.web.multipart.MultipartFile;
 import co.edu.itm.clinicaldata.component.FileUtilities;
 import co.edu.itm.clinicaldata.component.RandomUtilities;
 import co.edu.itm.clinicaldata.enums.Language;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
@@ -40,23 +41,25 @@ public class FileService {
     /**
      * Se encarga de crear una solicitud con el archivo a procesar y le asigna un identificador único
      * @param file
-     * @param resources 
+     * @param investigatorId
+     * @param priority prioridad de la solicitud, NORMAL si no se envía
      * @return
      * @throws ValidateException
      */
-    public String upload(MultipartFile file, Long investigatorId) throws ValidateException {
+    public String upload(MultipartFile file, Long investigatorId, String priority) throws ValidateException {
         String fileName = file.getOriginalFilename(); 
         Language language = getLanguage(fileName);
         Investigator investigator = investigatorService.validateAndFind(investigatorId);
-        byte[] bytes = fileUtilities.getBytesFromFile(file);
+        Priority validPriority = processingRequestService.validatePriority(priority);
 
         String identifier = randomUtilities.generateIdentifier();
         String basePath = fileUtilities.buildBasePath(language.getName(), identifier);
-        fileUtilities.createFile(bytes, buildPath(basePath, file.getOriginalFilename()));
+        String checksum = fileUtilities.storeFile(file, buildPath(basePath, file.getOriginalFilename()));
 
         ProcessingRequest processingRequest = processingRequestService
-                .create(identifier, language.getName(), bytes,
-                        fileName, basePath, investigator);
+                .create(identifier, language.getName(), checksum,
+                        fileName, basePath, investigator,
+                        validPriority != null ? validPriority : Priority.NORMAL);
 
         return String.format(UPLOAD_SUCCESSFUL, processingRequest.getIdentifier());
     }
@@ -19,6 +19,8 @@ public class InvestigatorService {
     private static final String INVESTIGATOR_NOT_FOUND = "El investigador con identificador <%d> no existe en la base de datos";
     private static final String INVESTIGATOR_ACTIVATED = "El investigador con identificador <%d> fue activado con éxito";
     private static final String INVESTIGATOR_INACTIVATED = "El investigador con identificador <%d> fue inactivado con éxito";
+    private static final String INVESTIGATOR_LIMITS_UPDATED = "Los límites de envío del investigador con identificador <%d> fueron actualizados, los campos vacíos toman el valor por defecto";
+    private static final String FIELD_NOT_VALID = "El campo <%s> no es válido, debe ser mayor a cero";
     private static final String INVESTIGATOR_EMAIL_NOT_VALID = "El campo <investigatorEmail> no es válido";
     private static final String INVESTIGATOR_NAME_NOT_VALID = "El campo <investigatorName> no es válido";
     private static final String INVESTIGATOR_ID_NOT_VALID = "El campo <investigatorId> no es válido";
@@ -63,6 +65,31 @@ public class InvestigatorService {
         return String.format(INVESTIGATOR_ACTIVATED, params.getInvestigatorId());
     }
 
+    /**
+     * Actualiza los límites de envío del investigador, un valor vacío
+     * indica que se usa el valor por defecto de la configuración (admission.*)
+     * @param params
+     * @return
+     * @throws ValidateException
+     */
+    public String updateLimits(Params params) throws ValidateException {
+        Investigator investigator = validateAndFind(params.getInvestigatorId());
+        validateLimit("maxRunningRequests", params.getMaxRunningRequests());
+        validateLimit("requestsPerMinute", params.getRequestsPerMinute());
+        validateLimit("shareWeight", params.getShareWeight());
+        investigator.setMaxRunningRequests(params.getMaxRunningRequests());
+        investigator.setRequestsPerMinute(params.getRequestsPerMinute());
+        investigator.setShareWeight(params.getShareWeight());
+        update(investigator);
+        return String.format(INVESTIGATOR_LIMITS_UPDATED, params.getInvestigatorId());
+    }
+
+    private void validateLimit(String field, Integer value) throws ValidateException {
+        if (value != null && value <= 0) {
+            throw new ValidateException(String.format(FIELD_NOT_VALID, field));
+        }
+    }
+
     public Investigator validateAndFind(Long investigatorId) throws ValidateException {
         validateInvestigatorId(investigatorId);
         Investigator investigator = findById(investigatorId);
@@ -0,0 +1,467 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import co.edu.itm.clinicaldata.cache.OutputChannelCache;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.configuration.OutputFollowConf;
+import co.edu.itm.clinicaldata.dto.OutputChunk;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.util.Validations;
+
+/**
+ * Descarga de los archivos de salida (.out y .err) de las solicitudes directamente desde disco,
+ * sin cargarlos en memoria:
+ * - con Tomcat se usa sendfile del conector, en otro caso FileChannel.transferTo
+ * - soporta un rango de bytes (Range: bytes=inicio-fin) para reanudar descargas o leer por partes
+ * - se comprime con gzip si el cliente lo acepta y no pidió un rango
+ * - HEAD retorna solo los metadatos (tamaño, fecha de modificación, estado) sin leer el archivo
+ * Mientras la solicitud está en progreso su salida se puede leer de forma incremental desde el
+ * archivo temporal, consultando por posición o suscribiéndose a un flujo Server-Sent Events
+ */
+@Service
+public class OutputService {
+
+    private static final String STREAM_OUT = "out";
+    private static final String STREAM_ERR = "err";
+    private static final String STREAM_NOT_VALID = "El campo <stream> no es válido, valores permitidos: out, err";
+    private static final String OUTPUT_NOT_FOUND = "La solicitud <%s> no tiene archivo de salida, su estado actual es <%s>";
+    private static final String ERROR_STREAMING = "La descarga de la salida de la solicitud <%s> fue interrumpida";
+    private static final String OFFSET_NOT_VALID = "La posición <%d> no es válida";
+    private static final String ERROR_READING_OUTPUT = "No fue posible leer la salida de la solicitud <%s>";
+    private static final String ERROR_SENDING_OUTPUT = "No fue posible enviar la salida de la solicitud <%s>, se cierra el seguimiento";
+    private static final String OUTPUT_EVENT = "output";
+    private static final String END_EVENT = "end";
+    // Los backends escriben la salida en un temporal y lo renombran al finalizar el trabajo
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String BYTES_UNIT = "bytes";
+    private static final String GZIP = "gzip";
+    private static final String PROCESS_STATE_HEADER = "X-Process-State";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Igual que el DefaultServlet de Tomcat, los archivos pequeños se escriben directamente
+    private static final long SENDFILE_MIN_SIZE = 48L * 1024;
+    // Archivos más pequeños no se comprimen, el encabezado de gzip no compensa
+    private static final long GZIP_MIN_SIZE = 1024L;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger LOGGER = Logger.getLogger(OutputService.class.getName());
+
+    @Autowired
+    ProcessingRequestService processingRequestService;
+
+    @Autowired
+    FolderConf folderConf;
+
+    @Autowired
+    OutputFollowConf outputFollowConf;
+
+    @Autowired
+    OutputChannelCache outputChannelCache;
+
+    private final Set<OutputFollower> followers = new CopyOnWriteArraySet<>();
+
+    /**
+     * Escribe en la respuesta el archivo de salida de la solicitud
+     * @param processIdentifier
+     * @param stream out, err o vacío para el .out si existe y si no el .err
+     * @param request
+     * @param response
+     * @throws ValidateException si la solicitud no existe o aún no tiene archivo de salida
+     * @throws IOException
+     */
+    public void writeOutput(String processIdentifier, String stream, HttpServletRequest request,
+            HttpServletResponse response) throws ValidateException, IOException {
+        ProcessingRequest processingRequest = processingRequestService.validateAndFindByIdentifier(processIdentifier);
+        File file = outputFile(processingRequest, stream);
+        long size = file.length();
+
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=" + processingRequest.getIdentifier() + "." + extension(file));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(PROCESS_STATE_HEADER, processingRequest.getState());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.lastModified());
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        long[] range = range(rangeHeader, size);
+        if (range == null) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+            return;
+        }
+        long start = range[0];
+        long count = range[1] - range[0] + 1;
+        if (!Validations.field(rangeHeader) && count < size) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + range[0] + "-" + range[1] + "/" + size);
+        }
+
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        if (count == size && size >= GZIP_MIN_SIZE && acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            if (!head) {
+                transferGzip(processingRequest, file, response.getOutputStream());
+            }
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(count));
+        if (head || count == 0) {
+            return;
+        }
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        transfer(processingRequest, file, start, count, response.getOutputStream());
+    }
+
+    /**
+     * Archivo de salida solicitado. Los archivos solo existen cuando el trabajo terminó,
+     * los backends los renombran desde un temporal al finalizar
+     */
+    private File outputFile(ProcessingRequest processingRequest, String stream) throws ValidateException {
+        File out = new File(processingRequest.getBasePath(), folderConf.getLogOutputFile());
+        File err = new File(processingRequest.getBasePath(), folderConf.getErrOutputFile());
+        File file;
+        if (Validations.field(stream)) {
+            file = out.isFile() ? out : err;
+        } else if (STREAM_OUT.equalsIgnoreCase(stream)) {
+            file = out;
+        } else if (STREAM_ERR.equalsIgnoreCase(stream)) {
+            file = err;
+        } else {
+            throw new ValidateException(STREAM_NOT_VALID);
+        }
+        if (!file.isFile()) {
+            throw new ValidateException(String.format(OUTPUT_NOT_FOUND, processingRequest.getIdentifier(), processingRequest.getState()));
+        }
+        return file;
+    }
+
+    private String extension(File file) {
+        return file.getName().equals(folderConf.getErrOutputFile()) ? STREAM_ERR : STREAM_OUT;
+    }
+
+    /**
+     * Interpreta un encabezado Range con un solo rango: inicio-fin, inicio- o -últimos.
+     * Los encabezados con varios rangos o en otra unidad se ignoran y se envía el archivo completo
+     * @param rangeHeader
+     * @param size
+     * @return posiciones inicial y final (inclusive), o null si el rango no se puede satisfacer
+     */
+    long[] range(String rangeHeader, long size) {
+        long[] full = new long[] { 0, size - 1 };
+        if (Validations.field(rangeHeader) || !rangeHeader.startsWith(BYTES_UNIT + "=") || rangeHeader.contains(",")) {
+            return full;
+        }
+        String spec = rangeHeader.substring(BYTES_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return full;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException ex) {
+            return full;
+        }
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP);
+    }
+
+    /**
+     * Copia la porción del archivo con transferTo, sin pasar el contenido por el heap
+     */
+    private void transfer(ProcessingRequest processingRequest, File file, long start, long count, OutputStream outputStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_STREAMING, processingRequest.getIdentifier()));
+            throw ex;
+        }
+    }
+
+    private void transferGzip(ProcessingRequest processingRequest, File file, OutputStream outputStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                GZIPOutputStream gzip = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE)) {
+            WritableByteChannel target = Channels.newChannel(gzip);
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_STREAMING, processingRequest.getIdentifier()));
+            throw ex;
+        }
+    }
+
+    /**
+     * Lee la salida de la solicitud desde <offset>, hasta el tamaño máximo de porción configurado.
+     * Mientras la solicitud está en progreso se lee el archivo temporal
+     * @param processIdentifier
+     * @param stream out (por defecto) o err
+     * @param offset posición en bytes desde la que se lee, por defecto el inicio
+     * @return
+     * @throws ValidateException
+     */
+    public OutputChunk readChunk(String processIdentifier, String stream, Long offset) throws ValidateException {
+        long position = validateOffset(offset);
+        String followedStream = followedStream(stream);
+        ProcessingRequest processingRequest = processingRequestService.validateAndFindByIdentifier(processIdentifier);
+        // El estado se consulta antes de leer, si ya era final lo leído llega hasta el final de la salida
+        return read(processingRequest.getIdentifier(), processingRequest.getBasePath(), followedStream,
+                processingRequest.getState(), position);
+    }
+
+    /**
+     * Suscribe al cliente a la salida de la solicitud: se envía un evento <output> con cada porción
+     * nueva, cuyo id es la posición siguiente, y un evento <end> cuando la solicitud terminó y ya
+     * se envió toda su salida
+     * @param processIdentifier
+     * @param stream out (por defecto) o err
+     * @param offset posición en bytes desde la que se envía, por defecto el inicio
+     * @param lastEventId id del último evento recibido, para continuar luego de una reconexión
+     * @return
+     * @throws ValidateException
+     */
+    public SseEmitter follow(String processIdentifier, String stream, Long offset, Long lastEventId) throws ValidateException {
+        long position = validateOffset(offset != null ? offset : lastEventId);
+        String followedStream = followedStream(stream);
+        ProcessingRequest processingRequest = processingRequestService.validateAndFindByIdentifier(processIdentifier);
+        SseEmitter emitter = new SseEmitter(outputFollowConf.getStreamTimeout());
+        OutputFollower follower = new OutputFollower(processingRequest, followedStream, position, emitter);
+        followers.add(follower);
+        emitter.onCompletion(() -> followers.remove(follower));
+        emitter.onTimeout(() -> followers.remove(follower));
+        return emitter;
+    }
+
+    /**
+     * Envía a cada suscripción lo que se agregó a la salida desde el último envío
+     */
+    @Scheduled(fixedDelayString = "${outputFollow.pollInterval:1000}")
+    public void pushOutput() {
+        for (OutputFollower follower : followers) {
+            push(follower);
+        }
+    }
+
+    private void push(OutputFollower follower) {
+        try {
+            OutputChunk chunk = read(follower.identifier, follower.basePath, follower.stream, follower.state, follower.offset);
+            if (chunk.getData().isEmpty() && !chunk.isFinished()) {
+                // Sin datos nuevos: si la solicitud ya terminó se lee una vez más lo escrito antes de finalizar
+                follower.state = processingRequestService.validateAndFindStatusByIdentifier(follower.identifier).getState();
+                if (!isFinished(follower.state)) {
+                    return;
+                }
+                chunk = read(follower.identifier, follower.basePath, follower.stream, follower.state, follower.offset);
+            }
+            if (!chunk.getData().isEmpty()) {
+                follower.emitter.send(SseEmitter.event().name(OUTPUT_EVENT).id(String.valueOf(chunk.getNextOffset()))
+                        .data(chunk, MediaType.APPLICATION_JSON));
+                follower.offset = chunk.getNextOffset();
+            }
+            if (chunk.isFinished()) {
+                followers.remove(follower);
+                follower.emitter.send(SseEmitter.event().name(END_EVENT).data(chunk, MediaType.APPLICATION_JSON));
+                follower.emitter.complete();
+                outputChannelCache.release(channelKey(follower.identifier, follower.stream));
+            }
+        } catch (ValidateException | IOException | RuntimeException ex) {
+            // Una suscripción con error se cierra sin interrumpir el envío a las demás
+            LOGGER.info(String.format(ERROR_SENDING_OUTPUT, follower.identifier));
+            followers.remove(follower);
+            follower.emitter.completeWithError(ex);
+        }
+    }
+
+    private OutputChunk read(String identifier, String basePath, String stream, String state, long offset) throws ValidateException {
+        boolean finishedState = isFinished(state);
+        String fileName = STREAM_ERR.equals(stream) ? folderConf.getErrOutputFile() : folderConf.getLogOutputFile();
+        File file = new File(basePath, fileName);
+        File path = file.isFile() ? file : new File(basePath, fileName + TEMPORARY_SUFFIX);
+        String key = channelKey(identifier, stream);
+        try {
+            FileChannel channel;
+            long size;
+            ByteBuffer buffer;
+            try {
+                channel = outputChannelCache.channel(key, path.toPath());
+                if (channel == null) {
+                    return new OutputChunk(identifier, stream, state, offset, offset, "", finishedState);
+                }
+                size = channel.size();
+                buffer = readFrom(channel, offset, size);
+            } catch (ClosedChannelException ex) {
+                // El canal se cerró por inactividad mientras se leía, se abre de nuevo
+                outputChannelCache.release(key);
+                channel = outputChannelCache.channel(key, path.toPath());
+                size = channel == null ? offset : channel.size();
+                buffer = channel == null ? ByteBuffer.allocate(0) : readFrom(channel, offset, size);
+            }
+            boolean endOfOutput = offset + buffer.limit() >= size;
+            // No se corta un carácter a la mitad, salvo al final de la salida de una solicitud terminada
+            if (!(finishedState && endOfOutput)) {
+                buffer.limit(completeCharacters(buffer));
+            }
+            long nextOffset = offset + buffer.limit();
+            String data = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buffer).toString();
+            return new OutputChunk(identifier, stream, state, offset, nextOffset, data, finishedState && nextOffset >= size);
+        } catch (IOException ex) {
+            LOGGER.error(String.format(ERROR_READING_OUTPUT, identifier), ex);
+            throw new ValidateException(String.format(ERROR_READING_OUTPUT, identifier));
+        }
+    }
+
+    private ByteBuffer readFrom(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(size - offset, outputFollowConf.getMaxChunkSize())));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Cantidad de bytes del buffer sin el último carácter UTF-8 si está incompleto, el resto
+     * se envía en la siguiente porción
+     */
+    private int completeCharacters(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lead = limit - 1;
+        while (lead >= 0 && limit - lead < 4 && (buffer.get(lead) & 0xC0) == 0x80) {
+            lead--;
+        }
+        if (lead < 0) {
+            return limit;
+        }
+        int first = buffer.get(lead) & 0xFF;
+        int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+        return limit - lead < length ? lead : limit;
+    }
+
+    private long validateOffset(Long offset) throws ValidateException {
+        if (offset == null) {
+            return 0;
+        }
+        if (offset < 0) {
+            throw new ValidateException(String.format(OFFSET_NOT_VALID, offset));
+        }
+        return offset;
+    }
+
+    private String followedStream(String stream) throws ValidateException {
+        if (Validations.field(stream) || STREAM_OUT.equalsIgnoreCase(stream)) {
+            return STREAM_OUT;
+        }
+        if (STREAM_ERR.equalsIgnoreCase(stream)) {
+            return STREAM_ERR;
+        }
+        throw new ValidateException(STREAM_NOT_VALID);
+    }
+
+    private boolean isFinished(String state) {
+        ProcessState processState = ProcessState.fromState(state);
+        return processState != null && processState.isFinished();
+    }
+
+    private String channelKey(String identifier, String stream) {
+        return identifier + "." + stream;
+    }
+
+    /**
+     * Suscripción a la salida de una solicitud, con la posición hasta la que ya se envió
+     */
+    private static class OutputFollower {
+
+        private final String identifier;
+        private final String basePath;
+        private final String stream;
+        private final SseEmitter emitter;
+        private String state;
+        private long offset;
+
+        OutputFollower(ProcessingRequest processingRequest, String stream, long offset, SseEmitter emitter) {
+            this.identifier = processingRequest.getIdentifier();
+            this.basePath = processingRequest.getBasePath();
+            this.state = processingRequest.getState();
+            this.stream = stream;
+            this.offset = offset;
+            this.emitter = emitter;
+        }
+    }
+
+}
@@ -1,14 +1,24 @@
 package co.edu.itm.clinicaldata.service;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
-import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.SubmissionConf;
 import co.edu.itm.clinicaldata.dto.Params;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.enums.BackPressurePolicy;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.CapacityException;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessResource;
@@ -22,6 +32,19 @@ public class ProcessDataService {
     private static final String PROCESS_STATE_NOT_VALID = "La solicitud <%s> no se encuentra en un estado válido para ser procesada. Estado actual <%s>";
     private static final String PROCESS_STARTED = "Investigador <%s>, la solicitud <%s> ha comenzado a ser procesada por el cluster.";
     private static final String PROCESS_RESULT = "La solicitud <%s> ha terminado su procesamiento, su estado actual es <%s>, su resultado fue <%s>";
+    private static final String PROCESS_WAITING = "Investigador <%s>, el cluster se encuentra ocupado, la solicitud <%s> quedó en espera y será enviada cuando haya capacidad.";
+    private static final String PROCESS_REJECTED = "El cluster se encuentra ocupado, la solicitud <%s> no pudo ser enviada, intente nuevamente más tarde";
+    private static final String PROCESS_RESUMED = "La solicitud en espera <%s> fue enviada al cluster";
+    private static final String PROCESS_NO_LONGER_WAITING = "La solicitud <%s> dejó de estar en espera antes de su envío, no se envía al cluster";
+    private static final String BATCH_STARTED = "Investigador <%s>, <%d> solicitudes han comenzado a ser procesadas por el cluster en un solo envío.";
+    private static final String BATCH_WAITING = "Investigador <%s>, el cluster se encuentra ocupado, las <%d> solicitudes quedaron en espera y serán enviadas cuando haya capacidad.";
+    private static final String BATCH_REJECTED = "El cluster se encuentra ocupado, las <%d> solicitudes no pudieron ser enviadas, intente nuevamente más tarde";
+    private static final String BATCH_NOT_VALID = "El campo <identifiers> debe contener entre 1 y <%d> identificadores sin repetir";
+    private static final String PROCESS_THROTTLED = "Investigador <%s>, alcanzó su límite de solicitudes en progreso o de envíos por minuto, la solicitud <%s> quedó en espera y será enviada en su turno.";
+    private static final String BATCH_THROTTLED = "Investigador <%s>, alcanzó su límite de solicitudes en progreso o de envíos por minuto, las <%d> solicitudes quedaron en espera y serán enviadas en su turno.";
+    private static final String BATCH_PARTIALLY_THROTTLED = " Otras <%d> solicitudes quedaron en espera por los límites del investigador.";
+    private static final String PROCESS_ALREADY_FINISHED = "La solicitud <%s> ya terminó, no puede ser cancelada. Estado actual <%s>";
+    private static final String PROCESS_CANCELLED = "La solicitud <%s> fue cancelada";
     private static final String PROCESS_STATE = "La solicitud <%s> con fecha de creación <%s> se encuentra en estado <%s>";
 
     private static final Logger LOGGER = Logger.getLogger(ProcessDataService.class.getName());
@@ -39,7 +62,13 @@ public class ProcessDataService {
     ProcessResourceService processResourceService;
 
     @Autowired
-    FileUtilities fileUtilities;
+    SubmissionConf submissionConf;
+
+    @Autowired
+    ClusterConf clusterConf;
+
+    @Autowired
+    AdmissionService admissionService;
 
     /**
      * Se encarga de obtener el estado de una solicitud por medio de su identificador
@@ -48,11 +77,20 @@ public class ProcessDataService {
      * @throws ValidateException
      */
     public String processState(String processIdentifier) throws ValidateException {
-        ProcessingRequest processingRequest = processingRequestService
-                .validateAndFindByIdentifier(processIdentifier);
-        return String.format(PROCESS_STATE, processingRequest.getIdentifier(),
-                DateUtilities.timestampToString(processingRequest
-                        .getCreationDate()), processingRequest.getState());
+        ProcessStatus processStatus = processingRequestService
+                .validateAndFindStatusByIdentifier(processIdentifier);
+        return stateMessage(processStatus);
+    }
+
+    /**
+     * Construye el mensaje que describe el estado de una solicitud
+     * @param processStatus
+     * @return
+     */
+    public String stateMessage(ProcessStatus processStatus) {
+        return String.format(PROCESS_STATE, processStatus.getIdentifier(),
+                DateUtilities.timestampToString(processStatus
+                        .getCreationDate()), processStatus.getState());
     }
 
     /**
@@ -65,15 +103,13 @@ public class ProcessDataService {
         ProcessingRequest processingRequest = processingRequestService
                 .validateAndFindByIdentifier(processIdentifier);
         validateFinishedProcess(processingRequest);
-        String fullPath = getProcessFullPath(processingRequest);
-        String readedContent = fileUtilities.readFile(fullPath);
-        LOGGER.info("Contenido del archivo leído " + readedContent);
         return String.format(PROCESS_RESULT, processingRequest.getIdentifier(),
                 processingRequest.getState(), processingRequest.getResult());
     }
 
     /**
-     * Se encarga de comenzar el proceso de la solicitud previamente creada, envía al cluster el archivo a procesar
+     * Se encarga de comenzar el proceso de la solicitud previamente creada, envía al cluster el archivo a procesar.
+     * Si se envía <priority> reemplaza la prioridad asignada al cargar el archivo
      * @param params
      * @return
      * @throws ValidateException
@@ -82,6 +118,7 @@ public class ProcessDataService {
         ProcessingRequest processingRequest = processingRequestService
                 .validateAndFindByIdentifier(params.getIdentifier());
         validateCreatedProcess(processingRequest);
+        Priority priority = processingRequestService.validatePriority(params.getPriority());
 
         Investigator investigator = investigatorService.validateAndFind(params.getInvestigatorId());
 
@@ -89,13 +126,164 @@ public class ProcessDataService {
 
         List<ProcessResource> listProcessResource = processResourceService.validateRequiredResources(params.getResources(), processingRequest);
 
-        processingRequest = processingRequestService.updateState(processingRequest, ProcessState.PROCESSING);
+        if (priority != null) {
+            processingRequest.setPriority(priority.getLevel());
+        }
+        List<ProcessingRequest> admitted = admissionService.admit(Collections.singletonList(processingRequest));
+        if (admitted.isEmpty()) {
+            return String.format(PROCESS_THROTTLED, investigator.getName(), processingRequest.getIdentifier());
+        }
+        processingRequest = admitted.get(0);
 
-        clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        try {
+            clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        } catch (TaskRejectedException ex) {
+            admissionService.refund(processingRequest);
+            return rejectedProcess(processingRequest, investigator);
+        }
 
         return String.format(PROCESS_STARTED, investigator.getName(), processingRequest.getIdentifier());
     }
 
+    /**
+     * Comienza el proceso de varias solicitudes previamente creadas, validándolas en una sola consulta
+     * y enviándolas al cluster como un único arreglo de trabajos
+     * @param params
+     * @return
+     * @throws ValidateException
+     */
+    public String startBatch(Params params) throws ValidateException {
+        List<String> identifiers = params.getIdentifiers();
+        if (identifiers == null || identifiers.isEmpty() || identifiers.size() > clusterConf.getMaxBatchSize()
+                || new HashSet<>(identifiers).size() != identifiers.size()) {
+            throw new ValidateException(String.format(BATCH_NOT_VALID, clusterConf.getMaxBatchSize()));
+        }
+        Priority priority = processingRequestService.validatePriority(params.getPriority());
+        List<ProcessingRequest> listProcessingRequest = processingRequestService.validateAndFindByIdentifiers(identifiers);
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            validateCreatedProcess(processingRequest);
+            clusterService.validateLanguageTemplate(processingRequest);
+        }
+
+        Investigator investigator = investigatorService.validateAndFind(params.getInvestigatorId());
+
+        Map<String, List<ProcessResource>> resourcesByIdentifier = new HashMap<>();
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            resourcesByIdentifier.put(processingRequest.getIdentifier(),
+                    processResourceService.validateRequiredResources(params.getResources(), processingRequest));
+            if (priority != null) {
+                processingRequest.setPriority(priority.getLevel());
+            }
+        }
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+        int throttled = listProcessingRequest.size() - admitted.size();
+        if (admitted.isEmpty()) {
+            return String.format(BATCH_THROTTLED, investigator.getName(), throttled);
+        }
+
+        try {
+            clusterService.sendBatchToCluster(admitted, resourcesByIdentifier);
+        } catch (TaskRejectedException ex) {
+            for (ProcessingRequest processingRequest : admitted) {
+                admissionService.refund(processingRequest);
+            }
+            return rejectedBatch(admitted, investigator);
+        }
+
+        String message = String.format(BATCH_STARTED, investigator.getName(), admitted.size());
+        return throttled == 0 ? message : message + String.format(BATCH_PARTIALLY_THROTTLED, throttled);
+    }
+
+    private String rejectedBatch(List<ProcessingRequest> listProcessingRequest, Investigator investigator) throws CapacityException {
+        boolean spill = submissionConf.getPolicy() == BackPressurePolicy.SPILL;
+        for (ProcessingRequest processingRequest : listProcessingRequest) {
+            processingRequestService.updateState(processingRequest, spill ? ProcessState.WAITING : ProcessState.CREATED);
+        }
+        if (spill) {
+            return String.format(BATCH_WAITING, investigator.getName(), listProcessingRequest.size());
+        }
+        throw new CapacityException(String.format(BATCH_REJECTED, listProcessingRequest.size()));
+    }
+
+    /**
+     * Aplica la política configurada cuando el executor de envío no tiene capacidad:
+     * la solicitud queda en espera para enviarse luego, o se rechaza y vuelve a su estado inicial
+     * @param processingRequest
+     * @param investigator
+     * @return
+     * @throws CapacityException
+     */
+    private String rejectedProcess(ProcessingRequest processingRequest, Investigator investigator) throws CapacityException {
+        if (submissionConf.getPolicy() == BackPressurePolicy.SPILL) {
+            processingRequestService.updateState(processingRequest, ProcessState.WAITING);
+            return String.format(PROCESS_WAITING, investigator.getName(), processingRequest.getIdentifier());
+        }
+        processingRequestService.updateState(processingRequest, ProcessState.CREATED);
+        throw new CapacityException(String.format(PROCESS_REJECTED, processingRequest.getIdentifier()));
+    }
+
+    /**
+     * Envía al cluster las solicitudes en espera que elija el control de admisión, hasta que
+     * el executor de envío vuelva a quedar sin capacidad. Las solicitudes que dejaron de estar
+     * en espera desde que se eligieron (por ejemplo canceladas) no se envían
+     */
+    public void resumeWaitingProcesses() {
+        List<ProcessingRequest> listProcessingRequest = admissionService.nextWaiting(submissionConf.getResumeBatchSize());
+        for (int i = 0; i < listProcessingRequest.size(); i++) {
+            ProcessingRequest processingRequest = listProcessingRequest.get(i);
+            if (!processingRequestService.updateState(processingRequest, ProcessState.WAITING, ProcessState.PROCESSING)) {
+                LOGGER.info(String.format(PROCESS_NO_LONGER_WAITING, processingRequest.getIdentifier()));
+                admissionService.refund(processingRequest);
+                continue;
+            }
+            List<ProcessResource> listProcessResource = processResourceService.findByProcessingRequestId(processingRequest.getId());
+            try {
+                clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+                LOGGER.info(String.format(PROCESS_RESUMED, processingRequest.getIdentifier()));
+            } catch (TaskRejectedException ex) {
+                processingRequestService.updateState(processingRequest, ProcessState.PROCESSING, ProcessState.WAITING);
+                for (ProcessingRequest notSent : listProcessingRequest.subList(i, listProcessingRequest.size())) {
+                    admissionService.refund(notSent);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Informa la posición de una solicitud en espera dentro de la cola de su investigador
+     * @param processIdentifier
+     * @return
+     * @throws ValidateException
+     */
+    public String queuePosition(String processIdentifier) throws ValidateException {
+        return admissionService.queuePosition(processIdentifier);
+    }
+
+    /**
+     * Cancela una solicitud que aún no ha terminado. Si está en progreso, su trabajo se cancela
+     * en el cluster y deja de ser validado por el monitor. Si cambió de estado mientras se
+     * cancelaba, se cancela nuevamente según su nuevo estado
+     * @param processIdentifier
+     * @return
+     * @throws ValidateException
+     */
+    public String cancelProcess(String processIdentifier) throws ValidateException {
+        ProcessingRequest processingRequest = processingRequestService
+                .validateAndFindByIdentifier(processIdentifier);
+        ProcessState processState = ProcessState.fromState(processingRequest.getState());
+        if (processState == null || processState.isFinished()) {
+            throw new ValidateException(String.format(PROCESS_ALREADY_FINISHED,
+                    processingRequest.getIdentifier(), processingRequest.getState()));
+        }
+        if (processState == ProcessState.PROCESSING) {
+            clusterService.cancelProcess(processingRequest);
+        } else if (!processingRequestService.updateState(processingRequest, processState, ProcessState.CANCELLED)) {
+            return cancelProcess(processIdentifier);
+        }
+        return String.format(PROCESS_CANCELLED, processingRequest.getIdentifier());
+    }
+
     private void validateCreatedProcess(ProcessingRequest processingRequest) throws ValidateException {
         if(!processingRequest.getState().equals(ProcessState.CREATED.getState())){
             throw new ValidateException(String.format(PROCESS_STATE_NOT_VALID,
@@ -104,12 +292,9 @@ public class ProcessDataService {
         }
     }
 
-    private String getProcessFullPath(ProcessingRequest processingRequest) {
-        return processingRequest.getBasePath() + processingRequest.getFileName();
-    }
-
     private void validateFinishedProcess(ProcessingRequest processingRequest) throws ValidateException {
         if(processingRequest.getState().equals(ProcessState.CREATED.getState())
+                || processingRequest.getState().equals(ProcessState.WAITING.getState())
                 || processingRequest.getState().equals(ProcessState.PROCESSING.getState())){
             throw new ValidateException(String.format(PROCESS_NOT_FINISHED_YET, processingRequest.getIdentifier()));
         }
@@ -0,0 +1,310 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import co.edu.itm.clinicaldata.configuration.NotificationConf;
+import co.edu.itm.clinicaldata.dto.ProcessStateChange;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+
+/**
+ * Notifica a los clientes los cambios de estado de las solicitudes, sin que tengan que consultar
+ * periódicamente: espera larga (long-poll) hasta que una solicitud llegue a un estado, y un flujo
+ * Server-Sent Events con los cambios de todas las solicitudes de un investigador.
+ * Los cambios se reciben de {@link ProcessingRequestService} luego del commit de cada escritura;
+ * los eventos se envían desde el executor de notificaciones, en orden por suscripción, y una
+ * suscripción que acumula demasiados eventos sin recibir se cierra.
+ */
+@Service
+public class ProcessNotificationService {
+
+    private static final String STATE_NOT_VALID = "El estado <%s> no es válido";
+    private static final String TIMEOUT_NOT_VALID = "El tiempo de espera <%d> no es válido";
+    private static final String STATE_EVENT = "state";
+    private static final String ERROR_SENDING_EVENT = "No fue posible notificar el cambio de estado de la solicitud <%s>, se cierra la suscripción";
+    private static final String SUBSCRIPTION_BEHIND = "La suscripción del investigador <%d> superó <%d> eventos pendientes, se cierra la suscripción";
+    private static final String NOTIFICATION_REJECTED = "El executor de notificaciones no tiene capacidad, se cierra la suscripción del investigador <%d>";
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessNotificationService.class.getName());
+
+    @Autowired
+    ProcessingRequestService processingRequestService;
+
+    @Autowired
+    InvestigatorService investigatorService;
+
+    @Autowired
+    ProcessDataService processDataService;
+
+    @Autowired
+    NotificationConf notificationConf;
+
+    @Autowired
+    @Qualifier("notificationExecutor")
+    TaskExecutor notificationExecutor;
+
+    private final ConcurrentMap<String, Set<StateWaiter>> waiters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Espera hasta que la solicitud llegue al estado <waitFor>, o a un estado final, o se cumpla el
+     * tiempo de espera; en todos los casos se responde con el estado actual de la solicitud
+     * @param identifier
+     * @param waitFor
+     * @param timeout milisegundos, si es null se usa el tiempo configurado por defecto
+     * @return
+     * @throws ValidateException
+     */
+    public DeferredResult<ResponseEntity<String>> waitForState(String identifier, String waitFor, Long timeout) throws ValidateException {
+        ProcessState expected = ProcessState.fromState(waitFor);
+        if (expected == null) {
+            throw new ValidateException(String.format(STATE_NOT_VALID, waitFor));
+        }
+        long wait = validateTimeout(timeout);
+
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>(wait);
+        StateWaiter waiter = new StateWaiter(expected, result);
+        waiters.compute(identifier, (key, current) -> {
+            Set<StateWaiter> set = current == null ? new CopyOnWriteArraySet<>() : current;
+            set.add(waiter);
+            return set;
+        });
+        result.onCompletion(() -> removeWaiter(identifier, waiter));
+        result.onTimeout(() -> completeWithCurrentState(identifier, result));
+
+        // La espera se registra antes de consultar, así ningún cambio ocurrido entre la consulta y el registro se pierde
+        ProcessStatus current;
+        try {
+            current = processingRequestService.validateAndFindStatusByIdentifier(identifier);
+        } catch (ValidateException ex) {
+            removeWaiter(identifier, waiter);
+            throw ex;
+        }
+        if (waiter.isSatisfiedBy(current.getState())) {
+            result.setResult(response(current));
+        }
+        return result;
+    }
+
+    private long validateTimeout(Long timeout) throws ValidateException {
+        if (timeout == null) {
+            return notificationConf.getDefaultWait();
+        }
+        if (timeout <= 0) {
+            throw new ValidateException(String.format(TIMEOUT_NOT_VALID, timeout));
+        }
+        return Math.min(timeout, notificationConf.getMaxWait());
+    }
+
+    private void completeWithCurrentState(String identifier, DeferredResult<ResponseEntity<String>> result) {
+        try {
+            result.setResult(response(processingRequestService.validateAndFindStatusByIdentifier(identifier)));
+        } catch (ValidateException ex) {
+            result.setErrorResult(ex);
+        }
+    }
+
+    private void removeWaiter(String identifier, StateWaiter waiter) {
+        waiters.computeIfPresent(identifier, (key, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Suscribe al cliente a los cambios de estado de todas las solicitudes del investigador
+     * @param investigatorId
+     * @return
+     * @throws ValidateException
+     */
+    public SseEmitter subscribe(Long investigatorId) throws ValidateException {
+        investigatorService.validateAndFind(investigatorId);
+        SseEmitter emitter = new SseEmitter(notificationConf.getStreamTimeout());
+        Subscription subscription = new Subscription(investigatorId, emitter);
+        subscriptions.compute(investigatorId, (key, current) -> {
+            Set<Subscription> set = current == null ? new CopyOnWriteArraySet<>() : current;
+            set.add(subscription);
+            return set;
+        });
+        emitter.onCompletion(() -> removeSubscription(subscription));
+        emitter.onTimeout(() -> removeSubscription(subscription));
+        return emitter;
+    }
+
+    private void removeSubscription(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.investigatorId, (key, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Entrega el cambio de estado a las esperas de la solicitud y encola el evento en las suscripciones
+     * de su investigador, sin enviarlo desde el hilo que confirmó el cambio
+     * @param change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProcessStateChange(ProcessStateChange change) {
+        Set<StateWaiter> stateWaiters = waiters.get(change.getIdentifier());
+        if (stateWaiters != null) {
+            for (StateWaiter waiter : stateWaiters) {
+                if (waiter.isSatisfiedBy(change.getState())) {
+                    waiter.getResult().setResult(response(change));
+                }
+            }
+        }
+        Set<Subscription> investigatorSubscriptions = change.getInvestigatorId() == null ? null : subscriptions.get(change.getInvestigatorId());
+        if (investigatorSubscriptions != null) {
+            for (Subscription subscription : investigatorSubscriptions) {
+                subscription.offer(change);
+            }
+        }
+    }
+
+    private ResponseEntity<String> response(ProcessStatus processStatus) {
+        return new ResponseEntity<>(processDataService.stateMessage(processStatus), HttpStatus.OK);
+    }
+
+    /**
+     * Suscripción de un investigador con sus eventos pendientes. A lo sumo una tarea de envío por
+     * suscripción está en el executor, así los eventos llegan en orden y un cliente lento solo
+     * retrasa su propia suscripción. Al cerrarse, el emitter se completa desde esa tarea para no
+     * esperar a un envío en curso
+     */
+    private class Subscription implements Runnable {
+
+        private final Long investigatorId;
+        private final SseEmitter emitter;
+        private final Queue<ProcessStateChange> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscription(Long investigatorId, SseEmitter emitter) {
+            this.investigatorId = investigatorId;
+            this.emitter = emitter;
+        }
+
+        void offer(ProcessStateChange change) {
+            if (closed) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > notificationConf.getMaxPendingEvents()) {
+                LOGGER.info(String.format(SUBSCRIPTION_BEHIND, investigatorId, notificationConf.getMaxPendingEvents()));
+                close();
+                return;
+            }
+            pending.add(change);
+            schedule();
+        }
+
+        private void close() {
+            closed = true;
+            removeSubscription(this);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                notificationExecutor.execute(this);
+            } catch (TaskRejectedException ex) {
+                // Sin tarea en el executor ningún envío está en curso, el emitter se completa desde aquí
+                LOGGER.info(String.format(NOTIFICATION_REJECTED, investigatorId));
+                closed = true;
+                removeSubscription(this);
+                complete(null);
+            }
+        }
+
+        @Override
+        public void run() {
+            ProcessStateChange change;
+            while (!closed && (change = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                send(change);
+            }
+            if (closed) {
+                complete(null);
+            }
+            scheduled.set(false);
+            // Un evento o un cierre llegados mientras terminaba esta tarea no encontraron tarea que los atienda
+            if (closed ? !completed.get() : !pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(ProcessStateChange change) {
+            try {
+                emitter.send(SseEmitter.event().name(STATE_EVENT).id(change.getIdentifier())
+                        .data(change, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException ex) {
+                LOGGER.info(String.format(ERROR_SENDING_EVENT, change.getIdentifier()));
+                closed = true;
+                removeSubscription(this);
+                complete(ex);
+            }
+        }
+
+        private void complete(Throwable error) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            if (error == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+
+    /**
+     * Espera registrada sobre una solicitud. Se cumple al llegar al estado esperado o a un estado
+     * final, desde el cual la solicitud ya no puede llegar al estado esperado
+     */
+    private static class StateWaiter {
+
+        private final ProcessState expected;
+        private final DeferredResult<ResponseEntity<String>> result;
+
+        StateWaiter(ProcessState expected, DeferredResult<ResponseEntity<String>> result) {
+            this.expected = expected;
+            this.result = result;
+        }
+
+        boolean isSatisfiedBy(String state) {
+            ProcessState processState = ProcessState.fromState(state);
+            return processState == expected || (processState != null && processState.isFinished());
+        }
+
+        DeferredResult<ResponseEntity<String>> getResult() {
+            return result;
+        }
+    }
+
+}
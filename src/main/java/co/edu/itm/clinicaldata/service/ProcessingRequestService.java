@@ -1,11 +1,26 @@
 package co.edu.itm.clinicaldata.service;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import co.edu.itm.clinicaldata.cache.ProcessStatusCache;
+import co.edu.itm.clinicaldata.dto.ProcessStateChange;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.dto.ReportRow;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
@@ -19,27 +34,210 @@ import co.edu.itm.clinicaldata.util.Validations;
 public class ProcessingRequestService {
 
     private static final String IDENTIFIER_NOT_VALID = "El <identifier> del proceso debe ser válido";
+    private static final String PRIORITY_NOT_VALID = "El campo <priority> no es válido. Valores permitidos: %s";
     private static final String PROCESSING_REQUEST_NOT_FOUND = "La solicitud con identificador <%s> no existe en la base de datos";
 
     @Autowired
     ProcessingRequestRepository processingRequestRepository;
 
+    @Autowired
+    ProcessStatusCache processStatusCache;
+
+    @Autowired
+    ApplicationEventPublisher applicationEventPublisher;
+
     public ProcessingRequest findByIdentifier(String identifier) {
         return processingRequestRepository.findByIdentifier(identifier);
     }
 
+    /**
+     * Guarda la solicitud con la fecha actual como última actualización, de la cual dependen
+     * la versión de sus reportes y su orden en la cola de espera
+     * @param processingRequest
+     */
     public void save(ProcessingRequest processingRequest) {
+        processingRequest.setLastUpdate(DateUtilities.getTimestamp());
         processingRequestRepository.save(processingRequest);
+        processStatusCache.invalidate(processingRequest.getIdentifier());
+        applicationEventPublisher.publishEvent(stateChange(processingRequest));
+    }
+
+    private ProcessStateChange stateChange(ProcessingRequest processingRequest) {
+        return new ProcessStateChange(processingRequest.getIdentifier(), processingRequest.getState(),
+                processingRequest.getCreationDate(), processingRequest.getLastUpdate(),
+                investigatorId(processingRequest.getInvestigator()));
+    }
+
+    /**
+     * Obtiene el identificador del investigador sin inicializar el proxy LAZY, la solicitud
+     * puede provenir de una sesión ya cerrada (por ejemplo desde el monitor de la cola)
+     * @param investigator
+     * @return
+     */
+    Long investigatorId(Investigator investigator) {
+        if (investigator instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) investigator).getHibernateLazyInitializer().getIdentifier();
+        }
+        return investigator == null ? null : investigator.getId();
     }
 
     public void update(ProcessingRequest processingRequest) {
         save(processingRequest);
     }
 
+    /**
+     * Guarda el estado, resultado y trabajo de la solicitud solo si en la base de datos sigue en el
+     * estado y con el trabajo esperados, así no se sobrescribe un cambio concurrente como una cancelación
+     * @param processingRequest
+     * @param expectedState estado que debe tener la solicitud en la base de datos
+     * @param expectedJobId trabajo que debe tener la solicitud en la base de datos, null si aún no tiene
+     * @return false si la solicitud cambió en la base de datos y no se actualizó
+     */
+    public boolean updateIfCurrent(ProcessingRequest processingRequest, ProcessState expectedState, String expectedJobId) {
+        Timestamp lastUpdate = DateUtilities.getTimestamp();
+        int updated = processingRequestRepository.updateIfCurrent(processingRequest.getIdentifier(),
+                expectedState.getState(), expectedJobId == null ? "" : expectedJobId,
+                processingRequest.getState(), processingRequest.getResult(), processingRequest.getJobId(), lastUpdate);
+        if (updated == 0) {
+            return false;
+        }
+        processingRequest.setLastUpdate(lastUpdate);
+        processStatusCache.invalidate(processingRequest.getIdentifier());
+        applicationEventPublisher.publishEvent(stateChange(processingRequest));
+        return true;
+    }
+
     public List<ProcessingRequest> findByInvestigatorId(Long investigatorId) {
         return processingRequestRepository.findByInvestigatorId(investigatorId);
     }
 
+    /**
+     * Página de las solicitudes de un investigador para los reportes, en orden de id. Las filas se
+     * construyen en la consulta y no son entidades, así recorrer todas las páginas no acumula
+     * solicitudes en la sesión aunque esta siga abierta durante la respuesta
+     * @param investigatorId
+     * @param afterId id de la última solicitud de la página anterior, 0 para la primera página
+     * @param size
+     * @return
+     */
+    public List<ReportRow> findReportRowsByInvestigator(Long investigatorId, Long afterId, int size) {
+        return processingRequestRepository.findReportRowsByInvestigatorId(investigatorId, afterId, new PageRequest(0, size));
+    }
+
+    /**
+     * Versión de las solicitudes de un investigador, cambia con cada solicitud nueva o actualizada
+     * @param investigatorId
+     * @return última actualización (milisegundos) y cantidad de solicitudes del investigador
+     */
+    public long[] lastUpdateAndCountByInvestigator(Long investigatorId) {
+        List<Object[]> rows = processingRequestRepository.findLastUpdateAndCountByInvestigatorId(investigatorId);
+        Object[] row = rows.isEmpty() ? new Object[2] : rows.get(0);
+        long lastUpdate = row[0] == null ? 0 : ((Timestamp) row[0]).getTime();
+        long count = row[1] == null ? 0 : (Long) row[1];
+        return new long[] { lastUpdate, count };
+    }
+
+    public List<ProcessingRequest> findByState(ProcessState processState) {
+        return processingRequestRepository.findByState(processState.getState());
+    }
+
+    /**
+     * Solicitudes en un estado, de mayor a menor prioridad y de la más antigua a la más reciente
+     * @param processState
+     * @param size
+     * @return
+     */
+    public List<ProcessingRequest> findNextByState(ProcessState processState, int size) {
+        return processingRequestRepository.findByStateOrderByPriorityAscLastUpdateAscIdAsc(processState.getState(), new PageRequest(0, size));
+    }
+
+    /**
+     * Solicitudes de un investigador en un estado, de mayor a menor prioridad y de la más antigua a la más reciente
+     * @param processState
+     * @param investigatorId
+     * @param size
+     * @return
+     */
+    public List<ProcessingRequest> findNextByStateAndInvestigator(ProcessState processState, Long investigatorId, int size) {
+        return processingRequestRepository.findByStateAndInvestigatorIdOrderByPriorityAscLastUpdateAscIdAsc(
+                processState.getState(), investigatorId, new PageRequest(0, size));
+    }
+
+    public long countByState(ProcessState processState) {
+        return processingRequestRepository.countByState(processState.getState());
+    }
+
+    public long countByStateAndInvestigator(ProcessState processState, Long investigatorId) {
+        return processingRequestRepository.countByStateAndInvestigatorId(processState.getState(), investigatorId);
+    }
+
+    /**
+     * Cuenta en una sola consulta las solicitudes en un estado de cada investigador
+     * @param processState
+     * @return cantidad de solicitudes por identificador de investigador
+     */
+    public Map<Long, Long> countByStateGroupByInvestigator(ProcessState processState) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : processingRequestRepository.countByStateGroupByInvestigator(processState.getState())) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Cuenta las solicitudes de un investigador en un estado con la prioridad dada o una mayor
+     * @param processState
+     * @param investigatorId
+     * @param priority
+     * @return
+     */
+    public long countByStateAndInvestigatorUpToPriority(ProcessState processState, Long investigatorId, Priority priority) {
+        return processingRequestRepository.countByStateAndInvestigatorIdAndPriorityLessThanEqual(
+                processState.getState(), investigatorId, priority.getLevel());
+    }
+
+    /**
+     * Cuenta en una sola consulta las solicitudes en un estado de cada investigador y prioridad
+     * @param processState
+     * @return por identificador de investigador, cantidad de solicitudes por nivel de prioridad (ordenado por nivel)
+     */
+    public Map<Long, TreeMap<Integer, Long>> countByStateGroupByInvestigatorAndPriority(ProcessState processState) {
+        Map<Long, TreeMap<Integer, Long>> counts = new HashMap<>();
+        for (Object[] row : processingRequestRepository.countByStateGroupByInvestigatorAndPriority(processState.getState())) {
+            counts.computeIfAbsent((Long) row[0], key -> new TreeMap<>()).put((Integer) row[1], (Long) row[2]);
+        }
+        return counts;
+    }
+
+    /**
+     * Cuenta las solicitudes del mismo investigador y estado que están antes en la cola,
+     * por tener mayor prioridad o la misma prioridad y ser más antiguas
+     * @param processingRequest
+     * @return
+     */
+    public long countAhead(ProcessingRequest processingRequest) {
+        return processingRequestRepository.countAhead(processingRequest.getState(),
+                investigatorId(processingRequest.getInvestigator()), Priority.fromLevel(processingRequest.getPriority()).getLevel(),
+                processingRequest.getLastUpdate(), processingRequest.getId());
+    }
+
+    /**
+     * Valida el nombre de una prioridad enviada por el usuario
+     * @param priority
+     * @return null si no se envió
+     * @throws ValidateException si el nombre no corresponde a ninguna prioridad
+     */
+    public Priority validatePriority(String priority) throws ValidateException {
+        if (Validations.field(priority)) {
+            return null;
+        }
+        Priority validPriority = Priority.fromName(priority);
+        if (validPriority == null) {
+            throw new ValidateException(String.format(PRIORITY_NOT_VALID, Arrays.toString(Priority.values())));
+        }
+        return validPriority;
+    }
+
     public ProcessingRequest validateAndFindByIdentifier(String processIdentifier) throws ValidateException {
         validateProcessIdentifier(processIdentifier);
         ProcessingRequest processingRequest = findByIdentifier(processIdentifier);
@@ -49,6 +247,59 @@ public class ProcessingRequestService {
         return processingRequest;
     }
 
+    /**
+     * Consulta en una sola operación todas las solicitudes, en el orden recibido
+     * @param processIdentifiers
+     * @return
+     * @throws ValidateException si algún identificador no es válido o no existe
+     */
+    public List<ProcessingRequest> validateAndFindByIdentifiers(List<String> processIdentifiers) throws ValidateException {
+        for (String processIdentifier : processIdentifiers) {
+            validateProcessIdentifier(processIdentifier);
+        }
+        Map<String, ProcessingRequest> found = new HashMap<>();
+        for (ProcessingRequest processingRequest : processingRequestRepository.findByIdentifierIn(processIdentifiers)) {
+            found.put(processingRequest.getIdentifier(), processingRequest);
+        }
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        for (String processIdentifier : processIdentifiers) {
+            ProcessingRequest processingRequest = found.get(processIdentifier);
+            if (processingRequest == null) {
+                notFound.add(processIdentifier);
+            } else {
+                listProcessingRequest.add(processingRequest);
+            }
+        }
+        if (!notFound.isEmpty()) {
+            throw new ValidateException(String.format(PROCESSING_REQUEST_NOT_FOUND, String.join(", ", notFound)));
+        }
+        return listProcessingRequest;
+    }
+
+    /**
+     * Consulta únicamente los campos de estado de una solicitud, sin cargar la entidad completa.
+     * Se responde desde la cache de estados mientras la entrada no haya expirado o sido invalidada,
+     * sin abrir una transacción ni tomar una conexión del pool
+     * @param processIdentifier
+     * @return
+     * @throws ValidateException
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ProcessStatus validateAndFindStatusByIdentifier(String processIdentifier) throws ValidateException {
+        validateProcessIdentifier(processIdentifier);
+        ProcessStatus processStatus = processStatusCache.get(processIdentifier);
+        if (processStatus == null) {
+            long stamp = processStatusCache.stamp();
+            processStatus = processingRequestRepository.findStatusByIdentifier(processIdentifier);
+            if(processStatus == null){
+                throw new ValidateException(String.format(PROCESSING_REQUEST_NOT_FOUND, processIdentifier));
+            }
+            processStatusCache.put(processStatus, stamp);
+        }
+        return processStatus;
+    }
+
     private void validateProcessIdentifier(String processIdentifier) throws ValidateException {
         if (Validations.field(processIdentifier)) {
             throw new ValidateException(IDENTIFIER_NOT_VALID);
@@ -56,26 +307,43 @@ public class ProcessingRequestService {
     }
 
     public ProcessingRequest create(String identifier, String language,
-            byte[] bytes, String fileName, String basePath,
-            Investigator investigator) {
+            String checksum, String fileName, String basePath,
+            Investigator investigator, Priority priority) {
         ProcessingRequest processingRequest = new ProcessingRequest();
         processingRequest.setIdentifier(identifier);
         processingRequest.setCreationDate(DateUtilities.getTimestamp());
         processingRequest.setFileName(fileName);
         processingRequest.setBasePath(basePath);
         processingRequest.setLanguage(language);
-        processingRequest.setBytes(bytes);
+        processingRequest.setChecksum(checksum);
         processingRequest.setState(ProcessState.CREATED.getState());
         processingRequest.setInvestigator(investigator);
+        processingRequest.setPriority(priority.getLevel());
         save(processingRequest);
         return processingRequest;
     }
 
     public ProcessingRequest updateState(ProcessingRequest processingRequest, ProcessState processState) {
-        processingRequest.setLastUpdate(DateUtilities.getTimestamp());
         processingRequest.setState(processState.getState());
         update(processingRequest);
         return processingRequest;
     }
 
+    /**
+     * Cambia el estado de la solicitud solo si en la base de datos sigue en el estado esperado
+     * @param processingRequest
+     * @param expectedState
+     * @param processState
+     * @return false si la solicitud cambió de estado y se dejó sin modificar
+     */
+    public boolean updateState(ProcessingRequest processingRequest, ProcessState expectedState, ProcessState processState) {
+        String previousState = processingRequest.getState();
+        processingRequest.setState(processState.getState());
+        if (updateIfCurrent(processingRequest, expectedState, processingRequest.getJobId())) {
+            return true;
+        }
+        processingRequest.setState(previousState);
+        return false;
+    }
+
 }
@@ -1,23 +1,49 @@
 package co.edu.itm.clinicaldata.service;
 
-import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import co.edu.itm.clinicaldata.cache.ReportCache;
+import co.edu.itm.clinicaldata.dto.ReportRow;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessResource;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
 import co.edu.itm.clinicaldata.util.GeneratePdfReport;
 
+/**
+ * Reportes PDF de las solicitudes. Los reportes se validan al solicitarlos y se escriben luego
+ * directamente en la respuesta, sin mantenerlos completos en memoria: las solicitudes de un
+ * investigador se consultan por páginas a medida que se genera el PDF. Mientras se escribe, el
+ * reporte se copia en {@link ReportCache} y se entrega desde disco mientras no cambie ninguna
+ * de las solicitudes incluidas
+ */
 @Service
 @Transactional
 public class ReportService {
 
+    private static final String ERROR_WRITING_REPORT = "El reporte <%s> no se generó completo, no se almacena en la cache";
+    private static final int REPORT_PAGE_SIZE = 500;
+
+    private static final Logger LOGGER = Logger.getLogger(ReportService.class.getName());
+
     @Autowired
     ProcessingRequestService processingRequestService;
 
@@ -27,22 +53,161 @@ public class ReportService {
     @Autowired
     ProcessResourceService processResourceService;
 
-    public ByteArrayInputStream byRequest(String processIdentifier) throws ValidateException {
+    @Autowired
+    ReportCache reportCache;
 
+    public StreamingResponseBody byRequest(String processIdentifier) throws ValidateException {
+        long stamp = reportCache.stamp();
         ProcessingRequest processingRequest = processingRequestService.validateAndFindByIdentifier(processIdentifier);
+        String scope = ReportCache.requestScope(processingRequest.getIdentifier());
+        String version = ReportCache.version(
+                processingRequest.getLastUpdate() == null ? 0 : processingRequest.getLastUpdate().getTime(), 1);
+        InputStream cached = reportCache.get(scope, version);
+        if (cached != null) {
+            return out -> copy(cached, out);
+        }
+
+        // El reporte se escribe luego de terminar la transacción, el investigador se carga antes
+        Investigator investigator = processingRequest.getInvestigator();
+        Hibernate.initialize(investigator);
         List<ProcessResource> listProcessResource = processResourceService.findByProcessingRequestId(processingRequest.getId());
-        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
-        listProcessingRequest.add(processingRequest);
+        List<ReportRow> listProcessingRequest = Collections.singletonList(ReportRow.of(processingRequest));
 
-        return GeneratePdfReport.processRequest(processingRequest.getInvestigator(), listProcessingRequest, listProcessResource);
+        return out -> write(scope, version, stamp, out, target ->
+                GeneratePdfReport.processRequest(investigator, listProcessingRequest.iterator(), listProcessResource, target));
     }
 
-    public ByteArrayInputStream byInvestigator(Long investigatorId) throws ValidateException {
-
+    public StreamingResponseBody byInvestigator(Long investigatorId) throws ValidateException {
+        long stamp = reportCache.stamp();
         Investigator investigator = investigatorService.validateAndFind(investigatorId);
-        List<ProcessingRequest> listProcessingRequest = processingRequestService.findByInvestigatorId(investigatorId);
+        long[] lastUpdateAndCount = processingRequestService.lastUpdateAndCountByInvestigator(investigatorId);
+        String scope = ReportCache.investigatorScope(investigatorId);
+        String version = ReportCache.version(lastUpdateAndCount[0], lastUpdateAndCount[1]);
+        InputStream cached = reportCache.get(scope, version);
+        if (cached != null) {
+            return out -> copy(cached, out);
+        }
+
+        return out -> write(scope, version, stamp, out, target ->
+                GeneratePdfReport.processRequest(investigator, new ReportRowIterator(investigatorId), new ArrayList<>(), target));
+    }
+
+    private void copy(InputStream cached, OutputStream out) throws IOException {
+        try (InputStream inputStream = cached) {
+            IOUtils.copy(inputStream, out);
+        }
+    }
+
+    /**
+     * Genera el reporte en la respuesta y a la vez en el temporal de la cache, que se almacena
+     * solo si el reporte se generó completo
+     */
+    private void write(String scope, String version, long stamp, OutputStream out, ReportWriter reportWriter) throws IOException {
+        Path temporary = reportCache.temporaryFile(scope);
+        if (temporary == null) {
+            reportWriter.write(out);
+            return;
+        }
+        OutputStream copy;
+        try {
+            copy = Files.newOutputStream(temporary);
+        } catch (IOException ex) {
+            LOGGER.info(String.format(ERROR_WRITING_REPORT, scope));
+            reportWriter.write(out);
+            return;
+        }
+        boolean complete = false;
+        try (OutputStream target = new CopyingOutputStream(out, copy)) {
+            complete = reportWriter.write(target);
+        } finally {
+            if (complete) {
+                reportCache.put(scope, version, temporary, stamp);
+            } else {
+                LOGGER.info(String.format(ERROR_WRITING_REPORT, scope));
+                reportCache.discard(temporary);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReportWriter {
+
+        boolean write(OutputStream out);
+    }
+
+    /**
+     * Recorre las solicitudes del investigador consultando una página a la vez
+     */
+    private class ReportRowIterator implements Iterator<ReportRow> {
+
+        private final Long investigatorId;
+        private Iterator<ReportRow> page = Collections.emptyIterator();
+        private Long lastId = 0L;
+        private boolean lastPage;
+
+        ReportRowIterator(Long investigatorId) {
+            this.investigatorId = investigatorId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                List<ReportRow> rows = processingRequestService.findReportRowsByInvestigator(investigatorId, lastId, REPORT_PAGE_SIZE);
+                lastPage = rows.size() < REPORT_PAGE_SIZE;
+                page = rows.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public ReportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ReportRow row = page.next();
+            lastId = row.getId();
+            return row;
+        }
+    }
+
+    /**
+     * Escribe en la respuesta y en una copia, al cerrarse solo cierra la copia
+     */
+    private static class CopyingOutputStream extends FilterOutputStream {
+
+        private final OutputStream copy;
+
+        CopyingOutputStream(OutputStream out, OutputStream copy) {
+            super(out);
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            copy.flush();
+        }
 
-        return GeneratePdfReport.processRequest(investigator, listProcessingRequest, new ArrayList<>());
+        @Override
+        public void close() throws IOException {
+            try {
+                out.flush();
+            } finally {
+                copy.close();
+            }
+        }
     }
 
 }
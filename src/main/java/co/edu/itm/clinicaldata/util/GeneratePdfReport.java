@@ -1,21 +1,25 @@
 package co.edu.itm.clinicaldata.util;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
+import co.edu.itm.clinicaldata.dto.ReportRow;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessResource;
-import co.edu.itm.clinicaldata.model.ProcessingRequest;
 
 import com.itextpdf.text.BadElementException;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
+import com.itextpdf.text.ExceptionConverter;
 import com.itextpdf.text.Font;
 import com.itextpdf.text.FontFactory;
 import com.itextpdf.text.Image;
@@ -32,6 +36,12 @@ public class GeneratePdfReport {
     private static final String REPORT_NAME = "REPORTE DE PROCESAMIENTO DE SOLICITUD";
     private static final int TABLE_100_PERCENT = 100;
     private static final String ITM_LOGO = "http://clusteri.itm.edu.co/wiki/img/tiki/Tiki_WCG.png";
+    private static final int LOGO_SCALE_PERCENT = 40;
+    private static final int LOGO_CONNECT_TIMEOUT = 2000;
+    private static final int LOGO_READ_TIMEOUT = 2000;
+    // Si el logo no se pudo obtener, los reportes se generan sin él y no se intenta de nuevo antes de este tiempo
+    private static final long LOGO_RETRY_INTERVAL = 10 * 60 * 1000L;
+    private static final int ROWS_PER_FLUSH = 200;
     private static final int FONT_SIZE_BODY = 8;
     private static final int FONT_SIZE_HEAD = 10;
     private static final Font HEAD_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, FONT_SIZE_HEAD);
@@ -39,15 +49,34 @@ public class GeneratePdfReport {
 
     private static final Logger LOGGER = Logger.getLogger(GeneratePdfReport.class.getName());
 
-    public static ByteArrayInputStream processRequest(Investigator investigator,
-            List<ProcessingRequest> listProcessingRequest,
-            List<ProcessResource> listProcessResource) {
+    private static Image logo;
+    private static long logoRetryAt;
+
+    /**
+     * Escribe el reporte en <out> a medida que se genera: la tabla se marca incompleta y cada
+     * <ROWS_PER_FLUSH> solicitudes se escriben sus filas y se liberan, así el reporte no se
+     * mantiene completo en memoria. <out> no se cierra
+     * @param investigator
+     * @param rows solicitudes del reporte, se recorren una sola vez
+     * @param listProcessResource recursos adicionales de las solicitudes
+     * @param out
+     * @return true si el reporte se generó completo
+     */
+    public static boolean processRequest(Investigator investigator,
+            Iterator<ReportRow> rows,
+            List<ProcessResource> listProcessResource, OutputStream out) {
         Document document = new Document();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            document.open();
+            document.add(createHeader(investigator, REPORT_NAME));
+
             PdfPTable table = new PdfPTable(5);
             table.setWidthPercentage(TABLE_100_PERCENT);
             table.setWidths(new int[]{1, 4, 2, 2, 2});
+            table.setHeaderRows(1);
+            table.setComplete(false);
 
             table.addCell(headCell("Id"));
             table.addCell(headCell("Identificador"));
@@ -55,7 +84,9 @@ public class GeneratePdfReport {
             table.addCell(headCell("Archivo"));
             table.addCell(headCell("Estado"));
 
-            for (ProcessingRequest request : listProcessingRequest) {
+            int pendingRows = 0;
+            while (rows.hasNext()) {
+                ReportRow request = rows.next();
                 table.addCell(bodyCell(request.getId().toString()));
                 table.addCell(bodyCell(request.getIdentifier()));
                 table.addCell(bodyCell(DateUtilities.timestampToString(request.getCreationDate())));
@@ -64,21 +95,24 @@ public class GeneratePdfReport {
 
                 addResources(table, listProcessResource);
                 addResult(table, request);
-            }
 
-            PdfWriter.getInstance(document, out);
-            document.open();
+                if (++pendingRows == ROWS_PER_FLUSH) {
+                    document.add(table);
+                    pendingRows = 0;
+                }
+            }
 
-            document.add(createHeader(investigator, REPORT_NAME));
+            table.setComplete(true);
             document.add(table);
             document.close();
-        } catch (DocumentException ex) {
+            return true;
+        } catch (DocumentException | ExceptionConverter ex) {
             LOGGER.error(String.format(ERROR_GENERATING_PDF, investigator.getId()), ex);
+            return false;
         }
-        return new ByteArrayInputStream(out.toByteArray());
     }
 
-    private static void addResult(PdfPTable table, ProcessingRequest request) {
+    private static void addResult(PdfPTable table, ReportRow request) {
         if(!Validations.field(request.getResult())){
             PdfPCell cell = bodyCell("Resultado: " + request.getResult());
             cell.setColspan(5);
@@ -110,16 +144,42 @@ public class GeneratePdfReport {
     }
 
     private static PdfPCell getImageHeaderCell() {
-        Image image = null;
+        // Cada reporte usa una copia del logo ya decodificado, sin descargarlo de nuevo
+        Image image = logo();
+        PdfPCell cell = image == null ? new PdfPCell() : new PdfPCell(Image.getInstance(image));
+        alignCellToCenter(cell);
+        return cell;
+    }
+
+    /**
+     * Descarga y decodifica una sola vez el logo del ITM de <ITM_LOGO>, con tiempos de espera cortos
+     * para que un servidor inaccesible no detenga la generación de los reportes
+     * @return null si no pudo ser obtenido, los reportes se generan sin logo
+     */
+    private static synchronized Image logo() {
+        if (logo == null && System.currentTimeMillis() >= logoRetryAt) {
+            logo = loadLogo();
+            if (logo == null) {
+                logoRetryAt = System.currentTimeMillis() + LOGO_RETRY_INTERVAL;
+            }
+        }
+        return logo;
+    }
+
+    private static Image loadLogo() {
         try {
-            image = Image.getInstance(new URL(ITM_LOGO));
-            image.scalePercent(40);
+            URLConnection connection = new URL(ITM_LOGO).openConnection();
+            connection.setConnectTimeout(LOGO_CONNECT_TIMEOUT);
+            connection.setReadTimeout(LOGO_READ_TIMEOUT);
+            try (InputStream inputStream = connection.getInputStream()) {
+                Image image = Image.getInstance(IOUtils.toByteArray(inputStream));
+                image.scalePercent(LOGO_SCALE_PERCENT);
+                return image;
+            }
         } catch (IOException | BadElementException e) {
             LOGGER.info(String.format(ERROR_WHEN_OBTAIN_IMAGE, ITM_LOGO), e);
+            return null;
         }
-        PdfPCell cell = new PdfPCell(image);
-        alignCellToCenter(cell);
-        return cell;
     }
 
     private static void alignCellToCenter(PdfPCell cell) {
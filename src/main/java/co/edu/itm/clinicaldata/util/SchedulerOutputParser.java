@@ -0,0 +1,96 @@
+package co.edu.itm.clinicaldata.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import co.edu.itm.clinicaldata.dto.JobStatus;
+
+/**
+ * Interpreta la salida de los comandos del planificador del cluster (PBS Pro, Torque y SGE)
+ */
+public class SchedulerOutputParser {
+
+    private static final Pattern SGE_SUBMITTED = Pattern.compile("Your job(?:-array)? (\\d+)");
+    private static final Pattern PBS_JOB_ID = Pattern.compile("^\\d+(?:\\[\\d*\\])?(?:\\.[\\w.-]+)?$");
+    private static final Pattern JOB_HEADER = Pattern.compile("^Job Id:\\s*(\\S+)\\s*$");
+    private static final Pattern ATTRIBUTE = Pattern.compile("^\\s+(\\w+)\\s*=\\s*(.*?)\\s*$");
+    private static final String JOB_STATE = "job_state";
+    private static final String EXIT_STATUS = "exit_status";
+
+    private SchedulerOutputParser() {
+    }
+
+    /**
+     * Obtiene el identificador del trabajo de la salida de qsub: "1234.servidor" o "1234[].servidor"
+     * en PBS/Torque, "Your job 1234 (...) has been submitted" en SGE
+     * @param qsubOutput
+     * @return null si la salida no contiene un identificador reconocible
+     */
+    public static String jobId(String qsubOutput) {
+        if (qsubOutput == null) {
+            return null;
+        }
+        Matcher sge = SGE_SUBMITTED.matcher(qsubOutput);
+        if (sge.find()) {
+            return sge.group(1);
+        }
+        for (String line : qsubOutput.split("\\r?\\n")) {
+            String candidate = line.trim();
+            if (PBS_JOB_ID.matcher(candidate).matches()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Interpreta la salida de qstat -f (formato PBS/Torque), un bloque "Job Id:" por trabajo
+     * @param qstatOutput
+     * @return estado de cada trabajo presente en la salida, por su identificador
+     */
+    public static Map<String, JobStatus> jobStatuses(String qstatOutput) {
+        Map<String, JobStatus> statuses = new HashMap<>();
+        if (qstatOutput == null) {
+            return statuses;
+        }
+        String jobId = null;
+        String state = null;
+        Integer exitStatus = null;
+        for (String line : qstatOutput.split("\\r?\\n")) {
+            Matcher header = JOB_HEADER.matcher(line);
+            if (header.matches()) {
+                if (jobId != null) {
+                    statuses.put(jobId, new JobStatus(jobId, state, exitStatus));
+                }
+                jobId = header.group(1);
+                state = null;
+                exitStatus = null;
+                continue;
+            }
+            Matcher attribute = ATTRIBUTE.matcher(line);
+            if (jobId != null && attribute.matches()) {
+                String name = attribute.group(1).toLowerCase();
+                if (JOB_STATE.equals(name)) {
+                    state = attribute.group(2);
+                } else if (EXIT_STATUS.equals(name)) {
+                    exitStatus = parseExitStatus(attribute.group(2));
+                }
+            }
+        }
+        if (jobId != null) {
+            statuses.put(jobId, new JobStatus(jobId, state, exitStatus));
+        }
+        return statuses;
+    }
+
+    private static Integer parseExitStatus(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+-- Reemplaza el contenido del archivo almacenado en PROCESSING_REQUEST.BYTES por su checksum SHA-256.
+-- El archivo original permanece en disco en BASE_PATH + FILE_NAME.
+ALTER TABLE PROCESSING_REQUEST ADD COLUMN CHECKSUM VARCHAR(64) NULL;
+
+UPDATE PROCESSING_REQUEST SET CHECKSUM = SHA2(BYTES, 256) WHERE CHECKSUM IS NULL;
+
+ALTER TABLE PROCESSING_REQUEST DROP COLUMN BYTES;
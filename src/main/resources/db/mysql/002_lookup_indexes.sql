@@ -0,0 +1,12 @@
+-- Índices para las consultas por identificador, investigador, estado y recursos de una solicitud.
+-- Antes de crear el índice único se debe verificar que no existan identificadores duplicados:
+-- SELECT IDENTIFIER, COUNT(*) FROM PROCESSING_REQUEST GROUP BY IDENTIFIER HAVING COUNT(*) > 1;
+ALTER TABLE PROCESSING_REQUEST
+    ADD UNIQUE INDEX UK_PROCESSING_REQUEST_IDENTIFIER (IDENTIFIER),
+    ADD INDEX IDX_PROCESSING_REQUEST_INVESTIGATOR (INVESTIGATOR_ID),
+    ADD INDEX IDX_PROCESSING_REQUEST_STATE (STATE, LAST_UPDATE),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE PROCESS_RESOURCE
+    ADD INDEX IDX_PROCESS_RESOURCE_PROCESSING_REQUEST (PROCESSING_REQUEST_ID),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,2 @@
+-- Identificador del trabajo asignado por el planificador del cluster (qsub).
+ALTER TABLE PROCESSING_REQUEST ADD COLUMN JOB_ID VARCHAR(100) NULL;
@@ -0,0 +1,4 @@
+-- Límites de admisión por investigador. NULL usa los valores por defecto de la configuración (admission.*).
+ALTER TABLE INVESTIGATOR ADD COLUMN MAX_RUNNING_REQUESTS INT NULL;
+ALTER TABLE INVESTIGATOR ADD COLUMN REQUESTS_PER_MINUTE INT NULL;
+ALTER TABLE INVESTIGATOR ADD COLUMN SHARE_WEIGHT INT NULL;
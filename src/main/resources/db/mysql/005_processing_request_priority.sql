@@ -0,0 +1,10 @@
+-- Prioridad de la solicitud: 0 INTERACTIVE, 1 NORMAL, 2 BULK. Las solicitudes existentes quedan en NORMAL.
+ALTER TABLE PROCESSING_REQUEST ADD COLUMN PRIORITY INT NOT NULL DEFAULT 1;
+
+-- La cola de espera se recorre por prioridad, última actualización e id, en general y por investigador
+-- (reanudación de solicitudes en espera, admisión y posición en la cola).
+ALTER TABLE PROCESSING_REQUEST
+    DROP INDEX IDX_PROCESSING_REQUEST_STATE,
+    ADD INDEX IDX_PROCESSING_REQUEST_STATE (STATE, PRIORITY, LAST_UPDATE, ID),
+    ADD INDEX IDX_PROCESSING_REQUEST_STATE_INVESTIGATOR (STATE, INVESTIGATOR_ID, PRIORITY, LAST_UPDATE, ID),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,328 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+/**
+ * Ejecuta procesos reales con sh, solo en linux
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LocalClusterBackendTest {
+
+    private static final long WAIT_MILLIS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    FileUtilities fileUtilities;
+
+    @Mock
+    FolderConf folderConf;
+
+    @Mock
+    ClusterConf clusterConf;
+
+    @InjectMocks
+    LocalClusterBackend localClusterBackend;
+
+    private File pidFolder;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(System.getProperty("os.name").toLowerCase().contains("linux"));
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(clusterConf.getLocalPoolSize()).thenReturn(1);
+        Mockito.when(clusterConf.getLocalQueueCapacity()).thenReturn(1);
+        Mockito.when(clusterConf.getLocalTimeoutSeconds()).thenReturn(60L);
+        pidFolder = folder.newFolder("jobs");
+        Mockito.when(fileUtilities.buildBasePath("local", "jobs")).thenReturn(pidFolder.getAbsolutePath() + File.separator);
+        localClusterBackend.init();
+    }
+
+    @After
+    public void tearDown() {
+        localClusterBackend.shutdown();
+    }
+
+    @Test
+    public void submitTest() throws Exception {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a", "echo hola\necho aviso >&2\n");
+
+        // act
+        Output output = localClusterBackend.submit(processingRequest);
+        awaitFinished(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.PROCESSING.getState(), output.getState());
+        Assert.assertEquals("local-a", processingRequest.getJobId());
+        Assert.assertEquals("hola\n", read(processingRequest, "prueba.out"));
+        Assert.assertEquals("aviso\n", read(processingRequest, "prueba.err"));
+        assertNoTemporaryFiles(processingRequest);
+    }
+
+    @Test
+    public void submitFailedTest() throws Exception {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a", "echo parcial\necho Traceback >&2\nexit 3\n");
+
+        // act
+        localClusterBackend.submit(processingRequest);
+        awaitFinished(processingRequest);
+
+        // assert
+        Assert.assertFalse(new File(processingRequest.getBasePath(), "prueba.out").exists());
+        Assert.assertEquals("parcial\nTraceback\n", read(processingRequest, "prueba.err"));
+        assertNoTemporaryFiles(processingRequest);
+    }
+
+    @Test
+    public void submitQueueFullTest() throws Exception {
+        // arrange
+        ProcessingRequest running = processingRequest("a", "sleep 30\n");
+        ProcessingRequest queued = processingRequest("b", "echo b\n");
+        ProcessingRequest rejected = processingRequest("c", "echo c\n");
+        localClusterBackend.submit(running);
+        awaitState(running, "R");
+        localClusterBackend.submit(queued);
+
+        // act
+        Output output = localClusterBackend.submit(rejected);
+
+        // assert
+        Assert.assertEquals(ProcessState.FINISHED_WITH_ERRORS.getState(), output.getState());
+        Assert.assertNull(rejected.getJobId());
+        Assert.assertEquals("Q", status(queued).getState());
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        // arrange
+        Mockito.when(clusterConf.getLocalTimeoutSeconds()).thenReturn(1L);
+        ProcessingRequest processingRequest = processingRequest("a", "sleep 30 &\necho $! > child.pid\nwait\n");
+
+        // act
+        localClusterBackend.submit(processingRequest);
+        awaitFinished(processingRequest);
+
+        // assert
+        Assert.assertTrue(read(processingRequest, "prueba.err").contains("superó el tiempo máximo"));
+        assertNotRunning(read(processingRequest, "child.pid").trim());
+        assertNoTemporaryFiles(processingRequest);
+    }
+
+    @Test
+    public void cancelQueuedTest() throws Exception {
+        // arrange
+        ProcessingRequest running = processingRequest("a", "sleep 30\n");
+        ProcessingRequest queued = processingRequest("b", "touch executed\n");
+        localClusterBackend.submit(running);
+        awaitState(running, "R");
+        localClusterBackend.submit(queued);
+
+        // act
+        boolean cancelled = localClusterBackend.cancel(queued.getJobId());
+        localClusterBackend.cancel(running.getJobId());
+        awaitFinished(running);
+
+        // assert
+        Assert.assertTrue(cancelled);
+        Assert.assertNull(status(queued));
+        Assert.assertFalse(new File(queued.getBasePath(), "executed").exists());
+        assertNoTemporaryFiles(queued);
+    }
+
+    @Test
+    public void cancelRunningTest() throws Exception {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a", "echo inicio\nsleep 30 &\necho $! > child.pid\nwait\n");
+        localClusterBackend.submit(processingRequest);
+        awaitState(processingRequest, "R");
+        awaitFile(processingRequest, "child.pid");
+
+        // act
+        boolean cancelled = localClusterBackend.cancel(processingRequest.getJobId());
+        awaitFinished(processingRequest);
+
+        // assert
+        Assert.assertTrue(cancelled);
+        assertNotRunning(read(processingRequest, "child.pid").trim());
+        Assert.assertFalse(new File(processingRequest.getBasePath(), "prueba.out").exists());
+        Assert.assertEquals("inicio\n", read(processingRequest, "prueba.err"));
+        assertNoTemporaryFiles(processingRequest);
+    }
+
+    @Test
+    public void cancelUnknownTest() {
+        // act
+        boolean cancelled = localClusterBackend.cancel("local-x");
+
+        // assert
+        Assert.assertFalse(cancelled);
+    }
+
+    /**
+     * El trabajo sigue en ejecución luego de un reinicio: no está entre los trabajos de esta instancia,
+     * pero se reporta en ejecución con su archivo .pid y al cancelarlo se termina todo su grupo de procesos
+     */
+    @Test
+    public void cancelRecoveredTest() throws Exception {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a", "echo inicio\nsleep 30 &\necho $! > child.pid\nwait\n");
+        startRecovered(processingRequest);
+        awaitFile(processingRequest, "child.pid");
+        JobStatus running = status(processingRequest);
+
+        // act
+        boolean cancelled = localClusterBackend.cancel(processingRequest.getJobId());
+
+        // assert
+        Assert.assertEquals("R", running.getState());
+        Assert.assertTrue(cancelled);
+        assertNotRunning(read(processingRequest, "child.pid").trim());
+        Assert.assertNull(status(processingRequest));
+        Assert.assertFalse(new File(processingRequest.getBasePath(), "prueba.out").exists());
+        Assert.assertEquals("inicio\n", read(processingRequest, "prueba.err"));
+        assertNoTemporaryFiles(processingRequest);
+        Assert.assertFalse(new File(pidFolder, "local-a.pid").exists());
+    }
+
+    /**
+     * El trabajo terminó mientras la aplicación estaba detenida: la consulta deja su salida según el código
+     * de salida que registró y ya no lo reporta
+     */
+    @Test
+    public void pollRecoveredFinishedTest() throws Exception {
+        // arrange
+        ProcessingRequest succeeded = processingRequest("a", "echo hola\n");
+        ProcessingRequest failed = processingRequest("b", "echo parcial\nexit 3\n");
+        startRecovered(succeeded).waitFor();
+        startRecovered(failed).waitFor();
+
+        // act
+        JobStatus succeededStatus = status(succeeded);
+        JobStatus failedStatus = status(failed);
+
+        // assert
+        Assert.assertNull(succeededStatus);
+        Assert.assertNull(failedStatus);
+        Assert.assertEquals("hola\n", read(succeeded, "prueba.out"));
+        Assert.assertEquals("", read(succeeded, "prueba.err"));
+        Assert.assertFalse(new File(failed.getBasePath(), "prueba.out").exists());
+        Assert.assertEquals("parcial\n", read(failed, "prueba.err"));
+        assertNoTemporaryFiles(succeeded);
+        assertNoTemporaryFiles(failed);
+        Assert.assertFalse(new File(succeeded.getBasePath(), "local-job.exit").exists());
+        Assert.assertEquals(0, pidFolder.list().length);
+        Assert.assertFalse(localClusterBackend.cancel(succeeded.getJobId()));
+    }
+
+    /**
+     * Inicia el trabajo como lo hizo una instancia anterior de la aplicación y registra su archivo .pid
+     */
+    private Process startRecovered(ProcessingRequest processingRequest) throws IOException {
+        File requestFolder = new File(processingRequest.getBasePath());
+        processingRequest.setJobId("local-" + processingRequest.getIdentifier());
+        Process process = new ProcessBuilder(localClusterBackend.command(new File(requestFolder, "prueba.out.tmp").toPath()))
+                .directory(requestFolder)
+                .redirectError(new File(requestFolder, "prueba.err.tmp"))
+                .start();
+        String processGroup = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+        localClusterBackend.writePidFile(processingRequest.getJobId(), processGroup.trim(), requestFolder);
+        return process;
+    }
+
+    private ProcessingRequest processingRequest(String identifier, String script) throws IOException {
+        File requestFolder = folder.newFolder(identifier);
+        Files.write(new File(requestFolder, "qsub.sh").toPath(), script.getBytes(StandardCharsets.UTF_8));
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier(identifier);
+        processingRequest.setBasePath(requestFolder.getAbsolutePath() + File.separator);
+        processingRequest.setPriority(Priority.NORMAL.getLevel());
+        return processingRequest;
+    }
+
+    private JobStatus status(ProcessingRequest processingRequest) {
+        String jobId = "local-" + processingRequest.getIdentifier();
+        Map<String, JobStatus> jobStatuses = localClusterBackend.poll(Collections.singletonList(jobId));
+        return jobStatuses.get(jobId);
+    }
+
+    private void awaitState(ProcessingRequest processingRequest, String state) throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        while (status(processingRequest) == null || !state.equals(status(processingRequest).getState())) {
+            Assert.assertTrue(System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+    private void awaitFinished(ProcessingRequest processingRequest) throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        while (status(processingRequest) != null) {
+            Assert.assertTrue(System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+    private void awaitFile(ProcessingRequest processingRequest, String fileName) throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        while (new File(processingRequest.getBasePath(), fileName).length() == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * El proceso ya no existe o quedó como zombie esperando ser recogido
+     */
+    private void assertNotRunning(String pid) throws Exception {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        File stat = new File("/proc/" + pid + "/stat");
+        while (stat.exists() && !new String(Files.readAllBytes(stat.toPath()), StandardCharsets.US_ASCII).contains(") Z")) {
+            Assert.assertTrue("El proceso " + pid + " sigue en ejecución", System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+    private String read(ProcessingRequest processingRequest, String fileName) throws IOException {
+        return new String(Files.readAllBytes(new File(processingRequest.getBasePath(), fileName).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private void assertNoTemporaryFiles(ProcessingRequest processingRequest) {
+        Assert.assertFalse(new File(processingRequest.getBasePath(), "prueba.out.tmp").exists());
+        Assert.assertFalse(new File(processingRequest.getBasePath(), "prueba.err.tmp").exists());
+    }
+
+}
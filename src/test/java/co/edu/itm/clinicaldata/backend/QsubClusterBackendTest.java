@@ -0,0 +1,484 @@
+package co.edu.itm.clinicaldata.backend;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import co.edu.itm.clinicaldata.component.Commands;
+import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QsubClusterBackendTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    Commands commands;
+
+    @Mock
+    FileUtilities fileUtilities;
+
+    @Mock
+    FolderConf folderConf;
+
+    @Mock
+    ClusterConf clusterConf;
+
+    @Mock
+    MonitorConf monitorConf;
+
+    @InjectMocks
+    QsubClusterBackend qsubClusterBackend;
+
+    @Test
+    public void submitTest() {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("10.pbs01\n"));
+
+        // act
+        Output output = qsubClusterBackend.submit(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.PROCESSING.getState(), output.getState());
+        Assert.assertEquals("10.pbs01", processingRequest.getJobId());
+    }
+
+    @Test
+    public void submitJobScriptTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(fileUtilities.readFile("/base/a/qsub.sh")).thenReturn("#!/bin/bash\n#PBS -l walltime=01:00:00\n#PBS -q normal\npython /base/a/x.py\n");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("10.pbs01\n"));
+
+        // act
+        qsubClusterBackend.submit(processingRequest);
+
+        // assert
+        ArgumentCaptor<byte[]> script = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(fileUtilities).createFile(script.capture(), Mockito.eq("/base/a/job-qsub.sh"));
+        String content = new String(script.getValue(), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.startsWith("#!/bin/sh\n#PBS -l walltime=01:00:00\n#PBS -q normal\ncd '/base/a/' || exit 1\n"));
+        Assert.assertTrue(content.contains("sh qsub.sh > prueba.out.tmp 2> prueba.err.tmp\n"));
+        Assert.assertFalse(content.contains("python"));
+        Mockito.verify(commands).executeCommand(Mockito.anyString(), Mockito.endsWith("-o /base/a/ -e /base/a/ /base/a/job-qsub.sh"));
+    }
+
+    @Test
+    public void submitJobScriptNotCreatedTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.doThrow(new ValidateException("")).when(fileUtilities).createFile(Mockito.any(), Mockito.anyString());
+
+        // act
+        Output output = qsubClusterBackend.submit(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.FINISHED_WITHOUT_ACTIONS.getState(), output.getState());
+        Mockito.verifyZeroInteractions(commands);
+    }
+
+    /**
+     * Mientras el trabajo está en ejecución su salida se puede leer del temporal, el .out solo aparece al terminar
+     */
+    @Test
+    public void submitFollowRunningJobTest() throws Exception {
+        // arrange
+        Assume.assumeTrue(System.getProperty("os.name").toLowerCase().contains("linux"));
+        File requestFolder = folder.newFolder("a");
+        Files.write(new File(requestFolder, "qsub.sh").toPath(),
+                "echo primera\nwhile [ ! -f continuar ]; do sleep 0.05; done\necho segunda\n".getBytes(StandardCharsets.UTF_8));
+        ProcessingRequest processingRequest = processingRequest("a");
+        processingRequest.setBasePath(requestFolder.getAbsolutePath() + File.separator);
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("10.pbs01\n"));
+        qsubClusterBackend.submit(processingRequest);
+        ArgumentCaptor<byte[]> script = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<String> scriptPath = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(fileUtilities).createFile(script.capture(), scriptPath.capture());
+        Files.write(new File(scriptPath.getValue()).toPath(), script.getValue());
+        File out = new File(requestFolder, "prueba.out");
+        File outTemporary = new File(requestFolder, "prueba.out.tmp");
+
+        // act
+        Process job = new ProcessBuilder("sh", scriptPath.getValue()).start();
+        long limit = System.currentTimeMillis() + 10000;
+        while (outTemporary.length() == 0 && System.currentTimeMillis() < limit) {
+            Thread.sleep(20);
+        }
+        String running = new String(Files.readAllBytes(outTemporary.toPath()), StandardCharsets.UTF_8);
+        boolean finishedWhileRunning = out.exists();
+        new File(requestFolder, "continuar").createNewFile();
+        Assert.assertTrue(job.waitFor(10, TimeUnit.SECONDS));
+
+        // assert
+        Assert.assertEquals("primera\n", running);
+        Assert.assertFalse(finishedWhileRunning);
+        Assert.assertEquals("primera\nsegunda\n", new String(Files.readAllBytes(out.toPath()), StandardCharsets.UTF_8));
+        Assert.assertFalse(outTemporary.exists());
+        Assert.assertFalse(new File(requestFolder, "prueba.err.tmp").exists());
+    }
+
+    @Test
+    public void submitPriorityTest() {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        processingRequest.setPriority(Priority.BULK.getLevel());
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(clusterConf.getPriorityFlag()).thenReturn("-p");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("10.pbs01\n"));
+
+        // act
+        qsubClusterBackend.submit(processingRequest);
+
+        // assert
+        Mockito.verify(commands).executeCommand(Mockito.anyString(), Mockito.startsWith("-p -100 "));
+    }
+
+    @Test
+    public void submitNotLinuxTest() {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.FALSE);
+
+        // act
+        Output output = qsubClusterBackend.submit(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.FINISHED_WITHOUT_ACTIONS.getState(), output.getState());
+        Mockito.verifyZeroInteractions(commands);
+    }
+
+    @Test
+    public void submitBatchTest() throws ValidateException {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        for (String identifier : Arrays.asList("a", "b")) {
+            listProcessingRequest.add(processingRequest(identifier));
+        }
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(clusterConf.getArrayFlag()).thenReturn("-J");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("1234[].pbs01\n"));
+
+        // act
+        List<Output> outputs = qsubClusterBackend.submitBatch(listProcessingRequest);
+
+        // assert
+        Mockito.verify(commands, Mockito.times(1)).executeCommand(Mockito.anyString(), Mockito.startsWith("-J 1-2 "));
+        Mockito.verify(fileUtilities, Mockito.times(1)).createFile(Mockito.any(), Mockito.eq("/batch/qsub.sh"));
+        Assert.assertEquals(2, outputs.size());
+        Assert.assertEquals(ProcessState.PROCESSING.getState(), outputs.get(1).getState());
+        Assert.assertEquals("1234[1].pbs01", listProcessingRequest.get(0).getJobId());
+        Assert.assertEquals("1234[2].pbs01", listProcessingRequest.get(1).getJobId());
+    }
+
+    @Test
+    public void submitBatchDirectivesTest() throws ValidateException {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = Arrays.asList(processingRequest("a"), processingRequest("b"));
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(fileUtilities.readFile(Mockito.startsWith("/base/"))).thenReturn("#PBS -l walltime=01:00:00\n#PBS -q normal\npython x.py\n");
+        Mockito.when(clusterConf.getArrayFlag()).thenReturn("-J");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("1234[].pbs01\n"));
+
+        // act
+        qsubClusterBackend.submitBatch(listProcessingRequest);
+
+        // assert
+        ArgumentCaptor<byte[]> script = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(fileUtilities).createFile(script.capture(), Mockito.eq("/batch/qsub.sh"));
+        Assert.assertTrue(new String(script.getValue(), StandardCharsets.UTF_8)
+                .startsWith("#!/bin/sh\n#PBS -l walltime=01:00:00\n#PBS -q normal\ncase "));
+        Mockito.verify(commands).executeCommand(Mockito.anyString(), Mockito.endsWith("-o /batch/ -e /batch/ /batch/qsub.sh"));
+        ArgumentCaptor<byte[]> jobs = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(fileUtilities).createFile(jobs.capture(), Mockito.eq("/batch/jobs"));
+        Assert.assertEquals("1234[1].pbs01\n1234[2].pbs01", new String(jobs.getValue(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void submitBatchSplitByDirectivesTest() {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = Arrays.asList(processingRequest("a"), processingRequest("b"), processingRequest("c"));
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(fileUtilities.readFile("/base/a/qsub.sh")).thenReturn("#PBS -q normal\n");
+        Mockito.when(fileUtilities.readFile("/base/b/qsub.sh")).thenReturn("#PBS -q gpu\n");
+        Mockito.when(fileUtilities.readFile("/base/c/qsub.sh")).thenReturn("#PBS -q normal\n");
+        Mockito.when(clusterConf.getArrayFlag()).thenReturn("-J");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString()))
+                .thenReturn(result("1234[].pbs01\n"), result("1235[].pbs01\n"));
+
+        // act
+        List<Output> outputs = qsubClusterBackend.submitBatch(listProcessingRequest);
+
+        // assert
+        Mockito.verify(commands).executeCommand(Mockito.anyString(), Mockito.startsWith("-J 1-2 "));
+        Mockito.verify(commands).executeCommand(Mockito.anyString(), Mockito.startsWith("-J 1-1 "));
+        Assert.assertEquals(3, outputs.size());
+        Assert.assertEquals("1234[1].pbs01", listProcessingRequest.get(0).getJobId());
+        Assert.assertEquals("1235[1].pbs01", listProcessingRequest.get(1).getJobId());
+        Assert.assertEquals("1234[2].pbs01", listProcessingRequest.get(2).getJobId());
+        Assert.assertEquals("1235[].pbs01\n", outputs.get(1).getResult());
+    }
+
+    @Test
+    public void submitBatchFailedDeletesFolderTest() {
+        // arrange
+        Output failed = result("");
+        failed.setError("qsub: Unknown queue");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(failed);
+
+        // act
+        List<Output> outputs = qsubClusterBackend.submitBatch(Arrays.asList(processingRequest("a")));
+
+        // assert
+        Assert.assertEquals(ProcessState.FINISHED_WITH_ERRORS.getState(), outputs.get(0).getState());
+        Mockito.verify(fileUtilities).deleteBasePath("/batch/");
+    }
+
+    @Test
+    public void retainJobsDeletesFinishedBatchTest() {
+        // arrange
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(fileUtilities.deleteBasePath("/batch/")).thenReturn(Boolean.TRUE);
+        Mockito.when(clusterConf.getArrayFlag()).thenReturn("-J");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("1234[].pbs01\n"));
+        qsubClusterBackend.submitBatch(Arrays.asList(processingRequest("a"), processingRequest("b")));
+
+        // act
+        qsubClusterBackend.retainJobs(Arrays.asList("1234[2].pbs01"));
+        qsubClusterBackend.retainJobs(new ArrayList<>());
+        qsubClusterBackend.retainJobs(new ArrayList<>());
+        qsubClusterBackend.retainJobs(new ArrayList<>());
+
+        // assert
+        Mockito.verify(fileUtilities, Mockito.times(1)).deleteBasePath("/batch/");
+    }
+
+    @Test
+    public void retainJobsWithinGracePeriodTest() {
+        // arrange
+        Mockito.when(monitorConf.getLostGracePeriod()).thenReturn(60000L);
+        Mockito.when(fileUtilities.listBasePaths("batch")).thenReturn(Arrays.asList("/batch/x/"));
+        Mockito.when(fileUtilities.readFile("/batch/x/jobs")).thenReturn("1234[1].pbs01\n1234[2].pbs01");
+        qsubClusterBackend.loadBatches();
+
+        // act
+        qsubClusterBackend.retainJobs(new ArrayList<>());
+        qsubClusterBackend.retainJobs(new ArrayList<>());
+
+        // assert
+        Mockito.verify(fileUtilities, Mockito.never()).deleteBasePath(Mockito.anyString());
+    }
+
+    @Test
+    public void loadBatchesTest() {
+        // arrange
+        Mockito.when(fileUtilities.listBasePaths("batch")).thenReturn(Arrays.asList("/batch/x/", "/batch/y/"));
+        Mockito.when(fileUtilities.readFile("/batch/x/jobs")).thenReturn("1234[1].pbs01\n1234[2].pbs01");
+        Mockito.when(fileUtilities.readFile("/batch/y/jobs")).thenReturn("");
+        Mockito.when(fileUtilities.deleteBasePath(Mockito.anyString())).thenReturn(Boolean.TRUE);
+
+        // act
+        qsubClusterBackend.loadBatches();
+        qsubClusterBackend.retainJobs(Arrays.asList("1234[2].pbs01"));
+        qsubClusterBackend.retainJobs(Arrays.asList("1234[2].pbs01"));
+
+        // assert
+        Mockito.verify(fileUtilities).deleteBasePath("/batch/y/");
+        Mockito.verify(fileUtilities, Mockito.never()).deleteBasePath("/batch/x/");
+    }
+
+    @Test
+    public void submitBatchScriptFailedTest() throws Exception {
+        // arrange
+        Assume.assumeTrue(System.getProperty("os.name").toLowerCase().contains("linux"));
+        File requestFolder = folder.newFolder("a");
+        Files.write(new File(requestFolder, "qsub.sh").toPath(), "echo parcial\necho Traceback >&2\nexit 1\n".getBytes(StandardCharsets.UTF_8));
+        ProcessingRequest processingRequest = processingRequest("a");
+        processingRequest.setBasePath(requestFolder.getAbsolutePath() + File.separator);
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("/batch/");
+        Mockito.when(folderConf.getShFileName()).thenReturn("qsub.sh");
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(clusterConf.getArrayFlag()).thenReturn("-J");
+        Mockito.when(clusterConf.getArrayIndexVariable()).thenReturn("PBS_ARRAY_INDEX");
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(result("1234[].pbs01\n"));
+        qsubClusterBackend.submitBatch(Arrays.asList(processingRequest));
+        ArgumentCaptor<byte[]> script = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(fileUtilities).createFile(script.capture(), Mockito.eq("/batch/qsub.sh"));
+        File scriptFile = folder.newFile("array.sh");
+        Files.write(scriptFile.toPath(), script.getValue());
+
+        // act
+        ProcessBuilder builder = new ProcessBuilder("sh", scriptFile.getAbsolutePath());
+        builder.environment().put("PBS_ARRAY_INDEX", "1");
+        int exitValue = builder.start().waitFor();
+
+        // assert
+        Assert.assertEquals(0, exitValue);
+        Assert.assertFalse(new File(requestFolder, "prueba.out").exists());
+        Assert.assertFalse(new File(requestFolder, "prueba.out.tmp").exists());
+        Assert.assertFalse(new File(requestFolder, "prueba.err.tmp").exists());
+        Assert.assertEquals("parcial\nTraceback\n",
+                new String(Files.readAllBytes(new File(requestFolder, "prueba.err").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void pollTest() {
+        // arrange
+        Mockito.when(monitorConf.isSchedulerQuery()).thenReturn(Boolean.TRUE);
+        Mockito.when(monitorConf.getStatusCommand()).thenReturn("qstat -x -f ");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(
+                result("Job Id: 10.pbs01\n    job_state = R\n\nJob Id: 11.pbs01\n    job_state = F\n    Exit_status = 137\n"));
+
+        // act
+        Map<String, JobStatus> jobStatuses = qsubClusterBackend.poll(Arrays.asList("10.pbs01", "11.pbs01"));
+
+        // assert
+        Mockito.verify(commands, Mockito.times(1)).executeCommand("qstat -x -f ", "10.pbs01 11.pbs01");
+        Assert.assertFalse(jobStatuses.get("10.pbs01").isFinished());
+        Assert.assertTrue(jobStatuses.get("11.pbs01").isFinished());
+        Assert.assertEquals(Integer.valueOf(137), jobStatuses.get("11.pbs01").getExitStatus());
+    }
+
+    @Test
+    public void pollUnsupportedTest() {
+        // arrange
+        Output output = result("");
+        output.setError("qstat: invalid option -- 'x'");
+        Mockito.when(monitorConf.isSchedulerQuery()).thenReturn(Boolean.TRUE);
+        Mockito.when(monitorConf.getStatusCommand()).thenReturn("qstat -x -f ");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(output);
+
+        // act
+        Map<String, JobStatus> jobStatuses = qsubClusterBackend.poll(Arrays.asList("10.pbs01"));
+
+        // assert
+        Assert.assertNull(jobStatuses);
+    }
+
+    @Test
+    public void pollUnknownJobsTest() {
+        // arrange
+        Output output = result("");
+        output.setError("qstat: Unknown Job Id 10.pbs01");
+        Mockito.when(monitorConf.isSchedulerQuery()).thenReturn(Boolean.TRUE);
+        Mockito.when(monitorConf.getStatusCommand()).thenReturn("qstat -f ");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(output);
+
+        // act
+        Map<String, JobStatus> jobStatuses = qsubClusterBackend.poll(Arrays.asList("10.pbs01"));
+
+        // assert
+        Assert.assertNotNull(jobStatuses);
+        Assert.assertTrue(jobStatuses.isEmpty());
+    }
+
+    @Test
+    public void pollUnrecognizedOutputTest() {
+        // arrange
+        Mockito.when(monitorConf.isSchedulerQuery()).thenReturn(Boolean.TRUE);
+        Mockito.when(monitorConf.getStatusCommand()).thenReturn("qstat -x -f ");
+        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.TRUE);
+        Mockito.when(commands.executeCommand(Mockito.anyString(), Mockito.anyString())).thenReturn(
+                result("<?xml version=\"1.0\"?><Data><Job><Job_Id>10.torque01</Job_Id><job_state>R</job_state></Job></Data>"));
+
+        // act
+        Map<String, JobStatus> jobStatuses = qsubClusterBackend.poll(Arrays.asList("10.torque01"));
+
+        // assert
+        Assert.assertNull(jobStatuses);
+    }
+
+    @Test
+    public void fetchOutputTest() {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(fileUtilities.existsFile("/base/a/prueba.err")).thenReturn(Boolean.TRUE);
+        Mockito.when(fileUtilities.readTail(Mockito.eq("/base/a/prueba.err"), Mockito.anyInt())).thenReturn("Traceback");
+
+        // act
+        Output output = qsubClusterBackend.fetchOutput(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.FINISHED_WITH_ERRORS.getState(), output.getState());
+        Assert.assertEquals("Traceback", output.getResult());
+    }
+
+    @Test
+    public void fetchOutputNotFinishedTest() {
+        // arrange
+        ProcessingRequest processingRequest = processingRequest("a");
+
+        // act
+        Output output = qsubClusterBackend.fetchOutput(processingRequest);
+
+        // assert
+        Assert.assertNull(output);
+    }
+
+    private ProcessingRequest processingRequest(String identifier) {
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier(identifier);
+        processingRequest.setBasePath("/base/" + identifier + "/");
+        return processingRequest;
+    }
+
+    private Output result(String result) {
+        Output output = new Output();
+        output.setResult(result);
+        return output;
+    }
+
+}
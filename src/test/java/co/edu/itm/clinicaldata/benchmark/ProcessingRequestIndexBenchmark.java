@@ -0,0 +1,123 @@
+package co.edu.itm.clinicaldata.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mide la latencia de las consultas por identificador e investigador sobre PROCESSING_REQUEST
+ * antes y después de crear los índices declarados en el modelo.
+ * No se ejecuta con las pruebas, se lanza manualmente (ver README).
+ * Propiedades: benchmark.rows (filas a insertar), benchmark.lookups (consultas por medición).
+ */
+public class ProcessingRequestIndexBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+    private static final int INVESTIGATORS = 1000;
+    private static final int BATCH_SIZE = 10000;
+
+    private static final String CREATE_TABLE = "CREATE TABLE PROCESSING_REQUEST (ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "IDENTIFIER VARCHAR(40) NOT NULL, CREATION_DATE TIMESTAMP NOT NULL, LAST_UPDATE TIMESTAMP, "
+            + "LANGUAGE VARCHAR(10) NOT NULL, CHECKSUM VARCHAR(64), BASE_PATH VARCHAR(255) NOT NULL, "
+            + "FILE_NAME VARCHAR(255) NOT NULL, STATE VARCHAR(50) NOT NULL, RESULT VARCHAR(4000), PRIORITY INT DEFAULT 1 NOT NULL, INVESTIGATOR_ID BIGINT)";
+    private static final String INSERT = "INSERT INTO PROCESSING_REQUEST (IDENTIFIER, CREATION_DATE, LAST_UPDATE, "
+            + "LANGUAGE, BASE_PATH, FILE_NAME, STATE, INVESTIGATOR_ID) VALUES (?, ?, ?, 'Java', '/tmp/', 'Main.java', ?, ?)";
+    private static final String[] CREATE_INDEXES = {
+            "CREATE UNIQUE INDEX UK_PROCESSING_REQUEST_IDENTIFIER ON PROCESSING_REQUEST (IDENTIFIER)",
+            "CREATE INDEX IDX_PROCESSING_REQUEST_INVESTIGATOR ON PROCESSING_REQUEST (INVESTIGATOR_ID)",
+            "CREATE INDEX IDX_PROCESSING_REQUEST_STATE ON PROCESSING_REQUEST (STATE, PRIORITY, LAST_UPDATE, ID)",
+            "CREATE INDEX IDX_PROCESSING_REQUEST_STATE_INVESTIGATOR ON PROCESSING_REQUEST (STATE, INVESTIGATOR_ID, PRIORITY, LAST_UPDATE, ID)" };
+    private static final String BY_IDENTIFIER = "SELECT IDENTIFIER, STATE, CREATION_DATE, LAST_UPDATE FROM PROCESSING_REQUEST WHERE IDENTIFIER = ?";
+    private static final String BY_INVESTIGATOR = "SELECT COUNT(*) FROM PROCESSING_REQUEST WHERE INVESTIGATOR_ID = ?";
+
+    public static void main(String[] args) throws SQLException {
+        int rows = Integer.getInteger("benchmark.rows", 1000000);
+        int lookups = Integer.getInteger("benchmark.lookups", 200);
+
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_TABLE);
+            }
+            populate(connection, rows);
+            System.out.println(String.format("Filas: %d, consultas por medición: %d", rows, lookups));
+
+            measure(connection, "Sin índices", rows, lookups);
+
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                for (String createIndex : CREATE_INDEXES) {
+                    statement.execute(createIndex);
+                }
+            }
+            System.out.println(String.format("Creación de índices: %d ms", (System.nanoTime() - start) / 1000000));
+
+            measure(connection, "Con índices", rows, lookups);
+        }
+    }
+
+    private static void populate(Connection connection, int rows) throws SQLException {
+        connection.setAutoCommit(false);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, identifier(i));
+                insert.setTimestamp(2, now);
+                insert.setTimestamp(3, now);
+                insert.setString(4, i % 100 == 0 ? "EN PROGRESO" : "TERMINADA");
+                insert.setLong(5, i % INVESTIGATORS);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    private static void measure(Connection connection, String label, int rows, int lookups) throws SQLException {
+        Random random = new Random(lookups);
+        long[] byIdentifier = new long[lookups];
+        long[] byInvestigator = new long[lookups];
+        try (PreparedStatement identifierQuery = connection.prepareStatement(BY_IDENTIFIER);
+                PreparedStatement investigatorQuery = connection.prepareStatement(BY_INVESTIGATOR)) {
+            for (int i = 0; i < lookups; i++) {
+                identifierQuery.setString(1, identifier(random.nextInt(rows)));
+                byIdentifier[i] = time(identifierQuery);
+                investigatorQuery.setLong(1, random.nextInt(INVESTIGATORS));
+                byInvestigator[i] = time(investigatorQuery);
+            }
+        }
+        System.out.println(String.format("%s - por identificador: %s", label, summary(byIdentifier)));
+        System.out.println(String.format("%s - por investigador: %s", label, summary(byInvestigator)));
+    }
+
+    private static long time(PreparedStatement query) throws SQLException {
+        long start = System.nanoTime();
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getString(1);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.3f ms, p99 %.3f ms", sorted[sorted.length / 2] / 1e6,
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6);
+    }
+
+    private static String identifier(int i) {
+        return String.format("%040x", i * 2654435761L);
+    }
+}
@@ -0,0 +1,165 @@
+package co.edu.itm.clinicaldata.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import co.edu.itm.clinicaldata.configuration.ReportCacheConf;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReportCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    ReportCacheConf reportCacheConf;
+
+    @InjectMocks
+    ReportCache reportCache;
+
+    @Before
+    public void setUp() {
+        Mockito.when(reportCacheConf.isEnabled()).thenReturn(Boolean.TRUE);
+        Mockito.when(reportCacheConf.getFolder()).thenReturn(folder.getRoot().getAbsolutePath());
+        Mockito.when(reportCacheConf.getMaxSize()).thenReturn(10L);
+        reportCache.load();
+    }
+
+    @Test
+    public void putAndGetTest() throws IOException {
+        // arrange
+        long stamp = reportCache.stamp();
+
+        // act
+        reportCache.put("request-a", "1-1", report("request-a", "pdf-a"), stamp);
+
+        // assert
+        Assert.assertEquals("pdf-a", read(reportCache.get("request-a", "1-1")));
+    }
+
+    @Test
+    public void getVersionMismatchTest() throws IOException {
+        // arrange
+        reportCache.put("request-a", "1-1", report("request-a", "pdf-a"), reportCache.stamp());
+
+        // act
+        InputStream other = reportCache.get("request-a", "2-1");
+        InputStream previous = reportCache.get("request-a", "1-1");
+
+        // assert
+        Assert.assertNull(other);
+        Assert.assertNull(previous);
+        Assert.assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedTest() throws IOException {
+        // arrange
+        long stamp = reportCache.stamp();
+        reportCache.put("request-a", "1-1", report("request-a", "aaaa"), stamp);
+        reportCache.put("request-b", "1-1", report("request-b", "bbbb"), stamp);
+        read(reportCache.get("request-a", "1-1"));
+
+        // act
+        reportCache.put("request-c", "1-1", report("request-c", "cccc"), stamp);
+
+        // assert
+        Assert.assertNull(reportCache.get("request-b", "1-1"));
+        Assert.assertEquals("aaaa", read(reportCache.get("request-a", "1-1")));
+        Assert.assertEquals("cccc", read(reportCache.get("request-c", "1-1")));
+    }
+
+    @Test
+    public void putLargerThanMaxSizeTest() throws IOException {
+        // arrange
+        Path temporary = report("request-a", "more than ten bytes");
+
+        // act
+        reportCache.put("request-a", "1-1", temporary, reportCache.stamp());
+
+        // assert
+        Assert.assertNull(reportCache.get("request-a", "1-1"));
+        Assert.assertFalse(Files.exists(temporary));
+    }
+
+    /**
+     * El reporte se generó mientras su alcance se invalidaba, pudo leer datos anteriores
+     */
+    @Test
+    public void putInvalidatedSinceStampTest() throws IOException {
+        // arrange
+        long stamp = reportCache.stamp();
+        Path temporary = report("investigator-1", "pdf-1");
+        reportCache.invalidate("investigator-1");
+
+        // act
+        reportCache.put("investigator-1", "1-1", temporary, stamp);
+
+        // assert
+        Assert.assertNull(reportCache.get("investigator-1", "1-1"));
+        Assert.assertFalse(Files.exists(temporary));
+    }
+
+    @Test
+    public void putOtherScopeInvalidatedTest() throws IOException {
+        // arrange
+        long stamp = reportCache.stamp();
+        reportCache.invalidate("investigator-2");
+        reportCache.invalidate("request-b");
+
+        // act
+        reportCache.put("investigator-1", "1-1", report("investigator-1", "pdf-1"), stamp);
+
+        // assert
+        Assert.assertEquals("pdf-1", read(reportCache.get("investigator-1", "1-1")));
+    }
+
+    /**
+     * Un alcance que dejó de registrarse por la cantidad de invalidaciones posteriores
+     * sigue impidiendo almacenar los reportes generados antes de su invalidación
+     */
+    @Test
+    public void putInvalidatedAndForgottenTest() throws IOException {
+        // arrange
+        long stamp = reportCache.stamp();
+        reportCache.invalidate("investigator-1");
+        for (int i = 0; i < ReportCache.MAX_TRACKED_INVALIDATIONS; i++) {
+            reportCache.invalidate("request-" + i);
+        }
+
+        // act
+        reportCache.put("investigator-1", "1-1", report("investigator-1", "pdf-1"), stamp);
+
+        // assert
+        Assert.assertNull(reportCache.get("investigator-1", "1-1"));
+    }
+
+    private Path report(String scope, String content) throws IOException {
+        Path temporary = reportCache.temporaryFile(scope);
+        Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+        return temporary;
+    }
+
+    private String read(InputStream inputStream) throws IOException {
+        Assert.assertNotNull(inputStream);
+        try (InputStream content = inputStream) {
+            return new String(IOUtils.toByteArray(content), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import co.edu.itm.clinicaldata.dto.Output;
+
+/**
+ * Ejecuta comandos reales con sh, solo en linux
+ */
+public class CommandsTest {
+
+    private static final long WAIT_MILLIS = 10000;
+    private static final int ONE_MEGABYTE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Commands commands = new Commands();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(System.getProperty("os.name").toLowerCase().contains("linux"));
+        commands.timeoutSeconds = 10;
+        commands.maxOutputBytes = 2 * ONE_MEGABYTE;
+    }
+
+    @After
+    public void tearDown() {
+        commands.shutdown();
+    }
+
+    @Test
+    public void executeCommandTest() throws IOException {
+        // arrange
+        File script = script("echo hola\necho aviso >&2\n");
+
+        // act
+        Output output = commands.executeCommand("sh ", script.getAbsolutePath());
+
+        // assert
+        Assert.assertEquals("hola\n", output.getResult());
+        Assert.assertEquals("aviso\n", output.getError());
+    }
+
+    /**
+     * Al superar el tiempo máximo el proceso se termina y el error indica el tiempo excedido
+     */
+    @Test
+    public void executeCommandTimeoutTest() throws Exception {
+        // arrange
+        commands.timeoutSeconds = 1;
+        File pid = new File(folder.getRoot(), "command.pid");
+        File script = script("echo $$ > " + pid.getAbsolutePath() + "\nexec sleep 30\n");
+
+        // act
+        Output output = commands.executeCommand("sh ", script.getAbsolutePath());
+
+        // assert
+        Assert.assertTrue(output.getError().contains("superó el tiempo máximo de ejecución de <1> segundos"));
+        Assert.assertNull(output.getResult());
+        assertNotRunning(read(pid));
+    }
+
+    @Test
+    public void executeCommandAsyncTimeoutTest() throws Exception {
+        // arrange
+        File pid = new File(folder.getRoot(), "command.pid");
+        File script = script("echo $$ > " + pid.getAbsolutePath() + "\nexec sleep 30\n");
+
+        // act
+        CompletableFuture<Output> output = commands.executeCommandAsync("sh " + script.getAbsolutePath(), 200, TimeUnit.MILLISECONDS);
+
+        // assert
+        try {
+            output.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            Assert.fail("El comando debió superar el tiempo máximo");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        assertNotRunning(read(pid));
+    }
+
+    @Test
+    public void executeCommandAsyncCancelTest() throws Exception {
+        // arrange
+        File pid = new File(folder.getRoot(), "command.pid");
+        File script = script("echo $$ > " + pid.getAbsolutePath() + "\nexec sleep 30\n");
+        CompletableFuture<Output> output = commands.executeCommandAsync("sh ", script.getAbsolutePath());
+        awaitFile(pid);
+
+        // act
+        boolean cancelled = output.cancel(true);
+
+        // assert
+        Assert.assertTrue(cancelled);
+        assertNotRunning(read(pid));
+    }
+
+    @Test
+    public void executeCommandMaxOutputBytesTest() throws IOException {
+        // arrange
+        commands.maxOutputBytes = 10;
+        File script = script("head -c 100 /dev/zero | tr '\\0' a\n");
+
+        // act
+        Output output = commands.executeCommand("sh ", script.getAbsolutePath());
+
+        // assert
+        Assert.assertEquals("aaaaaaaaaa" + String.format("%n[Salida truncada, se omitieron <90> bytes]"), output.getResult());
+    }
+
+    /**
+     * Un proceso que llena primero la salida de error no se bloquea mientras se lee la estándar
+     */
+    @Test
+    public void executeCommandDrainsBothStreamsTest() throws IOException {
+        // arrange
+        File script = script("head -c " + ONE_MEGABYTE + " /dev/zero | tr '\\0' e >&2\n"
+                + "head -c " + ONE_MEGABYTE + " /dev/zero | tr '\\0' o\n");
+
+        // act
+        Output output = commands.executeCommand("sh ", script.getAbsolutePath());
+
+        // assert
+        Assert.assertEquals(ONE_MEGABYTE, output.getResult().length());
+        Assert.assertEquals(ONE_MEGABYTE, output.getError().length());
+    }
+
+    private File script(String content) throws IOException {
+        File script = folder.newFile("command.sh");
+        Files.write(script.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return script;
+    }
+
+    private void awaitFile(File file) throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        while (file.length() == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * El proceso ya no existe o quedó como zombie esperando ser recogido
+     */
+    private void assertNotRunning(String pid) throws Exception {
+        long limit = System.currentTimeMillis() + WAIT_MILLIS;
+        File stat = new File("/proc/" + pid + "/stat");
+        while (stat.exists() && !new String(Files.readAllBytes(stat.toPath()), StandardCharsets.US_ASCII).contains(") Z")) {
+            Assert.assertTrue("El proceso " + pid + " sigue en ejecución", System.currentTimeMillis() < limit);
+            Thread.sleep(20);
+        }
+    }
+
+}
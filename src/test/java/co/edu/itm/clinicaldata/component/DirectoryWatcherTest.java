@@ -0,0 +1,85 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryWatcherTest {
+
+    private static final long WAIT_SECONDS = 15;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    DirectoryWatcher directoryWatcher = new DirectoryWatcher();
+
+    @Before
+    public void setUp() {
+        directoryWatcher.start();
+    }
+
+    @After
+    public void tearDown() {
+        directoryWatcher.stop();
+    }
+
+    /**
+     * La salida escrita en el temporal y renombrada al terminar se notifica con el nombre final
+     */
+    @Test
+    public void registerRenamedFileTest() throws Exception {
+        // arrange
+        BlockingQueue<Path> changes = new LinkedBlockingQueue<>();
+        File temporary = new File(folder.getRoot(), "prueba.out.tmp");
+        File out = new File(folder.getRoot(), "prueba.out");
+
+        // act
+        boolean registered = directoryWatcher.register(folder.getRoot().getAbsolutePath(), changes::add);
+        Files.write(temporary.toPath(), "hola".getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), out.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        // assert
+        Assert.assertTrue(registered);
+        Path change;
+        do {
+            change = changes.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertNotNull(change);
+        } while (!change.equals(out.toPath()));
+    }
+
+    @Test
+    public void unregisterTest() throws Exception {
+        // arrange
+        BlockingQueue<Path> changes = new LinkedBlockingQueue<>();
+        directoryWatcher.register(folder.getRoot().getAbsolutePath(), changes::add);
+
+        // act
+        directoryWatcher.unregister(folder.getRoot().getAbsolutePath());
+        Files.write(new File(folder.getRoot(), "prueba.err").toPath(), "error".getBytes(StandardCharsets.UTF_8));
+
+        // assert
+        Assert.assertNull(changes.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void registerNotExistingDirectoryTest() {
+        // act
+        boolean registered = directoryWatcher.register(new File(folder.getRoot(), "no-existe").getAbsolutePath(), file -> { });
+
+        // assert
+        Assert.assertFalse(registered);
+    }
+
+}
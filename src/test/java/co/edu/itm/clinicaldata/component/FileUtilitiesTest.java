@@ -0,0 +1,168 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import co.edu.itm.clinicaldata.exception.ValidateException;
+
+public class FileUtilitiesTest {
+
+    private static final int ONE_MEGABYTE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    FileUtilities fileUtilities = new FileUtilities();
+
+    @Test
+    public void readBufferSmallFileTest() throws Exception {
+        // arrange
+        File file = file("prueba.out", "hola".getBytes(StandardCharsets.UTF_8));
+
+        // act
+        ByteBuffer buffer = fileUtilities.readBuffer(file.getAbsolutePath());
+
+        // assert
+        Assert.assertFalse(buffer.isDirect());
+        Assert.assertTrue(buffer.isReadOnly());
+        Assert.assertEquals(4, buffer.remaining());
+        Assert.assertEquals('h', buffer.get(0));
+    }
+
+    /**
+     * Desde el umbral de mapeo el contenido no se copia al heap
+     */
+    @Test
+    public void readBufferLargeFileTest() throws Exception {
+        // arrange
+        byte[] content = new byte[ONE_MEGABYTE];
+        Arrays.fill(content, (byte) 'a');
+        content[ONE_MEGABYTE - 1] = 'z';
+        File file = file("prueba.out", content);
+
+        // act
+        ByteBuffer buffer = fileUtilities.readBuffer(file.getAbsolutePath());
+
+        // assert
+        Assert.assertTrue(buffer instanceof MappedByteBuffer);
+        Assert.assertTrue(buffer.isReadOnly());
+        Assert.assertEquals(ONE_MEGABYTE, buffer.remaining());
+        Assert.assertEquals('z', buffer.get(ONE_MEGABYTE - 1));
+    }
+
+    @Test(expected = ValidateException.class)
+    public void readBufferNotExistsTest() throws ValidateException {
+        // act
+        fileUtilities.readBuffer(new File(folder.getRoot(), "no-existe").getAbsolutePath());
+    }
+
+    @Test
+    public void readFileTest() throws IOException {
+        // arrange
+        File file = file("qsub.sh", "#PBS -N año\necho ñandú €\n".getBytes(StandardCharsets.UTF_8));
+
+        // act
+        String content = fileUtilities.readFile(file.getAbsolutePath());
+
+        // assert
+        Assert.assertEquals("#PBS -N año\necho ñandú €\n", content);
+    }
+
+    @Test
+    public void readFileMalformedTest() throws IOException {
+        // arrange
+        File file = file("prueba.out", new byte[] { 'a', (byte) 0xC3, 'b' });
+
+        // act
+        String content = fileUtilities.readFile(file.getAbsolutePath());
+
+        // assert
+        Assert.assertEquals("a\uFFFDb", content);
+    }
+
+    @Test
+    public void readFileNotExistsTest() {
+        // act
+        String content = fileUtilities.readFile(new File(folder.getRoot(), "no-existe").getAbsolutePath());
+
+        // assert
+        Assert.assertEquals("", content);
+    }
+
+    @Test
+    public void readTailTest() throws IOException {
+        // arrange
+        File file = file("prueba.out", "0123456789".getBytes(StandardCharsets.UTF_8));
+
+        // act
+        String tail = fileUtilities.readTail(file.getAbsolutePath(), 4);
+        String complete = fileUtilities.readTail(file.getAbsolutePath(), 20);
+
+        // assert
+        Assert.assertEquals("[...]6789", tail);
+        Assert.assertEquals("0123456789", complete);
+    }
+
+    /**
+     * El carácter cortado al inicio de la porción leída se reemplaza
+     */
+    @Test
+    public void readTailMultibyteTest() throws IOException {
+        // arrange
+        File file = file("prueba.out", "ññ".getBytes(StandardCharsets.UTF_8));
+
+        // act
+        String tail = fileUtilities.readTail(file.getAbsolutePath(), 3);
+
+        // assert
+        Assert.assertEquals("[...]\uFFFDñ", tail);
+    }
+
+    @Test
+    public void readTailNotExistsTest() {
+        // act
+        String tail = fileUtilities.readTail(new File(folder.getRoot(), "no-existe").getAbsolutePath(), 10);
+
+        // assert
+        Assert.assertEquals("", tail);
+    }
+
+    @Test
+    public void openChannelTest() throws Exception {
+        // arrange
+        File file = file("prueba.out", "0123456789".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+
+        // act
+        try (FileChannel channel = fileUtilities.openChannel(file.getAbsolutePath())) {
+            channel.read(buffer, 5);
+        }
+
+        // assert
+        Assert.assertEquals("567", new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = ValidateException.class)
+    public void openChannelNotExistsTest() throws ValidateException {
+        // act
+        fileUtilities.openChannel(new File(folder.getRoot(), "no-existe").getAbsolutePath());
+    }
+
+    private File file(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+}
@@ -0,0 +1,121 @@
+package co.edu.itm.clinicaldata.component;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import co.edu.itm.clinicaldata.dto.CompilationDiagnostic;
+
+public class JavaSourceCompilerTest {
+
+    private static final byte[] SOURCE = "public class Main { public static void main(String[] args) { } }"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    JavaSourceCompiler javaSourceCompiler = new JavaSourceCompiler();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(javaSourceCompiler.isAvailable());
+    }
+
+    @After
+    public void tearDown() {
+        javaSourceCompiler.close();
+    }
+
+    @Test
+    public void compileTest() throws Exception {
+        // arrange
+        File output = folder.newFolder("a");
+
+        // act
+        List<CompilationDiagnostic> diagnostics = javaSourceCompiler.compile("Main", SOURCE, output.getAbsolutePath(), Collections.emptyList());
+
+        // assert
+        Assert.assertTrue(diagnostics.isEmpty());
+        Assert.assertTrue(new File(output, "Main.class").exists());
+    }
+
+    @Test
+    public void compileErrorTest() throws Exception {
+        // arrange
+        byte[] source = "public class Main { int x = ; }".getBytes(StandardCharsets.UTF_8);
+
+        // act
+        List<CompilationDiagnostic> diagnostics = javaSourceCompiler.compile("Main", source,
+                folder.newFolder("a").getAbsolutePath(), Collections.emptyList());
+
+        // assert
+        Assert.assertFalse(diagnostics.isEmpty());
+    }
+
+    /**
+     * Las compilaciones concurrentes de un mismo classpath no comparten administrador de archivos,
+     * cada una escribe en su propio folder
+     */
+    @Test
+    public void compileConcurrentTest() throws Exception {
+        // arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Callable<List<CompilationDiagnostic>>> compilations = new ArrayList<>();
+        List<File> outputs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            File output = folder.newFolder("concurrent" + i);
+            outputs.add(output);
+            compilations.add(() -> javaSourceCompiler.compile("Main", SOURCE, output.getAbsolutePath(), Collections.emptyList()));
+        }
+
+        // act
+        List<Future<List<CompilationDiagnostic>>> results = executor.invokeAll(compilations);
+        executor.shutdown();
+
+        // assert
+        for (Future<List<CompilationDiagnostic>> result : results) {
+            Assert.assertTrue(result.get().isEmpty());
+        }
+        for (File output : outputs) {
+            Assert.assertTrue(new File(output, "Main.class").exists());
+        }
+    }
+
+    /**
+     * Con más classpaths que administradores conservados, los más antiguos se cierran y se crean de nuevo
+     */
+    @Test
+    public void compileManyClasspathsTest() throws Exception {
+        // arrange
+        List<String> libraries = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            libraries.add(folder.newFolder("lib" + i).getAbsolutePath());
+        }
+        libraries.add(libraries.get(0));
+
+        // act
+        List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+        for (int i = 0; i < libraries.size(); i++) {
+            diagnostics.addAll(javaSourceCompiler.compile("Main", SOURCE, folder.newFolder("many" + i).getAbsolutePath(),
+                    Collections.singletonList(libraries.get(i))));
+        }
+
+        // assert
+        Assert.assertTrue(diagnostics.isEmpty());
+    }
+
+}
@@ -35,10 +35,10 @@ public class FileControllerTest {
         MultipartFile file = new MockMultipartFile(DATA, "filename.java", TEXT_PLAIN, BYTES);
         Long investigatorId = 1L;
         String returnMessage = "Archivo cargado con éxito";
-        Mockito.when(fileService.upload(Mockito.any(), Mockito.anyLong())).thenReturn(returnMessage);
+        Mockito.when(fileService.upload(Mockito.any(), Mockito.anyLong(), Mockito.any())).thenReturn(returnMessage);
 
         // act
-        ResponseEntity<String> message = fileController.upload(file, investigatorId);
+        ResponseEntity<String> message = fileController.upload(file, investigatorId, null);
 
         // assert
         Assert.assertNotNull(message);
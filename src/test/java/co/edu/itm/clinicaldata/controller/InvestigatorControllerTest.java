@@ -77,4 +77,23 @@ public class InvestigatorControllerTest {
         Assert.assertEquals(message.getBody(), messageToShow);
     }
 
+    @Test
+    public void updateLimitsTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setInvestigatorId(1L);
+        params.setMaxRunningRequests(5);
+        String messageToReturn = "Límites actualizados " + params.getInvestigatorId();
+        Mockito.when(investigatorService.updateLimits(Mockito.any(Params.class)))
+                .thenReturn(messageToReturn);
+
+        // act
+        ResponseEntity<String> message = investigatorController
+                .updateLimits(params);
+
+        // assert
+        Assert.assertEquals(OK, message.getStatusCode());
+        Assert.assertEquals(message.getBody(), messageToReturn);
+    }
+
 }
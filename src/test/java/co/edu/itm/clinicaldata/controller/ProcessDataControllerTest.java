@@ -2,6 +2,8 @@ package co.edu.itm.clinicaldata.controller;
 
 import static org.springframework.http.HttpStatus.OK;
 
+import java.io.IOException;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,10 +12,17 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import co.edu.itm.clinicaldata.dto.OutputChunk;
 import co.edu.itm.clinicaldata.dto.Params;
 import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.service.OutputService;
 import co.edu.itm.clinicaldata.service.ProcessDataService;
+import co.edu.itm.clinicaldata.service.ProcessNotificationService;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ProcessDataControllerTest {
@@ -21,6 +30,12 @@ public class ProcessDataControllerTest {
     @Mock
     ProcessDataService processDataService;
 
+    @Mock
+    ProcessNotificationService processNotificationService;
+
+    @Mock
+    OutputService outputService;
+
     @InjectMocks
     ProcessDataController processDataController;
 
@@ -70,4 +85,120 @@ public class ProcessDataControllerTest {
         Assert.assertEquals(message.getBody(), messageToReturn);
     }
 
+    @Test
+    public void startBatchTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        String messageToReturn = "Investigador <Juan>, <2> solicitudes han comenzado a ser procesadas";
+        Mockito.when(processDataService.startBatch(Mockito.any(Params.class))).thenReturn(messageToReturn);
+
+        // act
+        ResponseEntity<String> message = processDataController.startBatch(params);
+
+        // assert
+        Assert.assertEquals(OK, message.getStatusCode());
+        Assert.assertEquals(message.getBody(), messageToReturn);
+    }
+
+    @Test
+    public void waitForStateTest() throws ValidateException {
+        // arrange
+        String processId = "1";
+        DeferredResult<ResponseEntity<String>> deferredResult = new DeferredResult<>();
+        Mockito.when(processNotificationService.waitForState(processId, "FINALIZADA", 1000L)).thenReturn(deferredResult);
+
+        // act
+        DeferredResult<ResponseEntity<String>> result = processDataController.waitForState(processId, "FINALIZADA", 1000L);
+
+        // assert
+        Assert.assertSame(deferredResult, result);
+    }
+
+    @Test
+    public void stateEventsTest() throws ValidateException {
+        // arrange
+        Long investigatorId = 1L;
+        SseEmitter sseEmitter = new SseEmitter();
+        Mockito.when(processNotificationService.subscribe(investigatorId)).thenReturn(sseEmitter);
+
+        // act
+        SseEmitter emitter = processDataController.stateEvents(investigatorId);
+
+        // assert
+        Assert.assertSame(sseEmitter, emitter);
+    }
+
+    @Test
+    public void cancelProcessTest() throws ValidateException {
+        // arrange
+        String processId = "1";
+        String messageToReturn = "La solicitud " + processId + " fue cancelada";
+        Mockito.when(processDataService.cancelProcess(processId)).thenReturn(messageToReturn);
+
+        // act
+        ResponseEntity<String> message = processDataController.cancelProcess(processId);
+
+        // assert
+        Assert.assertEquals(OK, message.getStatusCode());
+        Assert.assertEquals(messageToReturn, message.getBody());
+    }
+
+    @Test
+    public void queuePositionTest() throws ValidateException {
+        // arrange
+        String processId = "1";
+        String messageToReturn = "La solicitud " + processId + " está en la posición 1";
+        Mockito.when(processDataService.queuePosition(processId)).thenReturn(messageToReturn);
+
+        // act
+        ResponseEntity<String> message = processDataController.queuePosition(processId);
+
+        // assert
+        Assert.assertEquals(OK, message.getStatusCode());
+        Assert.assertEquals(messageToReturn, message.getBody());
+    }
+
+    @Test
+    public void processOutputTest() throws ValidateException, IOException {
+        // arrange
+        String processId = "1";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        processDataController.processOutput(processId, "err", request, response);
+
+        // assert
+        Mockito.verify(outputService).writeOutput(processId, "err", request, response);
+    }
+
+    @Test
+    public void tailOutputTest() throws ValidateException {
+        // arrange
+        String processId = "1";
+        OutputChunk outputChunk = new OutputChunk(processId, "out", "EN PROGRESO", 10L, 20L, "salida", false);
+        Mockito.when(outputService.readChunk(processId, "out", 10L)).thenReturn(outputChunk);
+
+        // act
+        ResponseEntity<OutputChunk> response = processDataController.tailOutput(processId, "out", 10L);
+
+        // assert
+        Assert.assertEquals(OK, response.getStatusCode());
+        Assert.assertSame(outputChunk, response.getBody());
+    }
+
+    @Test
+    public void followOutputTest() throws ValidateException {
+        // arrange
+        String processId = "1";
+        SseEmitter sseEmitter = new SseEmitter();
+        Mockito.when(outputService.follow(processId, null, null, 20L)).thenReturn(sseEmitter);
+
+        // act
+        SseEmitter emitter = processDataController.followOutput(processId, null, null, 20L);
+
+        // assert
+        Assert.assertSame(sseEmitter, emitter);
+    }
+
 }
@@ -1,8 +1,6 @@
 package co.edu.itm.clinicaldata.controller;
 
-import static org.springframework.http.HttpStatus.OK;
-
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -11,8 +9,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import co.edu.itm.clinicaldata.component.FileUtilities;
 import co.edu.itm.clinicaldata.exception.ValidateException;
@@ -34,33 +32,45 @@ public class ReportControllerTest {
     FileUtilities fileUtilities;
 
     @Test
-    public void byRequestTest() throws ValidateException {
+    public void byRequestTest() throws ValidateException, IOException {
         // arrange
         String identifier = "";
-        Mockito.when(reportService.byRequest(Mockito.anyString())).thenReturn(new ByteArrayInputStream(BYTES));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Mockito.when(reportService.byRequest(Mockito.anyString())).thenReturn(out -> out.write(BYTES));
         Mockito.when(fileUtilities.createFileName(Mockito.anyString(), Mockito.anyString())).thenReturn(FILE_NAME);
 
         // act
-        ResponseEntity<InputStreamResource> inputStream = reportController.byRequest(identifier);
+        reportController.byRequest(identifier, response);
 
         // assert
-        Assert.assertNotNull(inputStream);
-        Assert.assertEquals(OK, inputStream.getStatusCode());
+        Assert.assertEquals(MediaType.APPLICATION_PDF_VALUE, response.getContentType());
+        Assert.assertArrayEquals(BYTES, response.getContentAsByteArray());
     }
 
     @Test
-    public void byInvestigatorTest() throws ValidateException {
+    public void byInvestigatorTest() throws ValidateException, IOException {
         // arrange
         Long investigatorId = 1L;
-        Mockito.when(reportService.byInvestigator(Mockito.anyLong())).thenReturn(new ByteArrayInputStream(BYTES));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Mockito.when(reportService.byInvestigator(Mockito.anyLong())).thenReturn(out -> out.write(BYTES));
         Mockito.when(fileUtilities.createFileName(Mockito.anyString(), Mockito.anyString())).thenReturn(FILE_NAME);
 
         // act
-        ResponseEntity<InputStreamResource> inputStream = reportController.byInvestigator(investigatorId);
+        reportController.byInvestigator(investigatorId, response);
 
         // assert
-        Assert.assertNotNull(inputStream);
-        Assert.assertEquals(OK, inputStream.getStatusCode());
+        Assert.assertEquals(MediaType.APPLICATION_PDF_VALUE, response.getContentType());
+        Assert.assertArrayEquals(BYTES, response.getContentAsByteArray());
+    }
+
+    @Test(expected = ValidateException.class)
+    public void byInvestigatorInvalidTest() throws ValidateException, IOException {
+        // arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Mockito.when(reportService.byInvestigator(Mockito.anyLong())).thenThrow(new ValidateException(""));
+
+        // act
+        reportController.byInvestigator(1L, response);
     }
 
 }
@@ -0,0 +1,46 @@
+package co.edu.itm.clinicaldata.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.edu.itm.clinicaldata.enums.Priority;
+
+public class PrioritizedTaskTest {
+
+    @Test
+    public void compareToPriorityTest() {
+        // arrange
+        PrioritizedTask bulk = new PrioritizedTask(Priority.BULK, () -> { });
+        PrioritizedTask interactive = new PrioritizedTask(Priority.INTERACTIVE, () -> { });
+
+        // assert
+        Assert.assertTrue(interactive.compareTo(bulk) < 0);
+        Assert.assertTrue(bulk.compareTo(interactive) > 0);
+    }
+
+    @Test
+    public void compareToArrivalOrderTest() {
+        // arrange
+        PrioritizedTask first = new PrioritizedTask(Priority.NORMAL, () -> { });
+        PrioritizedTask second = new PrioritizedTask(Priority.NORMAL, () -> { });
+
+        // assert
+        Assert.assertTrue(first.compareTo(second) < 0);
+        Assert.assertTrue(second.compareTo(first) > 0);
+        Assert.assertEquals(0, first.compareTo(first));
+    }
+
+    @Test
+    public void runTest() {
+        // arrange
+        boolean[] executed = new boolean[1];
+        PrioritizedTask task = new PrioritizedTask(Priority.NORMAL, () -> executed[0] = true);
+
+        // act
+        task.run();
+
+        // assert
+        Assert.assertTrue(executed[0]);
+    }
+
+}
@@ -0,0 +1,145 @@
+package co.edu.itm.clinicaldata.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.edu.itm.clinicaldata.enums.Priority;
+
+public class PriorityTaskQueueTest {
+
+    @Test
+    public void pollByPriorityTest() {
+        // arrange
+        PriorityTaskQueue queue = new PriorityTaskQueue(10);
+        PrioritizedTask bulk = new PrioritizedTask(Priority.BULK, () -> { });
+        PrioritizedTask normal = new PrioritizedTask(Priority.NORMAL, () -> { });
+        PrioritizedTask interactive = new PrioritizedTask(Priority.INTERACTIVE, () -> { });
+        queue.offer(bulk);
+        queue.offer(normal);
+        queue.offer(interactive);
+
+        // act
+        List<Runnable> polled = drain(queue);
+
+        // assert
+        Assert.assertEquals(3, polled.size());
+        Assert.assertSame(interactive, polled.get(0));
+        Assert.assertSame(normal, polled.get(1));
+        Assert.assertSame(bulk, polled.get(2));
+    }
+
+    @Test
+    public void pollSamePriorityInArrivalOrderTest() {
+        // arrange
+        PriorityTaskQueue queue = new PriorityTaskQueue(100);
+        List<PrioritizedTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            PrioritizedTask task = new PrioritizedTask(Priority.NORMAL, () -> { });
+            tasks.add(task);
+            queue.offer(task);
+        }
+
+        // act
+        List<Runnable> polled = drain(queue);
+
+        // assert
+        Assert.assertEquals(tasks, polled);
+    }
+
+    /**
+     * Las tareas que no son PrioritizedTask se atienden como de prioridad NORMAL
+     */
+    @Test
+    public void pollNotPrioritizedTest() {
+        // arrange
+        PriorityTaskQueue queue = new PriorityTaskQueue(10);
+        Runnable plain = () -> { };
+        PrioritizedTask bulk = new PrioritizedTask(Priority.BULK, () -> { });
+        PrioritizedTask interactive = new PrioritizedTask(Priority.INTERACTIVE, () -> { });
+        queue.offer(bulk);
+        queue.offer(plain);
+        queue.offer(interactive);
+
+        // act
+        List<Runnable> polled = drain(queue);
+
+        // assert
+        Assert.assertSame(interactive, polled.get(0));
+        Assert.assertSame(plain, polled.get(1));
+        Assert.assertSame(bulk, polled.get(2));
+    }
+
+    @Test
+    public void offerFullTest() {
+        // arrange
+        PriorityTaskQueue queue = new PriorityTaskQueue(2);
+        queue.offer(new PrioritizedTask(Priority.BULK, () -> { }));
+        queue.offer(new PrioritizedTask(Priority.BULK, () -> { }));
+
+        // act
+        boolean offered = queue.offer(new PrioritizedTask(Priority.INTERACTIVE, () -> { }));
+
+        // assert
+        Assert.assertFalse(offered);
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(0, queue.remainingCapacity());
+    }
+
+    @Test
+    public void remainingCapacityTest() {
+        // arrange
+        PriorityTaskQueue queue = new PriorityTaskQueue(3);
+
+        // act
+        queue.offer(new PrioritizedTask(Priority.NORMAL, () -> { }));
+
+        // assert
+        Assert.assertEquals(2, queue.remainingCapacity());
+    }
+
+    /**
+     * Con los hilos ocupados y la cola llena el executor rechaza la tarea
+     */
+    @Test(expected = RejectedExecutionException.class)
+    public void executorRejectsWhenFullTest() throws InterruptedException {
+        // arrange
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new PriorityTaskQueue(1));
+        try {
+            executor.execute(new PrioritizedTask(Priority.NORMAL, () -> await(release)));
+            executor.execute(new PrioritizedTask(Priority.NORMAL, () -> { }));
+
+            // act
+            executor.execute(new PrioritizedTask(Priority.INTERACTIVE, () -> { }));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private List<Runnable> drain(PriorityTaskQueue queue) {
+        List<Runnable> polled = new ArrayList<>();
+        Runnable runnable;
+        while ((runnable = queue.poll()) != null) {
+            polled.add(runnable);
+        }
+        return polled;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
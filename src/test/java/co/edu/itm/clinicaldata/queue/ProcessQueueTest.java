@@ -0,0 +1,66 @@
+package co.edu.itm.clinicaldata.queue;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessQueueTest {
+
+    @Test
+    public void rescheduleTest() {
+        // arrange
+        ProcessQueue processQueue = new ProcessQueue();
+        processQueue.add("abcde", "10.pbs01");
+        long now = System.currentTimeMillis();
+        processQueue.due(now);
+
+        // act
+        processQueue.reschedule("abcde", now + 60000);
+
+        // assert
+        Assert.assertTrue(processQueue.due(now).isEmpty());
+        Assert.assertEquals(1, processQueue.due(now + 60000).size());
+    }
+
+    /**
+     * El aviso de finalización llega mientras se valida la solicitud: la reprogramación que sigue
+     * a la validación no lo descarta y la solicitud se valida en la siguiente ejecución del monitor
+     */
+    @Test
+    public void markDueDuringValidationTest() {
+        // arrange
+        ProcessQueue processQueue = new ProcessQueue();
+        processQueue.add("abcde", "10.pbs01");
+        long now = System.currentTimeMillis();
+        List<QueuedProcess> validating = processQueue.due(now);
+
+        // act
+        processQueue.markDue("abcde");
+        processQueue.reschedule("abcde", now + 60000);
+
+        // assert
+        Assert.assertEquals(1, validating.size());
+        Assert.assertEquals(1, processQueue.due(now).size());
+        Assert.assertEquals(1, validating.get(0).getChecks());
+    }
+
+    @Test
+    public void markDueBeforeValidationTest() {
+        // arrange
+        ProcessQueue processQueue = new ProcessQueue();
+        processQueue.add("abcde", "10.pbs01");
+        long now = System.currentTimeMillis();
+        processQueue.due(now);
+        processQueue.markDue("abcde");
+        processQueue.reschedule("abcde", now + 60000);
+        processQueue.due(now);
+
+        // act
+        processQueue.reschedule("abcde", now + 60000);
+
+        // assert
+        Assert.assertTrue(processQueue.due(now).isEmpty());
+    }
+
+}
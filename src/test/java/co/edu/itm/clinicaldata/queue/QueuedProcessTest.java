@@ -0,0 +1,38 @@
+package co.edu.itm.clinicaldata.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueuedProcessTest {
+
+    @Test
+    public void outputSettledTest() {
+        // arrange
+        QueuedProcess queuedProcess = new QueuedProcess("abcde", "10.pbs01", 0);
+
+        // act
+        boolean first = queuedProcess.outputSettled("10:1000;0:0;");
+        boolean changed = queuedProcess.outputSettled("20:2000;0:0;");
+        boolean settled = queuedProcess.outputSettled("20:2000;0:0;");
+
+        // assert
+        Assert.assertFalse(first);
+        Assert.assertFalse(changed);
+        Assert.assertTrue(settled);
+    }
+
+    @Test
+    public void finishedSinceTest() {
+        // arrange
+        QueuedProcess queuedProcess = new QueuedProcess("abcde", "10.pbs01", 0);
+
+        // act
+        long first = queuedProcess.finishedSince(100);
+        long second = queuedProcess.finishedSince(200);
+
+        // assert
+        Assert.assertEquals(100, first);
+        Assert.assertEquals(100, second);
+    }
+
+}
@@ -0,0 +1,113 @@
+package co.edu.itm.clinicaldata.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void tryAcquireUpToCapacityTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(3, 60, 0);
+
+        // act
+        boolean first = tokenBucket.tryAcquire(0);
+        boolean second = tokenBucket.tryAcquire(0);
+        boolean third = tokenBucket.tryAcquire(0);
+        boolean fourth = tokenBucket.tryAcquire(0);
+
+        // assert
+        Assert.assertTrue(first && second && third);
+        Assert.assertFalse(fourth);
+        Assert.assertEquals(0, tokenBucket.available(0));
+    }
+
+    /**
+     * Con 60 envíos por minuto se recarga una ficha por segundo, de forma continua
+     */
+    @Test
+    public void refillTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(3, 60, 0);
+        for (int i = 0; i < 3; i++) {
+            tokenBucket.tryAcquire(0);
+        }
+
+        // act
+        boolean beforeOneToken = tokenBucket.tryAcquire(999);
+        boolean afterOneToken = tokenBucket.tryAcquire(1000);
+
+        // assert
+        Assert.assertFalse(beforeOneToken);
+        Assert.assertTrue(afterOneToken);
+        Assert.assertEquals(0, tokenBucket.available(1500));
+        Assert.assertEquals(1, tokenBucket.available(2000));
+    }
+
+    @Test
+    public void refillUpToCapacityTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(3, 60, 0);
+        tokenBucket.tryAcquire(0);
+
+        // act
+        int available = tokenBucket.available(60000);
+
+        // assert
+        Assert.assertEquals(3, available);
+    }
+
+    /**
+     * Un instante anterior al de la última recarga no cambia las fichas
+     */
+    @Test
+    public void refillClockBackwardsTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(2, 60, 5000);
+        tokenBucket.tryAcquire(5000);
+
+        // act
+        int available = tokenBucket.available(1000);
+
+        // assert
+        Assert.assertEquals(1, available);
+    }
+
+    @Test
+    public void refundTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(2, 60, 0);
+        tokenBucket.tryAcquire(0);
+        tokenBucket.tryAcquire(0);
+
+        // act
+        tokenBucket.refund();
+
+        // assert
+        Assert.assertEquals(1, tokenBucket.available(0));
+        Assert.assertTrue(tokenBucket.tryAcquire(0));
+    }
+
+    @Test
+    public void refundUpToCapacityTest() {
+        // arrange
+        TokenBucket tokenBucket = new TokenBucket(2, 60, 0);
+
+        // act
+        tokenBucket.refund();
+
+        // assert
+        Assert.assertEquals(2, tokenBucket.available(0));
+    }
+
+    @Test
+    public void capacityAtLeastOneTest() {
+        // act
+        TokenBucket tokenBucket = new TokenBucket(0, 60, 0);
+
+        // assert
+        Assert.assertEquals(1, tokenBucket.getCapacity());
+        Assert.assertTrue(tokenBucket.tryAcquire(0));
+    }
+
+}
@@ -0,0 +1,85 @@
+package co.edu.itm.clinicaldata.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import co.edu.itm.clinicaldata.dto.ReportRow;
+import co.edu.itm.clinicaldata.model.Investigator;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = "logging.file=")
+public class ProcessingRequestRepositoryTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = ProcessingRequest.class)
+    @EnableJpaRepositories(basePackageClasses = ProcessingRequestRepository.class)
+    static class RepositoryConfiguration {
+    }
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ProcessingRequestRepository processingRequestRepository;
+
+    @Test
+    public void findReportRowsByInvestigatorIdDoesNotManageRowsTest() {
+        // arrange
+        Investigator investigator = new Investigator();
+        investigator.setName("Juan");
+        investigator.setEmail("juan@itm.edu.co");
+        investigator.setState("ACTIVO");
+        entityManager.persist(investigator);
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(processingRequest("request-" + i, investigator));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // act
+        List<ReportRow> firstPage = processingRequestRepository.findReportRowsByInvestigatorId(investigator.getId(), 0L, new PageRequest(0, 2));
+        List<ReportRow> secondPage = processingRequestRepository.findReportRowsByInvestigatorId(
+                investigator.getId(), firstPage.get(1).getId(), new PageRequest(0, 2));
+
+        // assert
+        Assert.assertEquals(2, firstPage.size());
+        Assert.assertEquals("request-0", firstPage.get(0).getIdentifier());
+        Assert.assertEquals("request-1", firstPage.get(1).getIdentifier());
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertEquals("request-2", secondPage.get(0).getIdentifier());
+        Assert.assertEquals("Main.java", secondPage.get(0).getFileName());
+        Assert.assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    private ProcessingRequest processingRequest(String identifier, Investigator investigator) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier(identifier);
+        processingRequest.setCreationDate(now);
+        processingRequest.setLastUpdate(now);
+        processingRequest.setLanguage("Java");
+        processingRequest.setBasePath("/tmp/");
+        processingRequest.setFileName("Main.java");
+        processingRequest.setState("TERMINADA");
+        processingRequest.setPriority(0);
+        processingRequest.setInvestigator(investigator);
+        return processingRequest;
+    }
+
+}
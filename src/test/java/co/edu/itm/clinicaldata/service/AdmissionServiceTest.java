@@ -0,0 +1,253 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import co.edu.itm.clinicaldata.configuration.AdmissionConf;
+import co.edu.itm.clinicaldata.enums.Priority;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.Investigator;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionServiceTest {
+
+    @Mock
+    ProcessingRequestService processingRequestService;
+
+    @Mock
+    InvestigatorService investigatorService;
+
+    @Mock
+    AdmissionConf admissionConf;
+
+    @InjectMocks
+    AdmissionService admissionService;
+
+    @Test
+    public void admitTest() {
+        // arrange
+        Investigator investigator = investigator(1L, 3, null);
+        List<ProcessingRequest> listProcessingRequest = processingRequests(investigator, 3);
+        confMocks();
+        Mockito.when(processingRequestService.countByStateAndInvestigator(ProcessState.PROCESSING, 1L)).thenReturn(1L);
+
+        // act
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+
+        // assert
+        Assert.assertEquals(2, admitted.size());
+        Mockito.verify(processingRequestService, Mockito.times(2)).updateState(Mockito.any(), Mockito.eq(ProcessState.PROCESSING));
+        Mockito.verify(processingRequestService).updateState(listProcessingRequest.get(2), ProcessState.WAITING);
+    }
+
+    @Test
+    public void admitWithWaitingTest() {
+        // arrange
+        Investigator investigator = investigator(1L, 3, null);
+        List<ProcessingRequest> listProcessingRequest = processingRequests(investigator, 1);
+        confMocks();
+        Mockito.when(processingRequestService.countByStateAndInvestigatorUpToPriority(ProcessState.WAITING, 1L, Priority.NORMAL)).thenReturn(1L);
+
+        // act
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+
+        // assert
+        Assert.assertTrue(admitted.isEmpty());
+        Mockito.verify(processingRequestService).updateState(listProcessingRequest.get(0), ProcessState.WAITING);
+    }
+
+    @Test
+    public void admitHigherPriorityThanWaitingTest() {
+        // arrange
+        Investigator investigator = investigator(1L, 3, null);
+        List<ProcessingRequest> listProcessingRequest = processingRequests(investigator, 1);
+        listProcessingRequest.get(0).setPriority(Priority.INTERACTIVE.getLevel());
+        confMocks();
+        Mockito.when(processingRequestService.countByStateAndInvestigatorUpToPriority(ProcessState.WAITING, 1L, Priority.NORMAL)).thenReturn(1L);
+
+        // act
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+
+        // assert
+        Assert.assertEquals(1, admitted.size());
+        Mockito.verify(processingRequestService).countByStateAndInvestigatorUpToPriority(ProcessState.WAITING, 1L, Priority.INTERACTIVE);
+    }
+
+    @Test
+    public void admitRateLimitedTest() {
+        // arrange
+        Investigator investigator = investigator(1L, 10, null);
+        List<ProcessingRequest> listProcessingRequest = processingRequests(investigator, 4);
+        confMocks();
+        Mockito.when(admissionConf.getBurst()).thenReturn(2);
+
+        // act
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+
+        // assert
+        Assert.assertEquals(2, admitted.size());
+    }
+
+    @Test
+    public void admitDisabledTest() {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = processingRequests(investigator(1L, 1, null), 3);
+        Mockito.when(admissionConf.isEnabled()).thenReturn(Boolean.FALSE);
+
+        // act
+        List<ProcessingRequest> admitted = admissionService.admit(listProcessingRequest);
+
+        // assert
+        Assert.assertEquals(3, admitted.size());
+        Mockito.verifyZeroInteractions(investigatorService);
+    }
+
+    @Test
+    public void nextWaitingTest() {
+        // arrange
+        Investigator heavy = investigator(1L, 10, 2);
+        Investigator light = investigator(2L, 10, 1);
+        confMocks();
+        Map<Long, TreeMap<Integer, Long>> waiting = new HashMap<>();
+        waiting.put(1L, levels(Priority.NORMAL, 10L));
+        waiting.put(2L, levels(Priority.NORMAL, 10L));
+        Mockito.when(processingRequestService.countByStateGroupByInvestigatorAndPriority(ProcessState.WAITING)).thenReturn(waiting);
+        Mockito.when(processingRequestService.countByStateGroupByInvestigator(ProcessState.PROCESSING)).thenReturn(new HashMap<>());
+        Mockito.when(processingRequestService.findNextByStateAndInvestigator(ProcessState.WAITING, 1L, 4)).thenReturn(processingRequests(heavy, 4));
+        Mockito.when(processingRequestService.findNextByStateAndInvestigator(ProcessState.WAITING, 2L, 2)).thenReturn(processingRequests(light, 2));
+
+        // act
+        List<ProcessingRequest> listProcessingRequest = admissionService.nextWaiting(6);
+
+        // assert
+        Assert.assertEquals(6, listProcessingRequest.size());
+        long heavyCount = listProcessingRequest.stream().filter(processingRequest -> processingRequest.getInvestigator() == heavy).count();
+        Assert.assertEquals(4, heavyCount);
+    }
+
+    @Test
+    public void nextWaitingPriorityTest() {
+        // arrange
+        Investigator bulk = investigator(1L, 10, 5);
+        Investigator interactive = investigator(2L, 10, 1);
+        confMocks();
+        Map<Long, TreeMap<Integer, Long>> waiting = new HashMap<>();
+        waiting.put(1L, levels(Priority.BULK, 10L));
+        waiting.put(2L, levels(Priority.INTERACTIVE, 2L));
+        Mockito.when(processingRequestService.countByStateGroupByInvestigatorAndPriority(ProcessState.WAITING)).thenReturn(waiting);
+        Mockito.when(processingRequestService.countByStateGroupByInvestigator(ProcessState.PROCESSING)).thenReturn(new HashMap<>());
+        Mockito.when(processingRequestService.findNextByStateAndInvestigator(ProcessState.WAITING, 1L, 1)).thenReturn(processingRequests(bulk, 1));
+        Mockito.when(processingRequestService.findNextByStateAndInvestigator(ProcessState.WAITING, 2L, 2)).thenReturn(processingRequests(interactive, 2));
+
+        // act
+        List<ProcessingRequest> listProcessingRequest = admissionService.nextWaiting(3);
+
+        // assert
+        Assert.assertEquals(3, listProcessingRequest.size());
+        Assert.assertSame(interactive, listProcessingRequest.get(0).getInvestigator());
+        Assert.assertSame(interactive, listProcessingRequest.get(1).getInvestigator());
+        Assert.assertSame(bulk, listProcessingRequest.get(2).getInvestigator());
+    }
+
+    @Test
+    public void nextWaitingFullTest() {
+        // arrange
+        Investigator investigator = investigator(1L, 2, null);
+        confMocks();
+        Map<Long, TreeMap<Integer, Long>> waiting = new HashMap<>();
+        waiting.put(1L, levels(Priority.NORMAL, 5L));
+        Map<Long, Long> running = new HashMap<>();
+        running.put(1L, 2L);
+        Mockito.when(processingRequestService.countByStateGroupByInvestigatorAndPriority(ProcessState.WAITING)).thenReturn(waiting);
+        Mockito.when(processingRequestService.countByStateGroupByInvestigator(ProcessState.PROCESSING)).thenReturn(running);
+        Mockito.when(investigatorService.findById(1L)).thenReturn(investigator);
+
+        // act
+        List<ProcessingRequest> listProcessingRequest = admissionService.nextWaiting(5);
+
+        // assert
+        Assert.assertTrue(listProcessingRequest.isEmpty());
+    }
+
+    @Test
+    public void queuePositionTest() throws ValidateException {
+        // arrange
+        Investigator investigator = investigator(1L, 3, null);
+        ProcessingRequest processingRequest = processingRequests(investigator, 1).get(0);
+        processingRequest.setState(ProcessState.WAITING.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier("0")).thenReturn(processingRequest);
+        Mockito.when(processingRequestService.countAhead(processingRequest)).thenReturn(2L);
+
+        // act
+        String message = admissionService.queuePosition("0");
+
+        // assert
+        Assert.assertTrue(message.contains("<3>"));
+    }
+
+    @Test
+    public void queuePositionNotWaitingTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier("0")).thenReturn(processingRequest);
+
+        // act
+        String message = admissionService.queuePosition("0");
+
+        // assert
+        Assert.assertTrue(message.contains(ProcessState.PROCESSING.getState()));
+        Mockito.verify(processingRequestService, Mockito.never()).countAhead(Mockito.any());
+    }
+
+    private void confMocks() {
+        Mockito.when(admissionConf.isEnabled()).thenReturn(Boolean.TRUE);
+        Mockito.when(admissionConf.getRequestsPerMinute()).thenReturn(30);
+        Mockito.when(admissionConf.getBurst()).thenReturn(10);
+        Mockito.when(admissionConf.getShareWeight()).thenReturn(1);
+        Mockito.when(processingRequestService.updateState(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+    }
+
+    private TreeMap<Integer, Long> levels(Priority priority, Long count) {
+        TreeMap<Integer, Long> levels = new TreeMap<>();
+        levels.put(priority.getLevel(), count);
+        return levels;
+    }
+
+    private Investigator investigator(Long id, Integer maxRunningRequests, Integer shareWeight) {
+        Investigator investigator = new Investigator();
+        investigator.setId(id);
+        investigator.setMaxRunningRequests(maxRunningRequests);
+        investigator.setShareWeight(shareWeight);
+        Mockito.when(investigatorService.findById(id)).thenReturn(investigator);
+        Mockito.when(processingRequestService.investigatorId(investigator)).thenReturn(id);
+        return investigator;
+    }
+
+    private List<ProcessingRequest> processingRequests(Investigator investigator, int size) {
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ProcessingRequest processingRequest = new ProcessingRequest();
+            processingRequest.setIdentifier(String.valueOf(i));
+            processingRequest.setInvestigator(investigator);
+            listProcessingRequest.add(processingRequest);
+        }
+        return listProcessingRequest;
+    }
+
+}
@@ -1,24 +1,48 @@
 package co.edu.itm.clinicaldata.service;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.task.TaskExecutor;
 
+import co.edu.itm.clinicaldata.backend.ClusterBackend;
+import co.edu.itm.clinicaldata.cache.CompileCache;
+import co.edu.itm.clinicaldata.cache.ScriptTemplate;
+import co.edu.itm.clinicaldata.cache.TemplateRegistry;
 import co.edu.itm.clinicaldata.component.Commands;
+import co.edu.itm.clinicaldata.component.DirectoryWatcher;
 import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.component.JavaSourceCompiler;
 import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.configuration.MonitorConf;
+import co.edu.itm.clinicaldata.dto.CompilationDiagnostic;
+import co.edu.itm.clinicaldata.dto.JobStatus;
+import co.edu.itm.clinicaldata.dto.Output;
 import co.edu.itm.clinicaldata.enums.Language;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.ProcessResource;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
+import co.edu.itm.clinicaldata.queue.PrioritizedTask;
+import co.edu.itm.clinicaldata.queue.ProcessQueue;
+import co.edu.itm.clinicaldata.queue.QueuedProcess;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ClusterServiceTest {
@@ -35,6 +59,30 @@ public class ClusterServiceTest {
     @Mock
     FolderConf folderConf;
 
+    @Mock
+    ProcessQueue processQueue;
+
+    @Mock
+    DirectoryWatcher directoryWatcher;
+
+    @Mock
+    JavaSourceCompiler javaSourceCompiler;
+
+    @Mock
+    CompileCache compileCache;
+
+    @Mock
+    TemplateRegistry templateRegistry;
+
+    @Mock
+    ClusterBackend clusterBackend;
+
+    @Mock
+    MonitorConf monitorConf;
+
+    @Mock
+    TaskExecutor submissionExecutor;
+
     @InjectMocks
     ClusterService clusterService;
 
@@ -47,7 +95,7 @@ public class ClusterServiceTest {
         normalMocks();
 
         // act
-        clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        clusterService.submitProcess(processingRequest, listProcessResource);
 
         // assert
         Assert.assertNotNull(processingRequest);
@@ -55,10 +103,15 @@ public class ClusterServiceTest {
     }
 
     private void normalMocks() {
-        Mockito.when(fileUtilities.templateLanguageFolder(Mockito.anyString())).thenReturn("template/folder");
-        Mockito.when(fileUtilities.readFile(Mockito.anyString())).thenReturn("Readed content");
-        Mockito.when(fileUtilities.isLinux()).thenReturn(Boolean.FALSE);
-        Mockito.when(folderConf.getKeyToReplace()).thenReturn("%COMMAND%");
+        Mockito.when(templateRegistry.get(Mockito.anyString())).thenReturn(new ScriptTemplate("Readed content %COMMAND%", "%COMMAND%", 0));
+        Mockito.when(clusterBackend.submit(Mockito.any())).thenReturn(output(ProcessState.FINISHED_WITHOUT_ACTIONS));
+    }
+
+    private Output output(ProcessState processState) {
+        Output output = new Output();
+        output.setResult("result");
+        output.setState(processState.getState());
+        return output;
     }
 
     @Test
@@ -70,13 +123,74 @@ public class ClusterServiceTest {
         normalMocks();
 
         // act
-        clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        clusterService.submitProcess(processingRequest, listProcessResource);
 
         // assert
         Assert.assertNotNull(processingRequest);
         Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
     }
 
+    @Test
+    public void sendProcessToClusterLanguageJavaTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setLanguage(Language.JAVA.getName());
+        processingRequest.setFileName("Main.java");
+        List<ProcessResource> listProcessResource = new ArrayList<>();
+        normalMocks();
+        Mockito.when(javaSourceCompiler.isAvailable()).thenReturn(Boolean.TRUE);
+        Mockito.when(javaSourceCompiler.compile(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyListOf(String.class))).thenReturn(new ArrayList<>());
+
+        // act
+        clusterService.submitProcess(processingRequest, listProcessResource);
+
+        // assert
+        Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
+        Mockito.verify(commands, Mockito.never()).executeCommand(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void sendProcessToClusterLanguageJavaCachedTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setLanguage(Language.JAVA.getName());
+        processingRequest.setFileName("Main.java");
+        processingRequest.setChecksum("abc123");
+        List<ProcessResource> listProcessResource = new ArrayList<>();
+        normalMocks();
+        Mockito.when(compileCache.isEnabled()).thenReturn(Boolean.TRUE);
+        Mockito.when(compileCache.key(Mockito.anyString(), Mockito.anyString(), Mockito.anyListOf(String.class))).thenReturn("key");
+        Mockito.when(compileCache.restore(Mockito.eq("key"), Mockito.any())).thenReturn(Boolean.TRUE);
+
+        // act
+        clusterService.submitProcess(processingRequest, listProcessResource);
+
+        // assert
+        Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
+        Mockito.verify(javaSourceCompiler, Mockito.never()).compile(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyListOf(String.class));
+        Mockito.verify(compileCache, Mockito.never()).store(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    public void sendProcessToClusterLanguageJavaCompileErrorTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setLanguage(Language.JAVA.getName());
+        processingRequest.setFileName("Main.java");
+        List<ProcessResource> listProcessResource = new ArrayList<>();
+        List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+        diagnostics.add(new CompilationDiagnostic(1, 1, "';' expected"));
+        Mockito.when(javaSourceCompiler.isAvailable()).thenReturn(Boolean.TRUE);
+        Mockito.when(javaSourceCompiler.compile(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyListOf(String.class))).thenReturn(diagnostics);
+
+        // act
+        clusterService.submitProcess(processingRequest, listProcessResource);
+
+        // assert
+        Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITH_ERRORS.getState());
+        Assert.assertTrue(processingRequest.getResult().contains("';' expected"));
+    }
+
     @Test
     public void sendProcessToClusterLanguagePythonFailTest() throws ValidateException {
         // arrange
@@ -87,13 +201,114 @@ public class ClusterServiceTest {
         Mockito.doThrow(ValidateException.class).when(fileUtilities).createFile(Mockito.any(), Mockito.anyString());
 
         // act
-        clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        clusterService.submitProcess(processingRequest, listProcessResource);
 
         // assert
         Assert.assertNotNull(processingRequest);
         Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
     }
 
+    @Test
+    public void sendProcessToClusterTemplateNotExistsTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setLanguage(Language.PYTHON.getName());
+        List<ProcessResource> listProcessResource = new ArrayList<>();
+        Mockito.when(templateRegistry.get(Mockito.anyString())).thenReturn(null);
+
+        // act
+        clusterService.submitProcess(processingRequest, listProcessResource);
+
+        // assert
+        Assert.assertEquals(processingRequest.getState(), ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
+        Mockito.verify(fileUtilities, Mockito.never()).createFile(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void sendBatchToClusterTest() throws ValidateException {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        Map<String, List<ProcessResource>> resourcesByIdentifier = new HashMap<>();
+        for (String identifier : Arrays.asList("a", "b")) {
+            ProcessingRequest processingRequest = new ProcessingRequest();
+            processingRequest.setIdentifier(identifier);
+            processingRequest.setLanguage(Language.PYTHON.getName());
+            processingRequest.setBasePath("/base/" + identifier + "/");
+            listProcessingRequest.add(processingRequest);
+        }
+        normalMocks();
+        Mockito.when(clusterBackend.submitBatch(Mockito.anyListOf(ProcessingRequest.class)))
+                .thenReturn(Arrays.asList(output(ProcessState.PROCESSING), output(ProcessState.PROCESSING)));
+        Mockito.when(processingRequestService.updateIfCurrent(Mockito.any(), Mockito.eq(ProcessState.PROCESSING), Mockito.isNull(String.class)))
+                .thenReturn(Boolean.TRUE);
+
+        // act
+        clusterService.submitBatch(listProcessingRequest, resourcesByIdentifier);
+
+        // assert
+        Mockito.verify(clusterBackend, Mockito.times(1)).submitBatch(Mockito.anyListOf(ProcessingRequest.class));
+        Mockito.verify(clusterBackend, Mockito.never()).submit(Mockito.any());
+        Assert.assertEquals(ProcessState.PROCESSING.getState(), listProcessingRequest.get(1).getState());
+        Mockito.verify(processQueue, Mockito.times(2)).add(Mockito.anyString(), Mockito.any());
+        Mockito.verify(directoryWatcher, Mockito.times(2)).register(Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * La solicitud se canceló entre la validación previa y el fin del envío, su trabajo se cancela
+     */
+    @Test
+    public void sendProcessToClusterCancelledDuringSubmitTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setLanguage(Language.PYTHON.getName());
+        normalMocks();
+        Mockito.when(clusterBackend.submit(processingRequest)).thenAnswer(invocation -> {
+            processingRequest.setJobId("10.pbs01");
+            return output(ProcessState.PROCESSING);
+        });
+        Mockito.when(processingRequestService.updateIfCurrent(processingRequest, ProcessState.PROCESSING, null)).thenReturn(Boolean.FALSE);
+
+        // act
+        clusterService.submitProcess(processingRequest, new ArrayList<>());
+
+        // assert
+        Mockito.verify(clusterBackend).cancel("10.pbs01");
+        Mockito.verifyZeroInteractions(processQueue, directoryWatcher);
+    }
+
+    @Test
+    public void sendProcessToClusterTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setPriority(Priority.INTERACTIVE.getLevel());
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+
+        // act
+        clusterService.sendProcessToCluster(processingRequest, new ArrayList<>());
+
+        // assert
+        Mockito.verify(submissionExecutor).execute(task.capture());
+        Assert.assertEquals(Priority.INTERACTIVE, ((PrioritizedTask) task.getValue()).getPriority());
+        Mockito.verifyZeroInteractions(clusterBackend);
+    }
+
+    @Test
+    public void sendBatchToClusterPriorityTest() {
+        // arrange
+        ProcessingRequest bulk = new ProcessingRequest();
+        bulk.setPriority(Priority.BULK.getLevel());
+        ProcessingRequest normal = new ProcessingRequest();
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+
+        // act
+        clusterService.sendBatchToCluster(Arrays.asList(bulk, normal), new HashMap<>());
+
+        // assert
+        Mockito.verify(submissionExecutor).execute(task.capture());
+        Assert.assertEquals(Priority.NORMAL, ((PrioritizedTask) task.getValue()).getPriority());
+    }
+
     @Test
     public void sendProcessToClusterLanguageNotValidTest() throws ValidateException {
         // arrange
@@ -102,7 +317,7 @@ public class ClusterServiceTest {
         List<ProcessResource> listProcessResource = new ArrayList<>();
 
         // act
-        clusterService.sendProcessToCluster(processingRequest, listProcessResource);
+        clusterService.submitProcess(processingRequest, listProcessResource);
 
         // assert
         Assert.assertNotNull(processingRequest);
@@ -114,8 +329,7 @@ public class ClusterServiceTest {
         // arrange
         ProcessingRequest processingRequest = new ProcessingRequest();
         processingRequest.setLanguage(Language.JAVA.getName());
-        Mockito.when(fileUtilities.templateLanguageFolder(Mockito.anyString())).thenReturn("folder/template");
-        Mockito.when(fileUtilities.existsFile(Mockito.anyString())).thenReturn(Boolean.TRUE);
+        Mockito.when(templateRegistry.get(Mockito.anyString())).thenReturn(new ScriptTemplate("Readed content", "%COMMAND%", 0));
 
         // act
         clusterService.validateLanguageTemplate(processingRequest);
@@ -129,8 +343,7 @@ public class ClusterServiceTest {
         // arrange
         ProcessingRequest processingRequest = new ProcessingRequest();
         processingRequest.setLanguage(Language.JAVA.getName());
-        Mockito.when(fileUtilities.templateLanguageFolder(Mockito.anyString())).thenReturn("folder/template");
-        Mockito.when(fileUtilities.existsFile(Mockito.anyString())).thenReturn(Boolean.FALSE);
+        Mockito.when(templateRegistry.get(Mockito.anyString())).thenReturn(null);
 
         // act
         clusterService.validateLanguageTemplate(processingRequest);
@@ -151,6 +364,19 @@ public class ClusterServiceTest {
         Assert.assertEquals(Boolean.TRUE, response);
     }
 
+    @Test
+    public void validateProcessStateNotFoundTest() throws ValidateException {
+        // arrange
+        String identifier = "";
+        Mockito.when(processingRequestService.findByIdentifier(Mockito.anyString())).thenReturn(null);
+
+        // act
+        boolean response = clusterService.validateProcessState(identifier);
+
+        // assert
+        Assert.assertEquals(Boolean.TRUE, response);
+    }
+
     @Test
     public void validateProcessStateErrResponseTest() throws ValidateException {
         // arrange
@@ -158,8 +384,7 @@ public class ClusterServiceTest {
         ProcessingRequest processingRequest = new ProcessingRequest();
         processingRequest.setState(ProcessState.PROCESSING.getState());
         Mockito.when(processingRequestService.findByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
-        Mockito.when(fileUtilities.existsFile(Mockito.anyString())).thenReturn(Boolean.TRUE);
-        Mockito.when(fileUtilities.readFile(Mockito.anyString())).thenReturn("Readed content");
+        Mockito.when(clusterBackend.fetchOutput(processingRequest)).thenReturn(output(ProcessState.FINISHED_OK));
 
         // act
         boolean response = clusterService.validateProcessState(identifier);
@@ -169,4 +394,225 @@ public class ClusterServiceTest {
         Assert.assertNotNull(processingRequest);
         Assert.assertEquals(ProcessState.FINISHED_OK.getState(), processingRequest.getState());
     }
+
+    @Test
+    public void queryJobStatusesWithoutJobsTest() {
+        // act
+        Map<String, JobStatus> jobStatuses = clusterService.queryJobStatuses(new ArrayList<>());
+
+        // assert
+        Assert.assertNull(jobStatuses);
+        Mockito.verifyZeroInteractions(clusterBackend);
+    }
+
+    @Test
+    public void releaseFinishedJobsTest() {
+        // arrange
+        Set<String> jobIds = Collections.singleton("10.pbs01");
+        Mockito.when(processQueue.jobIds()).thenReturn(jobIds);
+
+        // act
+        clusterService.releaseFinishedJobs();
+
+        // assert
+        Mockito.verify(clusterBackend).retainJobs(jobIds);
+    }
+
+    @Test
+    public void validateProcessStateRunningJobTest() {
+        // arrange
+        Map<String, JobStatus> jobStatuses = new HashMap<>();
+        jobStatuses.put("10.pbs01", new JobStatus("10.pbs01", "R", null));
+
+        // act
+        boolean response = clusterService.validateProcessState(queuedProcess(), jobStatuses);
+
+        // assert
+        Assert.assertFalse(response);
+        Mockito.verifyZeroInteractions(processingRequestService, clusterBackend);
+    }
+
+    @Test
+    public void validateProcessStateLostJobTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.findByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        Mockito.when(monitorConf.getLostGracePeriod()).thenReturn(0L);
+
+        // act
+        boolean response = clusterService.validateProcessState(queuedProcess(), new HashMap<>());
+
+        // assert
+        Assert.assertTrue(response);
+        Assert.assertEquals(ProcessState.FINISHED_WITH_ERRORS.getState(), processingRequest.getState());
+    }
+
+    @Test
+    public void validateProcessStateWithoutSchedulerTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        processingRequest.setBasePath("/base/abcde/");
+        QueuedProcess queuedProcess = queuedProcess();
+        Mockito.when(queuedProcess.outputSettled(Mockito.anyString())).thenReturn(Boolean.FALSE, Boolean.TRUE);
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        Mockito.when(processingRequestService.findByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        Mockito.when(clusterBackend.fetchOutput(processingRequest)).thenReturn(output(ProcessState.FINISHED_OK));
+
+        // act
+        boolean first = clusterService.validateProcessState(queuedProcess, null);
+        boolean second = clusterService.validateProcessState(queuedProcess, null);
+
+        // assert
+        Assert.assertFalse(first);
+        Assert.assertTrue(second);
+        Mockito.verify(clusterBackend, Mockito.times(1)).fetchOutput(processingRequest);
+        Assert.assertEquals(ProcessState.FINISHED_OK.getState(), processingRequest.getState());
+    }
+
+    @Test
+    public void validateProcessStateFinishedJobTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        QueuedProcess queuedProcess = queuedProcess();
+        Map<String, JobStatus> jobStatuses = new HashMap<>();
+        jobStatuses.put("10.pbs01", new JobStatus("10.pbs01", "F", 0));
+        Mockito.when(processingRequestService.findByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        Mockito.when(clusterBackend.fetchOutput(processingRequest)).thenReturn(output(ProcessState.FINISHED_OK));
+
+        // act
+        boolean response = clusterService.validateProcessState(queuedProcess, jobStatuses);
+
+        // assert
+        Assert.assertTrue(response);
+        Mockito.verify(queuedProcess, Mockito.never()).outputSettled(Mockito.anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void watchResponseFilesTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setBasePath("/base/abcde/");
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        clusterService.watchResponseFiles(processingRequest);
+        ArgumentCaptor<Consumer<Path>> listener = ArgumentCaptor.forClass((Class<Consumer<Path>>) (Class<?>) Consumer.class);
+        Mockito.verify(directoryWatcher).register(Mockito.eq("/base/abcde/"), listener.capture());
+
+        // act
+        listener.getValue().accept(Paths.get("/base/abcde/prueba.out.tmp"));
+        listener.getValue().accept(Paths.get("/base/abcde/prueba.err.tmp"));
+        Mockito.verify(processQueue, Mockito.never()).markDue(Mockito.anyString());
+        listener.getValue().accept(Paths.get("/base/abcde/prueba.err"));
+
+        // assert
+        Mockito.verify(processQueue).markDue("abcde");
+    }
+
+    private QueuedProcess queuedProcess() {
+        QueuedProcess queuedProcess = Mockito.mock(QueuedProcess.class);
+        Mockito.when(queuedProcess.getIdentifier()).thenReturn("abcde");
+        Mockito.when(queuedProcess.getJobId()).thenReturn("10.pbs01");
+        return queuedProcess;
+    }
+
+    @Test
+    public void cancelProcessTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setJobId("10.pbs01");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(clusterBackend.cancel("10.pbs01")).thenReturn(Boolean.TRUE);
+        Mockito.when(processingRequestService.updateIfCurrent(processingRequest, ProcessState.PROCESSING, "10.pbs01")).thenReturn(Boolean.TRUE);
+
+        // act
+        clusterService.cancelProcess(processingRequest);
+
+        // assert
+        Assert.assertEquals(ProcessState.CANCELLED.getState(), processingRequest.getState());
+        Mockito.verify(processQueue).remove("abcde");
+        Mockito.verify(processingRequestService).updateIfCurrent(processingRequest, ProcessState.PROCESSING, "10.pbs01");
+    }
+
+    /**
+     * El envío en curso guardó el trabajo de la solicitud mientras se cancelaba, se cancela ese trabajo
+     */
+    @Test
+    public void cancelProcessSubmittedMeanwhileTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        ProcessingRequest submitted = new ProcessingRequest();
+        submitted.setIdentifier("abcde");
+        submitted.setJobId("10.pbs01");
+        submitted.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.updateIfCurrent(processingRequest, ProcessState.PROCESSING, null)).thenReturn(Boolean.FALSE);
+        Mockito.when(processingRequestService.findByIdentifier("abcde")).thenReturn(submitted);
+        Mockito.when(clusterBackend.cancel("10.pbs01")).thenReturn(Boolean.TRUE);
+        Mockito.when(processingRequestService.updateIfCurrent(submitted, ProcessState.PROCESSING, "10.pbs01")).thenReturn(Boolean.TRUE);
+
+        // act
+        clusterService.cancelProcess(processingRequest);
+
+        // assert
+        Mockito.verify(clusterBackend).cancel("10.pbs01");
+        Assert.assertEquals(ProcessState.CANCELLED.getState(), submitted.getState());
+    }
+
+    @Test(expected = ValidateException.class)
+    public void cancelProcessFinishedMeanwhileTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setJobId("10.pbs01");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        ProcessingRequest finished = new ProcessingRequest();
+        finished.setIdentifier("abcde");
+        finished.setState(ProcessState.FINISHED_OK.getState());
+        Mockito.when(clusterBackend.cancel("10.pbs01")).thenReturn(Boolean.TRUE);
+        Mockito.when(processingRequestService.findByIdentifier("abcde")).thenReturn(finished);
+
+        // act
+        clusterService.cancelProcess(processingRequest);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void cancelProcessRejectedTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setJobId("10.pbs01");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(clusterBackend.cancel("10.pbs01")).thenReturn(Boolean.FALSE);
+
+        // act
+        clusterService.cancelProcess(processingRequest);
+    }
+
+    @Test
+    public void sendProcessToClusterCancelledTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setLanguage(Language.PYTHON.getName());
+        ProcessingRequest cancelled = new ProcessingRequest();
+        cancelled.setState(ProcessState.CANCELLED.getState());
+        normalMocks();
+        Mockito.when(processingRequestService.findByIdentifier("abcde")).thenReturn(cancelled);
+
+        // act
+        clusterService.sendProcessToCluster(processingRequest, new ArrayList<>());
+
+        // assert
+        Mockito.verify(clusterBackend, Mockito.never()).submit(Mockito.any());
+        Mockito.verify(processingRequestService, Mockito.never()).updateIfCurrent(Mockito.any(), Mockito.any(), Mockito.anyString());
+    }
+
 }
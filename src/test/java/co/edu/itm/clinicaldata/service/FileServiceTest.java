@@ -12,6 +12,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import co.edu.itm.clinicaldata.component.FileUtilities;
 import co.edu.itm.clinicaldata.component.RandomUtilities;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
@@ -22,6 +23,7 @@ public class FileServiceTest {
     private static final String DATA = "data";
     private static final byte[] BYTES = "some xml".getBytes();
     private static final String TEXT_PLAIN = "text/plain";
+    private static final String CHECKSUM = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
 
     @Mock
     ProcessingRequestService processingRequestService;
@@ -46,7 +48,7 @@ public class FileServiceTest {
         commonMocks();
 
         // act
-        String message = fileService.upload(file, investigatorId);
+        String message = fileService.upload(file, investigatorId, null);
 
         // assert
         Assert.assertNotNull(message);
@@ -59,16 +61,16 @@ public class FileServiceTest {
         Long investigatorId = 1L;
 
         // act
-        fileService.upload(file, investigatorId);
+        fileService.upload(file, investigatorId, null);
     }
 
     private void commonMocks() throws ValidateException{
         Mockito.when(investigatorService.validateAndFind(Mockito.anyLong())).thenReturn(new Investigator());
         Mockito.when(randomUtilities.generateIdentifier()).thenReturn("abcabc");
         Mockito.when(fileUtilities.buildBasePath(Mockito.anyString(), Mockito.anyString())).thenReturn("path");
-        Mockito.when(processingRequestService.create(Mockito.anyString(), Mockito.anyString(), Mockito.any(byte[].class),
-                Mockito.anyString(), Mockito.anyString(), Mockito.any())).thenReturn(new ProcessingRequest());
-        Mockito.when(fileUtilities.getBytesFromFile(Mockito.any())).thenReturn("abc".getBytes());
+        Mockito.when(processingRequestService.create(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any())).thenReturn(new ProcessingRequest());
+        Mockito.when(fileUtilities.storeFile(Mockito.any(), Mockito.anyString())).thenReturn(CHECKSUM);
     }
 
     @Test
@@ -79,7 +81,7 @@ public class FileServiceTest {
         commonMocks();
 
         // act
-        String message = fileService.upload(file, investigatorId);
+        String message = fileService.upload(file, investigatorId, null);
 
         // assert
         Assert.assertNotNull(message);
@@ -93,9 +95,25 @@ public class FileServiceTest {
         commonMocks();
 
         // act
-        String message = fileService.upload(file, investigatorId);
+        String message = fileService.upload(file, investigatorId, null);
 
         // assert
         Assert.assertNotNull(message);
     }
+
+    @Test
+    public void uploadWithPriorityTest() throws ValidateException {
+        // arrange
+        MultipartFile file = new MockMultipartFile(DATA, "filename.py", TEXT_PLAIN, BYTES);
+        Long investigatorId = 1L;
+        commonMocks();
+        Mockito.when(processingRequestService.validatePriority("bulk")).thenReturn(Priority.BULK);
+
+        // act
+        fileService.upload(file, investigatorId, "bulk");
+
+        // assert
+        Mockito.verify(processingRequestService).create(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.eq(Priority.BULK));
+    }
 }
@@ -139,4 +139,38 @@ public class InvestigatorServiceTest {
         // assert
         Assert.assertNotNull(message);
     }
+
+    @Test
+    public void updateLimitsTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setInvestigatorId(1L);
+        params.setMaxRunningRequests(5);
+        params.setShareWeight(2);
+        Investigator investigator = new Investigator();
+        investigator.setRequestsPerMinute(60);
+        Mockito.when(investigatorRepository.findOne(Mockito.anyLong())).thenReturn(investigator);
+
+        // act
+        String message = investigatorService.updateLimits(params);
+
+        // assert
+        Assert.assertNotNull(message);
+        Assert.assertEquals(Integer.valueOf(5), investigator.getMaxRunningRequests());
+        Assert.assertNull(investigator.getRequestsPerMinute());
+        Assert.assertEquals(Integer.valueOf(2), investigator.getShareWeight());
+        Mockito.verify(investigatorRepository, Mockito.times(1)).save(investigator);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void updateLimitsInvalidTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setInvestigatorId(1L);
+        params.setRequestsPerMinute(0);
+        Mockito.when(investigatorRepository.findOne(Mockito.anyLong())).thenReturn(new Investigator());
+
+        // act
+        investigatorService.updateLimits(params);
+    }
 }
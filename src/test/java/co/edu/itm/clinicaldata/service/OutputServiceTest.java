@@ -0,0 +1,328 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import co.edu.itm.clinicaldata.cache.OutputChannelCache;
+import co.edu.itm.clinicaldata.configuration.FolderConf;
+import co.edu.itm.clinicaldata.configuration.OutputFollowConf;
+import co.edu.itm.clinicaldata.dto.OutputChunk;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+import co.edu.itm.clinicaldata.model.ProcessingRequest;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutputServiceTest {
+
+    private static final String CONTENT = "línea de salida\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<FileChannel> channels = new ArrayList<>();
+
+    @Mock
+    ProcessingRequestService processingRequestService;
+
+    @Mock
+    FolderConf folderConf;
+
+    @Mock
+    OutputFollowConf outputFollowConf;
+
+    @Mock
+    OutputChannelCache outputChannelCache;
+
+    @InjectMocks
+    OutputService outputService;
+
+    @Test
+    public void writeOutputTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out", 10);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", null, new MockHttpServletRequest("GET", ""), response);
+
+        // assert
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(String.valueOf(content.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        Assert.assertEquals(ProcessState.FINISHED_OK.getState(), response.getHeader("X-Process-State"));
+        Assert.assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void writeOutputRangeTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out", 10);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", "out", request, response);
+
+        // assert
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertEquals("bytes 5-9/" + content.length, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assert.assertEquals(new String(content, 5, 5, StandardCharsets.UTF_8), response.getContentAsString());
+    }
+
+    @Test
+    public void writeOutputRangeNotSatisfiableTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out", 1);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + content.length + "-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", null, request, response);
+
+        // assert
+        Assert.assertEquals(416, response.getStatus());
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void writeOutputGzipTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.err", 200);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", "err", request, response);
+
+        // assert
+        Assert.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        byte[] body = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        Assert.assertArrayEquals(content, body);
+    }
+
+    @Test
+    public void writeOutputHeadTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out", 10);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", null, new MockHttpServletRequest("HEAD", ""), response);
+
+        // assert
+        Assert.assertEquals(String.valueOf(content.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void writeOutputSendfileTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out", 4000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        outputService.writeOutput("a", null, request, response);
+
+        // assert
+        Assert.assertNotNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        Assert.assertEquals(Long.valueOf(content.length), request.getAttribute("org.apache.tomcat.sendfile.end"));
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void writeOutputNotFinishedTest() throws ValidateException, IOException {
+        // arrange
+        outputMocks(null, 0);
+
+        // act
+        outputService.writeOutput("a", null, new MockHttpServletRequest("GET", ""), new MockHttpServletResponse());
+    }
+
+    @Test
+    public void rangeTest() {
+        // act - assert
+        Assert.assertArrayEquals(new long[] { 0, 99 }, outputService.range(null, 100));
+        Assert.assertArrayEquals(new long[] { 90, 99 }, outputService.range("bytes=-10", 100));
+        Assert.assertArrayEquals(new long[] { 10, 99 }, outputService.range("bytes=10-500", 100));
+        Assert.assertArrayEquals(new long[] { 0, 99 }, outputService.range("bytes=0-1,5-6", 100));
+        Assert.assertNull(outputService.range("bytes=20-10", 100));
+    }
+
+    @Test
+    public void readChunkInProgressTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = "línea".getBytes(StandardCharsets.UTF_8);
+        outputMocks("prueba.out.tmp", 0, ProcessState.PROCESSING);
+        // La salida termina en el primer byte de la "í" de otra línea, aún sin escribir completa
+        Files.write(new File(folder.getRoot(), "prueba.out.tmp").toPath(), Arrays.copyOf(content, 2));
+        channelMocks();
+
+        // act
+        OutputChunk outputChunk = outputService.readChunk("a", null, null);
+
+        // assert
+        Assert.assertEquals("l", outputChunk.getData());
+        Assert.assertEquals(1L, outputChunk.getNextOffset());
+        Assert.assertFalse(outputChunk.isFinished());
+        Mockito.verify(outputChannelCache).channel("a.out", new File(folder.getRoot(), "prueba.out.tmp").toPath());
+    }
+
+    @Test
+    public void readChunkFinishedTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.err", 3, ProcessState.FINISHED_WITH_ERRORS);
+        channelMocks();
+
+        // act
+        OutputChunk outputChunk = outputService.readChunk("a", "err", 5L);
+
+        // assert
+        Assert.assertEquals(new String(content, 5, content.length - 5, StandardCharsets.UTF_8), outputChunk.getData());
+        Assert.assertEquals(content.length, outputChunk.getNextOffset());
+        Assert.assertTrue(outputChunk.isFinished());
+    }
+
+    @Test
+    public void readChunkMaxSizeTest() throws ValidateException, IOException {
+        // arrange
+        outputMocks("prueba.out", 10, ProcessState.FINISHED_OK);
+        channelMocks();
+        Mockito.when(outputFollowConf.getMaxChunkSize()).thenReturn(8);
+
+        // act
+        OutputChunk outputChunk = outputService.readChunk("a", "out", 0L);
+
+        // assert
+        Assert.assertEquals(8L, outputChunk.getNextOffset());
+        Assert.assertFalse(outputChunk.isFinished());
+    }
+
+    @Test
+    public void readChunkWithoutOutputTest() throws ValidateException, IOException {
+        // arrange
+        outputMocks(null, 0, ProcessState.PROCESSING);
+        channelMocks();
+
+        // act
+        OutputChunk outputChunk = outputService.readChunk("a", null, 7L);
+
+        // assert
+        Assert.assertEquals("", outputChunk.getData());
+        Assert.assertEquals(7L, outputChunk.getNextOffset());
+        Assert.assertFalse(outputChunk.isFinished());
+    }
+
+    @Test(expected = ValidateException.class)
+    public void readChunkOffsetNotValidTest() throws ValidateException {
+        // act
+        outputService.readChunk("a", null, -1L);
+    }
+
+    @Test
+    public void pushOutputFinishedTest() throws ValidateException, IOException {
+        // arrange
+        outputMocks("prueba.out", 2, ProcessState.FINISHED_OK);
+        channelMocks();
+        outputService.follow("a", null, null, null);
+
+        // act
+        outputService.pushOutput();
+        outputService.pushOutput();
+
+        // assert
+        Mockito.verify(outputChannelCache, Mockito.times(1)).channel(Mockito.eq("a.out"), Mockito.any());
+        Mockito.verify(outputChannelCache).release("a.out");
+    }
+
+    @Test
+    public void pushOutputInProgressTest() throws ValidateException, IOException {
+        // arrange
+        byte[] content = outputMocks("prueba.out.tmp", 2, ProcessState.PROCESSING);
+        channelMocks();
+        ProcessStatus processStatus = Mockito.mock(ProcessStatus.class);
+        Mockito.when(processStatus.getState()).thenReturn(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.validateAndFindStatusByIdentifier("a")).thenReturn(processStatus);
+        outputService.follow("a", "out", (long) content.length, null);
+
+        // act
+        outputService.pushOutput();
+
+        // assert
+        Mockito.verify(processingRequestService).validateAndFindStatusByIdentifier("a");
+        Mockito.verify(outputChannelCache, Mockito.never()).release(Mockito.anyString());
+    }
+
+    private void channelMocks() throws IOException {
+        Mockito.when(outputFollowConf.getMaxChunkSize()).thenReturn(65536);
+        Mockito.when(outputChannelCache.channel(Mockito.anyString(), Mockito.any())).thenAnswer(invocation -> {
+            Path path = (Path) invocation.getArguments()[1];
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            channels.add(channel);
+            return channel;
+        });
+    }
+
+    @After
+    public void closeChannels() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    private byte[] outputMocks(String fileName, int lines) throws ValidateException, IOException {
+        return outputMocks(fileName, lines, ProcessState.FINISHED_OK);
+    }
+
+    private byte[] outputMocks(String fileName, int lines, ProcessState processState) throws ValidateException, IOException {
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("a");
+        processingRequest.setState(processState.getState());
+        processingRequest.setBasePath(folder.getRoot().getPath());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier("a")).thenReturn(processingRequest);
+        Mockito.when(folderConf.getLogOutputFile()).thenReturn("prueba.out");
+        Mockito.when(folderConf.getErrOutputFile()).thenReturn("prueba.err");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append(i).append(CONTENT);
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        if (fileName != null) {
+            Files.write(new File(folder.getRoot(), fileName).toPath(), bytes);
+        }
+        return bytes;
+    }
+
+}
@@ -2,6 +2,8 @@ package co.edu.itm.clinicaldata.service;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -10,10 +12,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.task.TaskRejectedException;
 
-import co.edu.itm.clinicaldata.component.FileUtilities;
+import co.edu.itm.clinicaldata.configuration.ClusterConf;
+import co.edu.itm.clinicaldata.configuration.SubmissionConf;
 import co.edu.itm.clinicaldata.dto.Params;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.enums.BackPressurePolicy;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.CapacityException;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessingRequest;
@@ -34,7 +42,13 @@ public class ProcessDataServiceTest {
     ProcessResourceService processResourceService;
 
     @Mock
-    FileUtilities fileUtilities;
+    SubmissionConf submissionConf;
+
+    @Mock
+    ClusterConf clusterConf;
+
+    @Mock
+    AdmissionService admissionService;
 
     @InjectMocks
     ProcessDataService processDataService;
@@ -43,10 +57,10 @@ public class ProcessDataServiceTest {
     public void processStateTest() throws ValidateException {
         // arrange
         String processIdentifier = "";
-        ProcessingRequest processingRequest = new ProcessingRequest();
-        processingRequest.setState(ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
-        processingRequest.setCreationDate(new Timestamp(0));
-        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        ProcessStatus processStatus = Mockito.mock(ProcessStatus.class);
+        Mockito.when(processStatus.getState()).thenReturn(ProcessState.FINISHED_WITHOUT_ACTIONS.getState());
+        Mockito.when(processStatus.getCreationDate()).thenReturn(new Timestamp(0));
+        Mockito.when(processingRequestService.validateAndFindStatusByIdentifier(Mockito.anyString())).thenReturn(processStatus);
 
         // act
         String message = processDataService.processState(processIdentifier);
@@ -64,7 +78,6 @@ public class ProcessDataServiceTest {
         processingRequest.setState(ProcessState.FINISHED_OK.getState());
         processingRequest.setCreationDate(new Timestamp(0));
         Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
-        Mockito.when(fileUtilities.readFile(Mockito.anyString())).thenReturn("Contenido leído");
 
         // act
         String message = processDataService.processResult(processIdentifier);
@@ -111,13 +124,44 @@ public class ProcessDataServiceTest {
         investigator.setName("Juan");
         Mockito.when(investigatorService.validateAndFind(Mockito.anyLong())).thenReturn(investigator);
         Mockito.when(processResourceService.validateRequiredResources(Mockito.any(), Mockito.any(ProcessingRequest.class))).thenReturn(new ArrayList<>());
-        Mockito.when(processingRequestService.updateState(Mockito.any(), Mockito.any())).thenReturn(processingRequest);
+        Mockito.when(admissionService.admit(Mockito.any())).thenReturn(Arrays.asList(processingRequest));
 
         // act
         String message = processDataService.startProcess(params);
 
         // assert
         Assert.assertNotNull(message);
+        Mockito.verify(clusterService).sendProcessToCluster(Mockito.eq(processingRequest), Mockito.any());
+    }
+
+    @Test
+    public void startProcessWithPriorityTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setPriority("bulk");
+        ProcessingRequest processingRequest = startMocks();
+        Mockito.when(processingRequestService.validatePriority("bulk")).thenReturn(Priority.BULK);
+
+        // act
+        processDataService.startProcess(params);
+
+        // assert
+        Assert.assertEquals(Integer.valueOf(Priority.BULK.getLevel()), processingRequest.getPriority());
+    }
+
+    @Test
+    public void startProcessThrottledTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        startMocks();
+        Mockito.when(admissionService.admit(Mockito.any())).thenReturn(new ArrayList<>());
+
+        // act
+        String message = processDataService.startProcess(params);
+
+        // assert
+        Assert.assertNotNull(message);
+        Mockito.verify(clusterService, Mockito.never()).sendProcessToCluster(Mockito.any(), Mockito.any());
     }
 
     @Test(expected=ValidateException.class)
@@ -133,4 +177,217 @@ public class ProcessDataServiceTest {
         processDataService.startProcess(params);
     }
 
+    @Test
+    public void startProcessRejectedSpillTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        ProcessingRequest processingRequest = startMocks();
+        Mockito.when(submissionConf.getPolicy()).thenReturn(BackPressurePolicy.SPILL);
+        Mockito.doThrow(TaskRejectedException.class).when(clusterService).sendProcessToCluster(Mockito.any(), Mockito.any());
+
+        // act
+        String message = processDataService.startProcess(params);
+
+        // assert
+        Assert.assertNotNull(message);
+        Mockito.verify(processingRequestService).updateState(processingRequest, ProcessState.WAITING);
+        Mockito.verify(admissionService).refund(processingRequest);
+    }
+
+    @Test(expected = CapacityException.class)
+    public void startProcessRejectedTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        startMocks();
+        Mockito.when(submissionConf.getPolicy()).thenReturn(BackPressurePolicy.REJECT);
+        Mockito.doThrow(TaskRejectedException.class).when(clusterService).sendProcessToCluster(Mockito.any(), Mockito.any());
+
+        // act
+        processDataService.startProcess(params);
+    }
+
+    @Test
+    public void startBatchTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setIdentifiers(Arrays.asList("1", "2"));
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        for (String identifier : params.getIdentifiers()) {
+            ProcessingRequest processingRequest = new ProcessingRequest();
+            processingRequest.setIdentifier(identifier);
+            processingRequest.setState(ProcessState.CREATED.getState());
+            listProcessingRequest.add(processingRequest);
+        }
+        Mockito.when(clusterConf.getMaxBatchSize()).thenReturn(10);
+        Mockito.when(processingRequestService.validateAndFindByIdentifiers(params.getIdentifiers())).thenReturn(listProcessingRequest);
+        Investigator investigator = new Investigator();
+        investigator.setName("Juan");
+        Mockito.when(investigatorService.validateAndFind(Mockito.anyLong())).thenReturn(investigator);
+        Mockito.when(processResourceService.validateRequiredResources(Mockito.any(), Mockito.any(ProcessingRequest.class))).thenReturn(new ArrayList<>());
+        Mockito.when(admissionService.admit(listProcessingRequest)).thenReturn(listProcessingRequest.subList(0, 1));
+
+        // act
+        String message = processDataService.startBatch(params);
+
+        // assert
+        Assert.assertNotNull(message);
+        Mockito.verify(admissionService).admit(listProcessingRequest);
+        Mockito.verify(clusterService).sendBatchToCluster(Mockito.eq(listProcessingRequest.subList(0, 1)), Mockito.any());
+    }
+
+    @Test(expected = ValidateException.class)
+    public void startBatchDuplicatedTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setIdentifiers(Arrays.asList("1", "1"));
+        Mockito.when(clusterConf.getMaxBatchSize()).thenReturn(10);
+
+        // act
+        processDataService.startBatch(params);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void startBatchStateNotValidTest() throws ValidateException {
+        // arrange
+        Params params = new Params();
+        params.setIdentifiers(Arrays.asList("1"));
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(clusterConf.getMaxBatchSize()).thenReturn(10);
+        Mockito.when(processingRequestService.validateAndFindByIdentifiers(params.getIdentifiers())).thenReturn(Arrays.asList(processingRequest));
+
+        // act
+        processDataService.startBatch(params);
+    }
+
+    @Test
+    public void resumeWaitingProcessesTest() {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        ProcessingRequest first = new ProcessingRequest();
+        first.setId(1L);
+        ProcessingRequest second = new ProcessingRequest();
+        second.setId(2L);
+        listProcessingRequest.add(first);
+        listProcessingRequest.add(second);
+        Mockito.when(admissionService.nextWaiting(Mockito.anyInt())).thenReturn(listProcessingRequest);
+        Mockito.when(processingRequestService.updateState(Mockito.any(), Mockito.eq(ProcessState.WAITING), Mockito.eq(ProcessState.PROCESSING)))
+                .thenReturn(Boolean.TRUE);
+        Mockito.doThrow(TaskRejectedException.class).when(clusterService).sendProcessToCluster(Mockito.eq(second), Mockito.any());
+
+        // act
+        processDataService.resumeWaitingProcesses();
+
+        // assert
+        Mockito.verify(clusterService).sendProcessToCluster(Mockito.eq(first), Mockito.any());
+        Mockito.verify(processingRequestService).updateState(second, ProcessState.PROCESSING, ProcessState.WAITING);
+        Mockito.verify(admissionService).refund(second);
+        Mockito.verify(admissionService, Mockito.never()).refund(first);
+    }
+
+    /**
+     * Una solicitud cancelada después de ser elegida no se envía ni se sobrescribe su estado
+     */
+    @Test
+    public void resumeWaitingProcessesCancelledTest() {
+        // arrange
+        ProcessingRequest cancelled = new ProcessingRequest();
+        cancelled.setId(1L);
+        ProcessingRequest waiting = new ProcessingRequest();
+        waiting.setId(2L);
+        Mockito.when(admissionService.nextWaiting(Mockito.anyInt())).thenReturn(Arrays.asList(cancelled, waiting));
+        Mockito.when(processingRequestService.updateState(cancelled, ProcessState.WAITING, ProcessState.PROCESSING)).thenReturn(Boolean.FALSE);
+        Mockito.when(processingRequestService.updateState(waiting, ProcessState.WAITING, ProcessState.PROCESSING)).thenReturn(Boolean.TRUE);
+
+        // act
+        processDataService.resumeWaitingProcesses();
+
+        // assert
+        Mockito.verify(clusterService, Mockito.never()).sendProcessToCluster(Mockito.eq(cancelled), Mockito.any());
+        Mockito.verify(clusterService).sendProcessToCluster(Mockito.eq(waiting), Mockito.any());
+        Mockito.verify(admissionService).refund(cancelled);
+        Mockito.verify(processResourceService, Mockito.never()).findByProcessingRequestId(1L);
+    }
+
+    private ProcessingRequest startMocks() throws ValidateException {
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("1233");
+        processingRequest.setState(ProcessState.CREATED.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        Investigator investigator = new Investigator();
+        investigator.setName("Juan");
+        Mockito.when(investigatorService.validateAndFind(Mockito.anyLong())).thenReturn(investigator);
+        Mockito.when(processResourceService.validateRequiredResources(Mockito.any(), Mockito.any(ProcessingRequest.class))).thenReturn(new ArrayList<>());
+        Mockito.when(processingRequestService.updateState(Mockito.any(), Mockito.any())).thenReturn(processingRequest);
+        Mockito.when(admissionService.admit(Mockito.any())).thenReturn(Arrays.asList(processingRequest));
+        return processingRequest;
+    }
+
+    @Test
+    public void cancelProcessProcessingTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("1233");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+
+        // act
+        String message = processDataService.cancelProcess("1233");
+
+        // assert
+        Assert.assertNotNull(message);
+        Mockito.verify(clusterService).cancelProcess(processingRequest);
+    }
+
+    @Test
+    public void cancelProcessWaitingTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("1233");
+        processingRequest.setState(ProcessState.WAITING.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        Mockito.when(processingRequestService.updateState(processingRequest, ProcessState.WAITING, ProcessState.CANCELLED)).thenReturn(Boolean.TRUE);
+
+        // act
+        processDataService.cancelProcess("1233");
+
+        // assert
+        Mockito.verify(processingRequestService).updateState(processingRequest, ProcessState.WAITING, ProcessState.CANCELLED);
+        Mockito.verifyZeroInteractions(clusterService);
+    }
+
+    /**
+     * La solicitud en espera fue enviada mientras se cancelaba, se cancela su trabajo en el cluster
+     */
+    @Test
+    public void cancelProcessResumedMeanwhileTest() throws ValidateException {
+        // arrange
+        ProcessingRequest waiting = new ProcessingRequest();
+        waiting.setIdentifier("1233");
+        waiting.setState(ProcessState.WAITING.getState());
+        ProcessingRequest processing = new ProcessingRequest();
+        processing.setIdentifier("1233");
+        processing.setState(ProcessState.PROCESSING.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(waiting, processing);
+        Mockito.when(processingRequestService.updateState(waiting, ProcessState.WAITING, ProcessState.CANCELLED)).thenReturn(Boolean.FALSE);
+
+        // act
+        processDataService.cancelProcess("1233");
+
+        // assert
+        Mockito.verify(clusterService).cancelProcess(processing);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void cancelProcessFinishedTest() throws ValidateException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("1233");
+        processingRequest.setState(ProcessState.FINISHED_OK.getState());
+        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+
+        // act
+        processDataService.cancelProcess("1233");
+    }
+
 }
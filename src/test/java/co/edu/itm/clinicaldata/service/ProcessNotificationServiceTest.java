@@ -0,0 +1,172 @@
+package co.edu.itm.clinicaldata.service;
+
+import java.sql.Timestamp;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import co.edu.itm.clinicaldata.configuration.NotificationConf;
+import co.edu.itm.clinicaldata.dto.ProcessStateChange;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.enums.ProcessState;
+import co.edu.itm.clinicaldata.exception.ValidateException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProcessNotificationServiceTest {
+
+    private static final String IDENTIFIER = "abcde";
+    private static final String STATE_MESSAGE = "La solicitud <abcde> se encuentra en estado <FINALIZADA>";
+
+    @Mock
+    ProcessingRequestService processingRequestService;
+
+    @Mock
+    InvestigatorService investigatorService;
+
+    @Mock
+    ProcessDataService processDataService;
+
+    @Mock
+    NotificationConf notificationConf;
+
+    @Mock
+    TaskExecutor notificationExecutor;
+
+    @InjectMocks
+    ProcessNotificationService processNotificationService;
+
+    @Before
+    public void setUp() {
+        Mockito.when(notificationConf.getMaxWait()).thenReturn(60000L);
+        Mockito.when(processDataService.stateMessage(Mockito.any())).thenReturn(STATE_MESSAGE);
+    }
+
+    @Test
+    public void waitForStateAlreadyReachedTest() throws ValidateException {
+        // arrange
+        mockCurrentState(ProcessState.FINISHED_OK);
+
+        // act
+        DeferredResult<ResponseEntity<String>> result = processNotificationService.waitForState(IDENTIFIER, "FINALIZADA", 1000L);
+
+        // assert
+        Assert.assertTrue(result.hasResult());
+        Assert.assertEquals(STATE_MESSAGE, ((ResponseEntity<?>) result.getResult()).getBody());
+    }
+
+    @Test
+    public void waitForStateNotifiedTest() throws ValidateException {
+        // arrange
+        mockCurrentState(ProcessState.PROCESSING);
+        DeferredResult<ResponseEntity<String>> result = processNotificationService.waitForState(IDENTIFIER, "FINALIZADA", 1000L);
+
+        // act
+        processNotificationService.onProcessStateChange(change(ProcessState.FINISHED_WITH_ERRORS));
+
+        // assert
+        Assert.assertTrue(result.hasResult());
+    }
+
+    @Test
+    public void waitForStateIgnoresIntermediateStatesTest() throws ValidateException {
+        // arrange
+        mockCurrentState(ProcessState.CREATED);
+        DeferredResult<ResponseEntity<String>> result = processNotificationService.waitForState(IDENTIFIER, "FINALIZADA", 1000L);
+
+        // act
+        processNotificationService.onProcessStateChange(change(ProcessState.PROCESSING));
+
+        // assert
+        Assert.assertFalse(result.hasResult());
+    }
+
+    @Test(expected = ValidateException.class)
+    public void waitForStateNotValidTest() throws ValidateException {
+        // act
+        processNotificationService.waitForState(IDENTIFIER, "TERMINADA", 1000L);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void waitForStateTimeoutNotValidTest() throws ValidateException {
+        // act
+        processNotificationService.waitForState(IDENTIFIER, "FINALIZADA", -1L);
+    }
+
+    /**
+     * Los eventos no se envían desde el hilo que confirma el cambio, y los que llegan mientras
+     * hay una tarea de envío pendiente se agregan a esa tarea
+     */
+    @Test
+    public void subscribeSendsOnExecutorTest() throws ValidateException {
+        // arrange
+        Mockito.when(notificationConf.getMaxPendingEvents()).thenReturn(10);
+        processNotificationService.subscribe(1L);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+
+        // act
+        processNotificationService.onProcessStateChange(change(ProcessState.PROCESSING));
+        processNotificationService.onProcessStateChange(change(ProcessState.FINISHED_OK));
+        Mockito.verify(notificationExecutor).execute(task.capture());
+        task.getValue().run();
+        processNotificationService.onProcessStateChange(change(ProcessState.CANCELLED));
+
+        // assert
+        Mockito.verify(notificationExecutor, Mockito.times(2)).execute(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void subscribeFallingBehindTest() throws ValidateException {
+        // arrange
+        Mockito.when(notificationConf.getMaxPendingEvents()).thenReturn(2);
+        processNotificationService.subscribe(1L);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+
+        // act
+        for (int i = 0; i < 3; i++) {
+            processNotificationService.onProcessStateChange(change(ProcessState.PROCESSING));
+        }
+        Mockito.verify(notificationExecutor).execute(task.capture());
+        task.getValue().run();
+        processNotificationService.onProcessStateChange(change(ProcessState.FINISHED_OK));
+
+        // assert
+        Mockito.verify(notificationExecutor, Mockito.times(1)).execute(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void subscribeExecutorRejectedTest() throws ValidateException {
+        // arrange
+        Mockito.when(notificationConf.getMaxPendingEvents()).thenReturn(10);
+        Mockito.doThrow(TaskRejectedException.class).when(notificationExecutor).execute(Mockito.any(Runnable.class));
+        processNotificationService.subscribe(1L);
+
+        // act
+        processNotificationService.onProcessStateChange(change(ProcessState.PROCESSING));
+        processNotificationService.onProcessStateChange(change(ProcessState.FINISHED_OK));
+
+        // assert
+        Mockito.verify(notificationExecutor, Mockito.times(1)).execute(Mockito.any(Runnable.class));
+    }
+
+    private void mockCurrentState(ProcessState processState) throws ValidateException {
+        ProcessStatus processStatus = Mockito.mock(ProcessStatus.class);
+        Mockito.when(processStatus.getState()).thenReturn(processState.getState());
+        Mockito.when(processingRequestService.validateAndFindStatusByIdentifier(IDENTIFIER)).thenReturn(processStatus);
+    }
+
+    private ProcessStateChange change(ProcessState processState) {
+        return new ProcessStateChange(IDENTIFIER, processState.getState(), new Timestamp(0), new Timestamp(0), 1L);
+    }
+
+}
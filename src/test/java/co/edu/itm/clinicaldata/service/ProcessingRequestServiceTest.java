@@ -1,16 +1,25 @@
 package co.edu.itm.clinicaldata.service;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 
+import co.edu.itm.clinicaldata.cache.ProcessStatusCache;
+import co.edu.itm.clinicaldata.dto.ProcessStateChange;
+import co.edu.itm.clinicaldata.dto.ProcessStatus;
+import co.edu.itm.clinicaldata.dto.ReportRow;
+import co.edu.itm.clinicaldata.enums.Priority;
 import co.edu.itm.clinicaldata.enums.ProcessState;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
@@ -23,6 +32,12 @@ public class ProcessingRequestServiceTest {
     @Mock
     ProcessingRequestRepository processingRequestRepository;
 
+    @Mock
+    ProcessStatusCache processStatusCache;
+
+    @Mock
+    ApplicationEventPublisher applicationEventPublisher;
+
     @InjectMocks
     ProcessingRequestService processingRequestService;
 
@@ -53,6 +68,49 @@ public class ProcessingRequestServiceTest {
         Assert.assertEquals(0, list.size());
     }
 
+    @Test
+    public void lastUpdateAndCountByInvestigatorTest() {
+        // arrange
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { new Timestamp(1000L), 3L });
+        Mockito.when(processingRequestRepository.findLastUpdateAndCountByInvestigatorId(1L)).thenReturn(rows);
+
+        // act
+        long[] lastUpdateAndCount = processingRequestService.lastUpdateAndCountByInvestigator(1L);
+
+        // assert
+        Assert.assertArrayEquals(new long[] { 1000L, 3L }, lastUpdateAndCount);
+    }
+
+    @Test
+    public void lastUpdateAndCountByInvestigatorWithoutRequestsTest() {
+        // arrange
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { null, 0L });
+        Mockito.when(processingRequestRepository.findLastUpdateAndCountByInvestigatorId(1L)).thenReturn(rows);
+
+        // act
+        long[] lastUpdateAndCount = processingRequestService.lastUpdateAndCountByInvestigator(1L);
+
+        // assert
+        Assert.assertArrayEquals(new long[] { 0L, 0L }, lastUpdateAndCount);
+    }
+
+    @Test
+    public void findByStateTest() throws ValidateException {
+        // arrange
+        List<ProcessingRequest> listProcessingRequest = new ArrayList<>();
+        listProcessingRequest.add(new ProcessingRequest());
+        Mockito.when(processingRequestRepository.findByState(ProcessState.PROCESSING.getState())).thenReturn(listProcessingRequest);
+
+        // act
+        List<ProcessingRequest> list = processingRequestService.findByState(ProcessState.PROCESSING);
+
+        // assert
+        Assert.assertNotNull(list);
+        Assert.assertEquals(1, list.size());
+    }
+
     @Test
     public void validateAndFindByIdentifierTest() throws ValidateException {
         // arrange
@@ -66,6 +124,73 @@ public class ProcessingRequestServiceTest {
         Assert.assertNotNull(processingRequest);
     }
 
+    @Test
+    public void validateAndFindStatusByIdentifierTest() throws ValidateException {
+        // arrange
+        String processIdentifier = "1";
+        Mockito.when(processingRequestRepository.findStatusByIdentifier(Mockito.anyString())).thenReturn(Mockito.mock(ProcessStatus.class));
+
+        // act
+        ProcessStatus processStatus = processingRequestService.validateAndFindStatusByIdentifier(processIdentifier);
+
+        // assert
+        Assert.assertNotNull(processStatus);
+    }
+
+    @Test
+    public void validateAndFindStatusByIdentifierCachedTest() throws ValidateException {
+        // arrange
+        String processIdentifier = "1";
+        ProcessStatus cached = Mockito.mock(ProcessStatus.class);
+        Mockito.when(processStatusCache.get(processIdentifier)).thenReturn(cached);
+
+        // act
+        ProcessStatus processStatus = processingRequestService.validateAndFindStatusByIdentifier(processIdentifier);
+
+        // assert
+        Assert.assertSame(cached, processStatus);
+        Mockito.verifyZeroInteractions(processingRequestRepository);
+    }
+
+    @Test
+    public void updateInvalidatesStatusCacheTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+
+        // act
+        processingRequestService.updateState(processingRequest, ProcessState.FINISHED_OK);
+
+        // assert
+        Mockito.verify(processStatusCache).invalidate("abcde");
+        Mockito.verify(applicationEventPublisher).publishEvent(Mockito.any(ProcessStateChange.class));
+    }
+
+    @Test
+    public void updateSetsLastUpdateTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setLastUpdate(new Timestamp(0));
+
+        // act
+        processingRequestService.update(processingRequest);
+
+        // assert
+        Assert.assertTrue(processingRequest.getLastUpdate().getTime() > 0);
+        Mockito.verify(processingRequestRepository).save(processingRequest);
+    }
+
+    @Test(expected = ValidateException.class)
+    public void validateAndFindStatusByIdentifierWithoutResultTest() throws ValidateException {
+        // arrange
+        String processIdentifier = "1";
+        Mockito.when(processingRequestRepository.findStatusByIdentifier(Mockito.anyString())).thenReturn(null);
+
+        // act
+        processingRequestService.validateAndFindStatusByIdentifier(processIdentifier);
+    }
+
     @Test(expected = ValidateException.class)
     public void validateAndFindByIdentifierProcessNullTest() throws ValidateException {
         // arrange
@@ -102,15 +227,94 @@ public class ProcessingRequestServiceTest {
         // arrange
         String identifier = "";
         String language = "";
-        byte[] bytes = "".getBytes();
+        String checksum = "";
         String fileName = "";
         String basePath = "";
         Investigator investigator = new Investigator();
 
         // act
-        ProcessingRequest processingRequest = processingRequestService.create(identifier, language, bytes, fileName, basePath, investigator);
+        ProcessingRequest processingRequest = processingRequestService.create(identifier, language, checksum, fileName, basePath, investigator, Priority.INTERACTIVE);
 
         // assert
         Assert.assertNotNull(processingRequest);
+        Assert.assertEquals(Integer.valueOf(Priority.INTERACTIVE.getLevel()), processingRequest.getPriority());
+    }
+
+    @Test
+    public void validatePriorityTest() throws ValidateException {
+        // act
+        Priority priority = processingRequestService.validatePriority("interactive");
+
+        // assert
+        Assert.assertEquals(Priority.INTERACTIVE, priority);
+        Assert.assertNull(processingRequestService.validatePriority(null));
+    }
+
+    @Test(expected = ValidateException.class)
+    public void validatePriorityNotValidTest() throws ValidateException {
+        // act
+        processingRequestService.validatePriority("urgente");
+    }
+
+    @Test
+    public void findReportRowsByInvestigatorTest() {
+        // arrange
+        List<ReportRow> rows = new ArrayList<>();
+        rows.add(new ReportRow(1L, "abc", null, "Main.java", "TERMINADA", null));
+        Mockito.when(processingRequestRepository.findReportRowsByInvestigatorId(
+                Mockito.eq(1L), Mockito.eq(10L), Mockito.any(Pageable.class))).thenReturn(rows);
+
+        // act
+        List<ReportRow> page = processingRequestService.findReportRowsByInvestigator(1L, 10L, 500);
+
+        // assert
+        Assert.assertSame(rows, page);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        Mockito.verify(processingRequestRepository).findReportRowsByInvestigatorId(
+                Mockito.eq(1L), Mockito.eq(10L), pageable.capture());
+        Assert.assertEquals(0, pageable.getValue().getPageNumber());
+        Assert.assertEquals(500, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    public void updateIfCurrentTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setState(ProcessState.PROCESSING.getState());
+        processingRequest.setJobId("10.pbs01");
+        Mockito.when(processingRequestRepository.updateIfCurrent(Mockito.eq("abcde"), Mockito.eq(ProcessState.PROCESSING.getState()),
+                Mockito.eq(""), Mockito.eq(ProcessState.PROCESSING.getState()), Mockito.anyString(), Mockito.eq("10.pbs01"),
+                Mockito.any(Timestamp.class))).thenReturn(1);
+
+        // act
+        boolean updated = processingRequestService.updateIfCurrent(processingRequest, ProcessState.PROCESSING, null);
+
+        // assert
+        Assert.assertTrue(updated);
+        Assert.assertNotNull(processingRequest.getLastUpdate());
+        Mockito.verify(processStatusCache).invalidate("abcde");
+        Mockito.verify(applicationEventPublisher).publishEvent(Mockito.any(ProcessStateChange.class));
+        Mockito.verify(processingRequestRepository, Mockito.never()).save(Mockito.any(ProcessingRequest.class));
     }
+
+    @Test
+    public void updateStateChangedTest() {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setIdentifier("abcde");
+        processingRequest.setState(ProcessState.WAITING.getState());
+        Mockito.when(processingRequestRepository.updateIfCurrent(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.any(Timestamp.class))).thenReturn(0);
+
+        // act
+        boolean updated = processingRequestService.updateState(processingRequest, ProcessState.WAITING, ProcessState.PROCESSING);
+
+        // assert
+        Assert.assertFalse(updated);
+        Assert.assertEquals(ProcessState.WAITING.getState(), processingRequest.getState());
+        Assert.assertNull(processingRequest.getLastUpdate());
+        Mockito.verifyZeroInteractions(processStatusCache, applicationEventPublisher);
+    }
+
 }
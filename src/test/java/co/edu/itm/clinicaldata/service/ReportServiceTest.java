@@ -1,18 +1,29 @@
 package co.edu.itm.clinicaldata.service;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import co.edu.itm.clinicaldata.cache.ReportCache;
+import co.edu.itm.clinicaldata.dto.ReportRow;
 import co.edu.itm.clinicaldata.exception.ValidateException;
 import co.edu.itm.clinicaldata.model.Investigator;
 import co.edu.itm.clinicaldata.model.ProcessResource;
@@ -21,6 +32,9 @@ import co.edu.itm.clinicaldata.model.ProcessingRequest;
 @RunWith(MockitoJUnitRunner.class)
 public class ReportServiceTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Mock
     ProcessingRequestService processingRequestService;
     
@@ -30,11 +44,14 @@ public class ReportServiceTest {
     @Mock
     ProcessResourceService processResourceService;
 
+    @Mock
+    ReportCache reportCache;
+
     @InjectMocks
     ReportService reportService;
 
     @Test
-    public void byRequestTest() throws ValidateException {
+    public void byRequestTest() throws ValidateException, IOException {
         // arrange
         String processIdentifier = "";
         ProcessingRequest processingRequest = new ProcessingRequest();
@@ -51,28 +68,102 @@ public class ReportServiceTest {
         Mockito.when(processResourceService.findByProcessingRequestId(Mockito.anyLong())).thenReturn(listProcessResource);
 
         // act
-        ByteArrayInputStream byteArrayInputStream = reportService.byRequest(processIdentifier);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.byRequest(processIdentifier).writeTo(out);
 
         // assert
-        Assert.assertNotNull(byteArrayInputStream);
+        Assert.assertEquals("%PDF", new String(out.toByteArray(), 0, 4, StandardCharsets.US_ASCII));
     }
 
     @Test
-    public void byInvestigatorTest() throws ValidateException {
+    public void byInvestigatorTest() throws ValidateException, IOException {
         // arrange
         Long investigatorId = 1L;
         ProcessingRequest processingRequest = new ProcessingRequest();
         processingRequest.setId(1L);
         processingRequest.setCreationDate(new Timestamp(0));
-        Mockito.when(processingRequestService.validateAndFindByIdentifier(Mockito.anyString())).thenReturn(processingRequest);
+        List<ReportRow> rows = Collections.singletonList(ReportRow.of(processingRequest));
+        Mockito.when(processingRequestService.findReportRowsByInvestigator(Mockito.eq(investigatorId), Mockito.anyLong(), Mockito.anyInt()))
+                .thenReturn(rows);
         Investigator investigator = new Investigator();
         investigator.setName("Juan");
         Mockito.when(investigatorService.validateAndFind(Mockito.anyLong())).thenReturn(investigator);
+        Mockito.when(processingRequestService.lastUpdateAndCountByInvestigator(investigatorId)).thenReturn(new long[] { 0L, 1L });
+
+        // act
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.byInvestigator(investigatorId).writeTo(out);
+
+        // assert
+        Assert.assertEquals("%PDF", new String(out.toByteArray(), 0, 4, StandardCharsets.US_ASCII));
+        Mockito.verify(processingRequestService).findReportRowsByInvestigator(investigatorId, 0L, 500);
+        Mockito.verify(processingRequestService, Mockito.never()).findReportRowsByInvestigator(investigatorId, 1L, 500);
+    }
+
+    @Test
+    public void byRequestCachedTest() throws ValidateException, IOException {
+        // arrange
+        ProcessingRequest processingRequest = new ProcessingRequest();
+        processingRequest.setId(1L);
+        processingRequest.setIdentifier("abc");
+        processingRequest.setLastUpdate(new Timestamp(1000L));
+        Mockito.when(processingRequestService.validateAndFindByIdentifier("abc")).thenReturn(processingRequest);
+        InputStream cached = new ByteArrayInputStream(new byte[] { 1 });
+        Mockito.when(reportCache.get(ReportCache.requestScope("abc"), ReportCache.version(1000L, 1L))).thenReturn(cached);
+
+        // act
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.byRequest("abc").writeTo(out);
+
+        // assert
+        Assert.assertArrayEquals(new byte[] { 1 }, out.toByteArray());
+        Mockito.verifyZeroInteractions(processResourceService);
+        Mockito.verify(reportCache, Mockito.never()).put(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyLong());
+    }
+
+    @Test
+    public void byInvestigatorCachedTest() throws ValidateException, IOException {
+        // arrange
+        Long investigatorId = 1L;
+        Mockito.when(investigatorService.validateAndFind(investigatorId)).thenReturn(new Investigator());
+        Mockito.when(processingRequestService.lastUpdateAndCountByInvestigator(investigatorId)).thenReturn(new long[] { 1000L, 4L });
+        InputStream cached = new ByteArrayInputStream(new byte[] { 1 });
+        Mockito.when(reportCache.get(ReportCache.investigatorScope(investigatorId), ReportCache.version(1000L, 4L))).thenReturn(cached);
 
         // act
-        ByteArrayInputStream byteArrayInputStream = reportService.byInvestigator(investigatorId);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.byInvestigator(investigatorId).writeTo(out);
 
         // assert
-        Assert.assertNotNull(byteArrayInputStream);
+        Assert.assertArrayEquals(new byte[] { 1 }, out.toByteArray());
+        Mockito.verify(processingRequestService, Mockito.never())
+                .findReportRowsByInvestigator(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyInt());
     }
+
+    @Test
+    public void byInvestigatorNotCachedTest() throws ValidateException, IOException {
+        // arrange
+        Long investigatorId = 1L;
+        Investigator investigator = new Investigator();
+        investigator.setId(investigatorId);
+        Mockito.when(investigatorService.validateAndFind(investigatorId)).thenReturn(investigator);
+        Mockito.when(processingRequestService.lastUpdateAndCountByInvestigator(investigatorId)).thenReturn(new long[] { 1000L, 0L });
+        Mockito.when(reportCache.stamp()).thenReturn(7L);
+        Path temporary = folder.getRoot().toPath().resolve("report.tmp");
+        Mockito.when(reportCache.temporaryFile(ReportCache.investigatorScope(investigatorId))).thenReturn(temporary);
+        Mockito.when(processingRequestService.findReportRowsByInvestigator(Mockito.eq(investigatorId), Mockito.anyLong(), Mockito.anyInt()))
+                .thenReturn(new ArrayList<>());
+
+        // act
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.byInvestigator(investigatorId).writeTo(out);
+
+        // assert
+        byte[] report = out.toByteArray();
+        Assert.assertEquals("%PDF", new String(report, 0, 4, StandardCharsets.US_ASCII));
+        Assert.assertArrayEquals(report, Files.readAllBytes(temporary));
+        Mockito.verify(reportCache).put(ReportCache.investigatorScope(investigatorId), ReportCache.version(1000L, 0L), temporary, 7L);
+        Mockito.verify(reportCache, Mockito.never()).discard(Mockito.any());
+    }
+
 }
@@ -0,0 +1,104 @@
+package co.edu.itm.clinicaldata.util;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.edu.itm.clinicaldata.dto.JobStatus;
+
+public class SchedulerOutputParserTest {
+
+    @Test
+    public void jobIdPbsTest() {
+        // act
+        String jobId = SchedulerOutputParser.jobId("\n1234.pbs01.itm.edu.co\n");
+
+        // assert
+        Assert.assertEquals("1234.pbs01.itm.edu.co", jobId);
+    }
+
+    @Test
+    public void jobIdArrayTest() {
+        // act
+        String jobId = SchedulerOutputParser.jobId("1234[].pbs01\n");
+
+        // assert
+        Assert.assertEquals("1234[].pbs01", jobId);
+    }
+
+    @Test
+    public void jobIdSgeTest() {
+        // act
+        String jobId = SchedulerOutputParser.jobId("Your job-array 77.1-3:1 (\"qsub.sh\") has been submitted\n");
+
+        // assert
+        Assert.assertEquals("77", jobId);
+    }
+
+    @Test
+    public void jobIdNotRecognizedTest() {
+        // assert
+        Assert.assertNull(SchedulerOutputParser.jobId("qsub: submit error"));
+        Assert.assertNull(SchedulerOutputParser.jobId(null));
+    }
+
+    @Test
+    public void jobStatusesTest() {
+        // arrange
+        String qstatOutput = "Job Id: 10.pbs01\n"
+                + "    Job_Name = qsub.sh\n"
+                + "    job_state = R\n"
+                + "\n"
+                + "Job Id: 11.pbs01\n"
+                + "    job_state = F\n"
+                + "    Exit_status = 137\n"
+                + "\n"
+                + "Job Id: 1234[2].pbs01\n"
+                + "    job_state = X\n"
+                + "    exit_status = -\n";
+
+        // act
+        Map<String, JobStatus> jobStatuses = SchedulerOutputParser.jobStatuses(qstatOutput);
+
+        // assert
+        Assert.assertEquals(3, jobStatuses.size());
+        Assert.assertEquals("R", jobStatuses.get("10.pbs01").getState());
+        Assert.assertFalse(jobStatuses.get("10.pbs01").isFinished());
+        Assert.assertNull(jobStatuses.get("10.pbs01").getExitStatus());
+        Assert.assertTrue(jobStatuses.get("11.pbs01").isFinished());
+        Assert.assertEquals(Integer.valueOf(137), jobStatuses.get("11.pbs01").getExitStatus());
+        Assert.assertTrue(jobStatuses.get("1234[2].pbs01").isFinished());
+        Assert.assertNull(jobStatuses.get("1234[2].pbs01").getExitStatus());
+    }
+
+    @Test
+    public void jobStatusesWindowsLineEndingsTest() {
+        // act
+        Map<String, JobStatus> jobStatuses = SchedulerOutputParser.jobStatuses("Job Id: 10.pbs01\r\n    job_state = C\r\n");
+
+        // assert
+        Assert.assertTrue(jobStatuses.get("10.pbs01").isFinished());
+    }
+
+    @Test
+    public void jobStatusesXmlTest() {
+        // arrange
+        String qstatOutput = "<?xml version=\"1.0\"?><Data><Job><Job_Id>10.torque01</Job_Id>"
+                + "<job_state>R</job_state></Job></Data>";
+
+        // act
+        Map<String, JobStatus> jobStatuses = SchedulerOutputParser.jobStatuses(qstatOutput);
+
+        // assert
+        Assert.assertTrue(jobStatuses.isEmpty());
+    }
+
+    @Test
+    public void jobStatusesEmptyTest() {
+        // assert
+        Assert.assertTrue(SchedulerOutputParser.jobStatuses("").isEmpty());
+        Assert.assertTrue(SchedulerOutputParser.jobStatuses(null).isEmpty());
+    }
+
+}